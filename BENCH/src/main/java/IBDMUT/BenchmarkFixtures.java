@@ -0,0 +1,215 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes small synthetic inputs for the benchmarks: a region (.ped.gz, .map,
+ * .frq and .match.gz files), a bed mask and a demography. Haplotypes have
+ * allele frequencies drawn from a 1/f spectrum, and each IBD segment copies
+ * one haplotype into another over its span, with a few discordant sites, so
+ * that segments are compared as in real data. Files depend only on the
+ * sizes and the seed.
+ *
+ * @author Pier Palamara
+ */
+public class BenchmarkFixtures {
+
+    public static final String chr = "1";
+    // regions span 10 Mb, at 1 cM per Mb
+    static final int regionBasePairs = 10000000;
+    private static final double cMPerBasePair = 1e-6;
+    private static final double minSegmentCM = 1.0;
+    private static final double maxSegmentCM = 6.0;
+    // fraction of sites of a segment that differ between its haplotypes
+    private static final double discordance = 1e-3;
+    private static final double missingness = 1e-3;
+    private static final char[] bases = {'A', 'C', 'G', 'T'};
+
+    /**
+     * Writes dir/name.ped.gz, .map, .frq and dir/name.match.gz.
+     *
+     * @return the root of the ped, map and frq files
+     */
+    public static String writeRegion(File dir, String name, int samples, int markers, int segments, long seed) throws IOException {
+        Random random = new Random(seed);
+        int step = Math.max(1, regionBasePairs / markers);
+        int[] physPos = new int[markers];
+        char[][] alleles = new char[markers][2];
+        byte[][] haplotypes = new byte[2 * samples][markers];
+        double minFreq = 1. / (2 * samples);
+        for (int i = 0; i < markers; i++) {
+            physPos[i] = i * step + 1 + random.nextInt(step);
+            int ref = random.nextInt(4);
+            alleles[i][0] = bases[ref];
+            alleles[i][1] = bases[(ref + 1 + random.nextInt(3)) % 4];
+            double freq = Math.exp(Math.log(minFreq) + random.nextDouble() * (Math.log(0.5) - Math.log(minFreq)));
+            for (byte[] haplotype : haplotypes) {
+                haplotype[i] = (byte) ((random.nextDouble() < freq) ? 1 : 0);
+            }
+        }
+
+        String root = new File(dir, name).getPath();
+        Writer match = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(root + ".match.gz")), "UTF-8"));
+        for (int s = 0; s < segments; s++) {
+            int hap1 = random.nextInt(haplotypes.length);
+            int hap2 = (hap1 + 1 + random.nextInt(haplotypes.length - 1)) % haplotypes.length;
+            double length = minSegmentCM + random.nextDouble() * (maxSegmentCM - minSegmentCM);
+            int span = (int) Math.min(physPos[markers - 1] - physPos[0], length / cMPerBasePair);
+            int fromPhys = physPos[0] + random.nextInt(physPos[markers - 1] - physPos[0] - span + 1);
+            int from = firstMarkerAtOrAfter(physPos, fromPhys);
+            int to = Math.max(from, firstMarkerAtOrAfter(physPos, fromPhys + span + 1) - 1);
+            for (int i = from; i <= to; i++) {
+                haplotypes[hap2][i] = haplotypes[hap1][i];
+                if (random.nextDouble() < discordance) {
+                    haplotypes[hap2][i] ^= 1;
+                }
+            }
+            double segmentCM = Math.round((physPos[to] - physPos[from]) * cMPerBasePair * 100) / 100.;
+            match.write(getSample(hap1) + " " + getSample(hap1) + "." + (hap1 % 2) + "\t"
+                    + getSample(hap2) + " " + getSample(hap2) + "." + (hap2 % 2) + "\t"
+                    + chr + "\t" + physPos[from] + " " + physPos[to] + "\t"
+                    + chr + ":" + physPos[from] + " " + chr + ":" + physPos[to] + "\t"
+                    + (to - from + 1) + "\t" + segmentCM + "\tcM\t0\t1\t1\n");
+        }
+        match.close();
+
+        int[] altCounts = new int[markers];
+        int[] observed = new int[markers];
+        Writer ped = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(root + ".ped.gz")), "UTF-8"), 1 << 16);
+        for (int sample = 0; sample < samples; sample++) {
+            int id = sample + 1;
+            ped.write(id + " " + id + " 0 0 1 -9");
+            for (int i = 0; i < markers; i++) {
+                if (random.nextDouble() < missingness) {
+                    ped.write(" 0 0");
+                    continue;
+                }
+                int allele0 = haplotypes[2 * sample][i];
+                int allele1 = haplotypes[2 * sample + 1][i];
+                altCounts[i] += allele0 + allele1;
+                observed[i] += 2;
+                ped.write(" ");
+                ped.write(alleles[i][allele0]);
+                ped.write(" ");
+                ped.write(alleles[i][allele1]);
+            }
+            ped.write("\n");
+        }
+        ped.close();
+
+        Writer map = new BufferedWriter(new FileWriter(root + ".map"));
+        Writer frq = new BufferedWriter(new FileWriter(root + ".frq"));
+        frq.write(" CHR SNP A1 A2 MAF NCHROBS\n");
+        for (int i = 0; i < markers; i++) {
+            String ID = chr + ":" + physPos[i];
+            map.write(chr + "\t" + ID + "\t" + (physPos[i] * cMPerBasePair) + "\t" + physPos[i] + "\n");
+            double freq = (observed[i] == 0) ? 0. : altCounts[i] / (double) observed[i];
+            frq.write(chr + " " + ID + " " + alleles[i][1] + " " + alleles[i][0] + " " + freq + " " + observed[i] + "\n");
+        }
+        map.close();
+        frq.close();
+        return root;
+    }
+
+    /**
+     * @return the FamID and IndID of the sample of a haplotype
+     */
+    private static int getSample(int haplotype) {
+        return haplotype / 2 + 1;
+    }
+
+    private static int firstMarkerAtOrAfter(int[] physPos, int pos) {
+        int index = Arrays.binarySearch(physPos, pos);
+        return (index >= 0) ? index : -index - 1;
+    }
+
+    /**
+     * Writes a bed file with intervals covering about half of a region.
+     *
+     * @return the bed file
+     */
+    public static String writeMask(File dir, String name, int intervals, long seed) throws IOException {
+        Random random = new Random(seed);
+        int width = regionBasePairs / intervals;
+        File maskFile = new File(dir, name + ".bed");
+        Writer bed = new BufferedWriter(new FileWriter(maskFile));
+        for (int k = 0; k < intervals; k++) {
+            int from = k * width + random.nextInt(Math.max(1, width / 2));
+            bed.write(chr + "\t" + from + "\t" + (from + width / 2) + "\n");
+        }
+        bed.close();
+        return maskFile.getPath();
+    }
+
+    /**
+     * Writes a demography of constant size.
+     *
+     * @return the demography file
+     */
+    public static String writeDemography(File dir, String name, int size) throws IOException {
+        File demographyFile = new File(dir, name + ".demo");
+        Writer demo = new BufferedWriter(new FileWriter(demographyFile));
+        demo.write("0\t" + size + "\n");
+        demo.close();
+        return demographyFile.getPath();
+    }
+
+    /**
+     * Deletes the files of dir, and dir.
+     */
+    public static void delete(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    /**
+     * Writes the fixtures of one region to a directory, e.g. to run the
+     * analysis on them.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: BenchmarkFixtures [dir] [samples] [markers] [segments] [seed]");
+            System.exit(1);
+        }
+        File dir = new File(args[0]);
+        dir.mkdirs();
+        long seed = (args.length > 4) ? Long.parseLong(args[4]) : 1;
+        String root = writeRegion(dir, "region", Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), seed);
+        writeMask(dir, "mask", 100, seed);
+        writeDemography(dir, "constant", 10000);
+        System.out.println(root + "\t" + root + ".match.gz");
+    }
+}
@@ -0,0 +1,83 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package IBDMUT;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ages of segments, for each length bin of the counts of a region, as the
+ * regression of Results.getMu computes them. computeAgeOfSegment measures
+ * the computation itself, getAgeOfSegment the memoized lookups that follow
+ * the first call for each bin.
+ *
+ * @author Pier Palamara
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DemographyBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class LengthBins {
+
+        Demography demography;
+        double[] lengths;
+
+        @Setup(Level.Trial)
+        public void setUp(RegionFixture fixture) throws Exception {
+            demography = new Demography(fixture.demographyFile);
+            lengths = new double[fixture.getMaskResults().getCumulativeHistogram().size()];
+            int bin = 0;
+            for (double length : fixture.getMaskResults().getCumulativeHistogram().keySet()) {
+                lengths[bin++] = length;
+            }
+        }
+    }
+
+    @Benchmark
+    public double computeAgeOfSegment(LengthBins bins) {
+        double sum = 0;
+        for (double length : bins.lengths) {
+            sum += bins.demography.computeAgeOfSegment(length, length + Results.getLengthIncrement(), true);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double getAgeOfSegment(LengthBins bins) {
+        double sum = 0;
+        for (double length : bins.lengths) {
+            sum += bins.demography.getAgeOfSegment(length, length + Results.getLengthIncrement(), true);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package IBDMUT;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The weighted block jackknife of the estimates of each left out region.
+ *
+ * @author Pier Palamara
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JackknifeBenchmark {
+
+    @Param({"20", "100", "1000"})
+    public int regions;
+
+    private Double[] estimates;
+    private Double[] weights;
+    private Double estimateAll;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Tools.makeQuiet();
+        Random random = new Random(1);
+        estimates = new Double[regions];
+        weights = new Double[regions];
+        for (int i = 0; i < regions; i++) {
+            estimates[i] = 1.2e-8 * (1 + 0.1 * random.nextGaussian());
+            weights[i] = 1. + random.nextInt(1000);
+        }
+        estimateAll = 1.2e-8;
+    }
+
+    @Benchmark
+    public Pair<Double, Double> weightedBlockJackknife() {
+        return Tools.weightedBlockJackknife(estimates, weights, estimateAll);
+    }
+}
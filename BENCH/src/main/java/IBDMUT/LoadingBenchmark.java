@@ -0,0 +1,57 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package IBDMUT;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading a region: parsing its ped.gz and map files, and the round trip of
+ * the binary files of --saveBin and --loadBin.
+ *
+ * @author Pier Palamara
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoadingBenchmark {
+
+    @Benchmark
+    public Dataset readPedFile(RegionFixture fixture) throws Exception {
+        Dataset data = new Dataset();
+        data.readPedFile(fixture.root, fixture.config);
+        return data;
+    }
+
+    @Benchmark
+    public Dataset binaryRoundTrip(RegionFixture fixture) throws IOException {
+        String binFile = BinaryDataset.getFile(fixture.root, ".bench");
+        BinaryDataset.write(fixture.data, binFile, fixture.config.getLoadThreads());
+        return BinaryDataset.read(binFile, fixture.config.getLoadThreads());
+    }
+}
@@ -0,0 +1,65 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package IBDMUT;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mask lookups: whether each marker is in the mask, and the overlap of each
+ * segment with the mask.
+ *
+ * @author Pier Palamara
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MaskBenchmark {
+
+    @Benchmark
+    public int containsAllMarkers(RegionFixture fixture) {
+        MarkerIndex markers = fixture.data.getMarkers();
+        int inMask = 0;
+        for (int i = 0; i < markers.size(); i++) {
+            if (fixture.mask.contains(markers.getPhysPos(i))) {
+                inMask++;
+            }
+        }
+        return inMask;
+    }
+
+    @Benchmark
+    public long overlapOfAllSegments(RegionFixture fixture) {
+        MarkerIndex markers = fixture.data.getMarkers();
+        SegmentTable table = fixture.segmentTable;
+        long overlap = 0;
+        for (int s = 0; s < table.size(); s++) {
+            overlap += fixture.mask.getMaskOverlapWithRegion(markers.getPhysPos(table.getFrom(s)), markers.getPhysPos(table.getTo(s)));
+        }
+        return overlap;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPInputStream;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A synthetic region written by BenchmarkFixtures, with its dataset, segment
+ * table and counts loaded once per trial.
+ *
+ * @author Pier Palamara
+ */
+@State(Scope.Benchmark)
+public class RegionFixture {
+
+    @Param({"100", "500"})
+    public int samples;
+
+    @Param({"5000", "20000"})
+    public int markers;
+
+    @Param({"2000", "20000"})
+    public int segments;
+
+    File dir;
+    String root;
+    String matchFile;
+    String maskFile;
+    String demographyFile;
+    AnalysisConfig config;
+    Dataset data;
+    SegmentTable segmentTable;
+    Mask mask;
+    // the dataset and segment table of the region, so that counting it does not load them
+    RegionCache cache;
+    ArrayList<Integer> maxVarCountList = new ArrayList<Integer>();
+    // the counts of the region
+    TreeMap<String, Results> results;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Tools.makeQuiet();
+        dir = Files.createTempDirectory("ibdmut-bench").toFile();
+        root = BenchmarkFixtures.writeRegion(dir, "region", samples, markers, segments, 1);
+        matchFile = root + ".match.gz";
+        maskFile = BenchmarkFixtures.writeMask(dir, "mask", 100, 1);
+        demographyFile = BenchmarkFixtures.writeDemography(dir, "constant", 10000);
+        config = new AnalysisConfig.Builder().addRegion(root, matchFile).addMask(maskFile).setDemographyFile(demographyFile)
+                .setSegmentTables(true).build();
+        maxVarCountList.add(EstimateMutationRateFromIBD.largeValue);
+
+        data = new DataLoader(config, root).call();
+        BufferedReader br = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(matchFile))));
+        segmentTable = SegmentTable.build(br, data.getMarkers());
+        br.close();
+        mask = new Mask(maskFile, BenchmarkFixtures.chr);
+        cache = new RegionCache();
+        String datasetKey = RegionCache.getDatasetKey(config, root);
+        cache.putDataset(datasetKey, data);
+        cache.putSegmentTable(datasetKey, matchFile, segmentTable);
+        results = countRegion();
+    }
+
+    /**
+     * @return the counts of the region, for all masks and MaAF values
+     */
+    TreeMap<String, Results> countRegion() throws Exception {
+        PedMatchProcessor processor = new PedMatchProcessor(config, root, matchFile, maxVarCountList, null,
+                new TreeMap<String, Pair<String, String>>(), null, new Semaphore(1), 1);
+        processor.setCache(cache);
+        return processor.call();
+    }
+
+    /**
+     * @return the counts of the region for the mask, without MaAF threshold
+     */
+    Results getMaskResults() {
+        return results.get(maskFile + "\t" + EstimateMutationRateFromIBD.largeValue);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFixtures.delete(dir);
+    }
+}
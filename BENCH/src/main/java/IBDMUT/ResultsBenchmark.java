@@ -0,0 +1,56 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package IBDMUT;
+
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Histograms and merges of the counts of a region, as done for each region
+ * left out by the jackknife.
+ *
+ * @author Pier Palamara
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResultsBenchmark {
+
+    @Benchmark
+    public TreeMap<Double, BasePairsAndHets> getCumulativeHistogram(RegionFixture fixture) {
+        return fixture.getMaskResults().getCumulativeHistogram();
+    }
+
+    @Benchmark
+    public Results mergeResults(RegionFixture fixture) throws Exception {
+        Results counts = fixture.getMaskResults();
+        Results merged = new Results(counts.getMaskName(), counts.getMaxCount(), fixture.config.getRoundTo());
+        merged.mergeResults(counts);
+        return merged;
+    }
+}
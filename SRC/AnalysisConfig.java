@@ -0,0 +1,938 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The settings of one analysis: the regions and masks to analyze and all
+ * options of the command line. A configuration is immutable, so analyses with
+ * different settings can run at the same time in one JVM. It is created with
+ * a Builder, or parsed from command line arguments.
+ *
+ * @author Pier Palamara
+ */
+public final class AnalysisConfig {
+
+    public static final double defaultRoundTo = 10.0;
+
+    private final List<String> pedFiles;
+    private final List<String> matchFiles;
+    private final List<String> maskFiles;
+    private final String excludeFile;
+    private final String demographyFile;
+    private final String trinucleotideContextFile;
+    private final boolean trinucleotideNoDirection;
+    private final String onlyIncludeSNPsFile;
+    private final String tMRCAWeightsFile;
+    private final boolean weightedTMRCARegression;
+    private final int weightMinObs;
+    private final String regionBoundariesFile;
+    private final double minimumLength;
+    private final double maximumLength;
+    private final double minLen;
+    private final double offsetCM;
+    private final int maxVarCountMin;
+    private final int maxVarCountInterval;
+    private final int maxVarCountMax;
+    private final boolean maxCountRangeRegression;
+    private final boolean jackknife;
+    private final boolean cumulative;
+    private final boolean cumulativeMaAFRegression;
+    private final double roundTo;
+    private final boolean usePosteriors;
+    private final double posteriorFrom;
+    private final double posteriorTo;
+    private final boolean storePosterior;
+    private final boolean printMutMatch;
+    private final boolean writeMutMatch;
+    private final String saveBinSuffix;
+    private final String loadBinSuffix;
+    private final int threads;
+    private final int loadThreads;
+    private final long memoryBudgetMB;
+    private final String cacheDir;
+    private final long cacheSizeMB;
+    private final boolean segmentTables;
+    private final boolean printRegression;
+    private final boolean printJackknife;
+    private final boolean entertainUser;
+    private final String logFile;
+    private final String emitPartialFile;
+    private final List<String> partialFiles;
+
+    private AnalysisConfig(Builder builder) {
+        pedFiles = Collections.unmodifiableList(new ArrayList<String>(builder.pedFiles));
+        matchFiles = Collections.unmodifiableList(new ArrayList<String>(builder.matchFiles));
+        ArrayList<String> masks = new ArrayList<String>(builder.maskFiles);
+        if (masks.isEmpty()) {
+            // the whole region
+            masks.add("");
+        }
+        maskFiles = Collections.unmodifiableList(masks);
+        excludeFile = builder.excludeFile;
+        demographyFile = builder.demographyFile;
+        trinucleotideContextFile = builder.trinucleotideContextFile;
+        trinucleotideNoDirection = builder.trinucleotideNoDirection;
+        onlyIncludeSNPsFile = builder.onlyIncludeSNPsFile;
+        tMRCAWeightsFile = builder.tMRCAWeightsFile;
+        weightedTMRCARegression = builder.weightedTMRCARegression;
+        weightMinObs = builder.weightMinObs;
+        regionBoundariesFile = builder.regionBoundariesFile;
+        minimumLength = builder.minimumLength;
+        maximumLength = builder.maximumLength;
+        minLen = builder.minLen;
+        offsetCM = builder.offsetCM;
+        maxVarCountMin = builder.maxVarCountMin;
+        maxVarCountInterval = builder.maxVarCountInterval;
+        maxVarCountMax = builder.maxVarCountMax;
+        maxCountRangeRegression = builder.maxCountRangeRegression;
+        jackknife = builder.jackknife;
+        cumulative = builder.cumulative;
+        cumulativeMaAFRegression = builder.cumulativeMaAFRegression;
+        roundTo = builder.roundTo;
+        usePosteriors = builder.usePosteriors;
+        posteriorFrom = builder.posteriorFrom;
+        posteriorTo = builder.posteriorTo;
+        storePosterior = builder.storePosterior;
+        printMutMatch = builder.printMutMatch;
+        writeMutMatch = builder.writeMutMatch;
+        saveBinSuffix = builder.saveBinSuffix;
+        loadBinSuffix = builder.loadBinSuffix;
+        threads = builder.threads;
+        loadThreads = builder.loadThreads;
+        memoryBudgetMB = builder.memoryBudgetMB;
+        cacheDir = builder.cacheDir;
+        cacheSizeMB = builder.cacheSizeMB;
+        segmentTables = builder.segmentTables;
+        printRegression = builder.printRegression;
+        printJackknife = builder.printJackknife;
+        entertainUser = builder.entertainUser;
+        logFile = builder.logFile;
+        emitPartialFile = builder.emitPartialFile;
+        partialFiles = Collections.unmodifiableList(new ArrayList<String>(builder.partialFiles));
+    }
+
+    /**
+     * Sets up an analysis. Only the regions and the demography are required;
+     * everything else defaults as on the command line.
+     */
+    public static class Builder {
+
+        private final ArrayList<String> pedFiles = new ArrayList<String>();
+        private final ArrayList<String> matchFiles = new ArrayList<String>();
+        private final ArrayList<String> maskFiles = new ArrayList<String>();
+        private String excludeFile = "";
+        private String demographyFile = "";
+        private String trinucleotideContextFile = "";
+        private boolean trinucleotideNoDirection = true;
+        private String onlyIncludeSNPsFile = "";
+        private String tMRCAWeightsFile = "";
+        private boolean weightedTMRCARegression = false;
+        private int weightMinObs = 5;
+        private String regionBoundariesFile = "";
+        private double minimumLength = 2.0;
+        private double maximumLength = 5.0;
+        private double minLen = 0.0;
+        private double offsetCM = 0.0;
+        private int maxVarCountMin = EstimateMutationRateFromIBD.largeValue;
+        private int maxVarCountInterval = EstimateMutationRateFromIBD.largeValue;
+        private int maxVarCountMax = EstimateMutationRateFromIBD.largeValue;
+        private boolean maxCountRangeRegression = false;
+        private boolean jackknife = false;
+        private boolean cumulative = true;
+        private boolean cumulativeMaAFRegression = true;
+        private double roundTo = defaultRoundTo;
+        private boolean usePosteriors = false;
+        private double posteriorFrom = 0.0;
+        private double posteriorTo = 0.0;
+        private boolean storePosterior = false;
+        private boolean printMutMatch = false;
+        private boolean writeMutMatch = false;
+        private String saveBinSuffix = null;
+        private String loadBinSuffix = null;
+        private int threads = 1;
+        private int loadThreads = 1;
+        private long memoryBudgetMB = 0;
+        private String cacheDir = null;
+        private long cacheSizeMB = 20000;
+        private boolean segmentTables = false;
+        private boolean printRegression = false;
+        private boolean printJackknife = false;
+        private boolean entertainUser = false;
+        private String logFile = "";
+        private String emitPartialFile = "";
+        private final ArrayList<String> partialFiles = new ArrayList<String>();
+
+        /**
+         * Adds a region: the root of its .ped.gz, .map and .frq files, and
+         * its match file.
+         */
+        public Builder addRegion(String pedFile, String matchFile) {
+            pedFiles.add(pedFile);
+            matchFiles.add(matchFile);
+            return this;
+        }
+
+        /**
+         * Adds a mask; without masks, the whole of each region is analyzed.
+         */
+        public Builder addMask(String maskFile) {
+            maskFiles.add(maskFile);
+            return this;
+        }
+
+        public Builder setExcludeFile(String file) {
+            excludeFile = file;
+            return this;
+        }
+
+        public Builder setDemographyFile(String file) {
+            demographyFile = file;
+            return this;
+        }
+
+        public Builder setTrinucleotideContextFile(String file) {
+            trinucleotideContextFile = file;
+            return this;
+        }
+
+        public Builder setDirectionalTrinucleotides(boolean value) {
+            trinucleotideNoDirection = !value;
+            return this;
+        }
+
+        public Builder setOnlyIncludeSNPsFile(String file) {
+            onlyIncludeSNPsFile = file;
+            return this;
+        }
+
+        /**
+         * Uses the tMRCA regression weights in file, which implies a weighted
+         * tMRCA regression.
+         */
+        public Builder setTMRCAWeightsFile(String file) {
+            tMRCAWeightsFile = file;
+            weightedTMRCARegression = true;
+            return this;
+        }
+
+        public Builder setWeightedTMRCARegression(boolean value) {
+            weightedTMRCARegression = value;
+            return this;
+        }
+
+        public Builder setWeightMinObs(int value) {
+            weightMinObs = value;
+            return this;
+        }
+
+        /**
+         * Computes heterozygosity within the region boundaries listed in file.
+         */
+        public Builder setRegionBoundariesFile(String file) {
+            regionBoundariesFile = file;
+            return this;
+        }
+
+        public Builder setMinimumLength(double value) {
+            minimumLength = value;
+            return this;
+        }
+
+        /**
+         * Sets the range of lengths used in the regression, and skips
+         * segments shorter than minimumLength.
+         */
+        public Builder setLengthRange(double minimumLength, double maximumLength) {
+            this.minimumLength = minimumLength;
+            this.minLen = minimumLength;
+            this.maximumLength = maximumLength;
+            return this;
+        }
+
+        public Builder setOffsetCM(double value) {
+            offsetCM = value;
+            return this;
+        }
+
+        public Builder setMaAF(int maxCount) {
+            maxVarCountMin = maxCount;
+            maxVarCountInterval = maxCount;
+            maxVarCountMax = maxCount;
+            maxCountRangeRegression = false;
+            return this;
+        }
+
+        public Builder setMaAFRegression(int from, int interval, int to) {
+            maxVarCountMin = from;
+            maxVarCountInterval = interval;
+            maxVarCountMax = to;
+            maxCountRangeRegression = true;
+            return this;
+        }
+
+        public Builder setJackknife(boolean value) {
+            jackknife = value;
+            return this;
+        }
+
+        public Builder setCumulative(boolean value) {
+            cumulative = value;
+            return this;
+        }
+
+        public Builder setCumulativeMaAF(boolean value) {
+            cumulativeMaAFRegression = value;
+            return this;
+        }
+
+        public Builder setRoundTo(double value) {
+            roundTo = value;
+            return this;
+        }
+
+        public Builder setPosteriorRange(double from, double to) {
+            usePosteriors = true;
+            posteriorFrom = from;
+            posteriorTo = to;
+            return this;
+        }
+
+        public Builder setStorePosteriors(boolean value) {
+            storePosterior = value;
+            return this;
+        }
+
+        public Builder setPrintMutMatch(boolean value) {
+            printMutMatch = value;
+            return this;
+        }
+
+        public Builder setWriteMutMatch(boolean value) {
+            writeMutMatch = value;
+            return this;
+        }
+
+        public Builder setSaveBinSuffix(String suffix) {
+            saveBinSuffix = suffix;
+            return this;
+        }
+
+        public Builder setLoadBinSuffix(String suffix) {
+            loadBinSuffix = suffix;
+            return this;
+        }
+
+        public Builder setThreads(int value) {
+            threads = value;
+            return this;
+        }
+
+        public Builder setLoadThreads(int value) {
+            loadThreads = value;
+            return this;
+        }
+
+        /**
+         * Limits the estimated memory of datasets loaded at the same time; 0
+         * uses 80% of the maximum heap.
+         */
+        public Builder setMemoryBudgetMB(long value) {
+            memoryBudgetMB = value;
+            return this;
+        }
+
+        /**
+         * Stores the binary file of each loaded dataset in dir, read instead
+         * of its ped.gz file while the input files and loading options are
+         * unchanged.
+         */
+        public Builder setCacheDir(String dir) {
+            cacheDir = dir;
+            return this;
+        }
+
+        /**
+         * Limits the size of the cache directory, evicting the least
+         * recently used datasets.
+         */
+        public Builder setCacheSizeMB(long value) {
+            cacheSizeMB = value;
+            return this;
+        }
+
+        public Builder setSegmentTables(boolean value) {
+            segmentTables = value;
+            return this;
+        }
+
+        public Builder setPrintRegression(boolean value) {
+            printRegression = value;
+            return this;
+        }
+
+        public Builder setPrintJackknife(boolean value) {
+            printJackknife = value;
+            return this;
+        }
+
+        public Builder setEntertainUser(boolean value) {
+            entertainUser = value;
+            return this;
+        }
+
+        public Builder setLogFile(String file) {
+            logFile = file;
+            return this;
+        }
+
+        /**
+         * Counts the regions and writes their results to file, to be merged
+         * with those of other regions, instead of estimating rates.
+         */
+        public Builder setEmitPartialFile(String file) {
+            emitPartialFile = file;
+            return this;
+        }
+
+        /**
+         * Estimates rates from the regions of a file written with
+         * setEmitPartialFile(), instead of counting regions. Regions are
+         * analyzed in the order of the files.
+         */
+        public Builder addPartialFile(String file) {
+            partialFiles.add(file);
+            return this;
+        }
+
+        public AnalysisConfig build() {
+            if (!partialFiles.isEmpty()) {
+                if (!pedFiles.isEmpty()) {
+                    throw new IllegalStateException("The regions of merged partial results cannot be given again.");
+                }
+                if (!"".equals(emitPartialFile)) {
+                    throw new IllegalStateException("Cannot both merge and emit partial results.");
+                }
+            } else if (pedFiles.isEmpty()) {
+                throw new IllegalStateException("No region to analyze.");
+            }
+            if ("".equals(demographyFile) && "".equals(emitPartialFile)) {
+                throw new IllegalStateException("Did not specify a demography.");
+            }
+            if (cacheDir != null && loadBinSuffix != null) {
+                throw new IllegalStateException("Cannot use both --cacheDir and --loadBin.");
+            }
+            if (cacheSizeMB <= 0) {
+                throw new IllegalStateException("The size of the cache must be positive.");
+            }
+            // the number of regions of partial results is only known once they are read
+            if (pedFiles.size() < 2 && jackknife && partialFiles.isEmpty() && "".equals(emitPartialFile)) {
+                throw new IllegalStateException("Trying to run Jackknife with one region.");
+            }
+            return new AnalysisConfig(this);
+        }
+    }
+
+    /**
+     * @return the configuration given by command line arguments; prints the
+     * help and exits if they are not valid
+     */
+    public static AnalysisConfig parse(String[] args) throws IOException {
+        Builder builder = new Builder();
+        String pedFile = "", listFile = "", matchFile = "", maskFile = "", maskListFile = "", partialListFile = "";
+        boolean useMask = false;
+        boolean useMaskList = false;
+        boolean useMaxCount = false;
+        boolean useMaxCountRangeRegression = false;
+
+        int argIndex = 0;
+        while (argIndex < args.length) {
+            String arg = args[argIndex++];
+            if (arg.equals("--plink")) {
+                pedFile = args[argIndex];
+                argIndex++;
+            } else if (arg.equals("--printMutMatch")) {
+                builder.setPrintMutMatch(true);
+            } else if (arg.equals("--printRegression")) {
+                builder.setPrintRegression(true);
+            } else if (arg.equals("--weightedTMRCARegression")) {
+                builder.setWeightedTMRCARegression(true);
+            } else if (arg.equals("--printJackknife")) {
+                builder.setPrintJackknife(true);
+            } else if (arg.equals("--writeMutMatch")) {
+                builder.setWriteMutMatch(true);
+            } else if (arg.equals("--segmentTables")) {
+                builder.setSegmentTables(true);
+            } else if (arg.equals("--noCumulativeMaAF")) {
+                builder.setCumulativeMaAF(false);
+            } else if (arg.equals("--directionalTrinucleotides")) {
+                builder.setDirectionalTrinucleotides(true);
+            } else if (arg.equals("--trinucleotideContext")) {
+                builder.setTrinucleotideContextFile(args[argIndex]);
+                argIndex++;
+            } else if (arg.equals("--saveBin")) {
+                builder.setSaveBinSuffix(args[argIndex]);
+                argIndex++;
+            } else if (arg.equals("--loadBin")) {
+                builder.setLoadBinSuffix(args[argIndex]);
+                argIndex++;
+            } else if (arg.equals("--plinkList")) {
+                listFile = args[argIndex];
+                argIndex++;
+            } else if (arg.equals("--quiet")) {
+                // the console is shared by all analyses of the process
+                Tools.makeQuiet();
+            } else if (arg.equals("--threads")) {
+                builder.setThreads(Integer.parseInt(args[argIndex]));
+                argIndex++;
+            } else if (arg.equals("--memoryBudget")) {
+                builder.setMemoryBudgetMB(Long.parseLong(args[argIndex]));
+                argIndex++;
+            } else if (arg.equals("--cacheDir")) {
+                builder.setCacheDir(args[argIndex]);
+                argIndex++;
+            } else if (arg.equals("--cacheSize")) {
+                builder.setCacheSizeMB(Long.parseLong(args[argIndex]));
+                argIndex++;
+            } else if (arg.equals("--loadThreads")) {
+                builder.setLoadThreads(Integer.parseInt(args[argIndex]));
+                argIndex++;
+            } else if (arg.equals("--weightMinObs")) {
+                builder.setWeightMinObs(Integer.parseInt(args[argIndex]));
+                argIndex++;
+            } else if (arg.equals("--MaAF")) {
+                if (useMaxCountRangeRegression) {
+                    Tools.printHelpAndExit("Cannot use both --maxCountRangeRegression and --maxCount");
+                }
+                useMaxCount = true;
+                builder.setMaAF(Integer.parseInt(args[argIndex]));
+                argIndex++;
+            } else if (arg.equals("--MaAFRegression")) {
+                if (useMaxCount) {
+                    Tools.printHelpAndExit("Cannot use both --maxCountRangeRegression and --maxCount");
+                }
+                useMaxCountRangeRegression = true;
+                builder.setMaAFRegression(Integer.parseInt(args[argIndex]), Integer.parseInt(args[argIndex + 1]), Integer.parseInt(args[argIndex + 2]));
+                argIndex += 3;
+            } else if (arg.equals("--match")) {
+                matchFile = args[argIndex];
+                argIndex++;
+            } else if (arg.equals("--offsetCM")) {
+                builder.setOffsetCM(Double.parseDouble(args[argIndex]));
+                argIndex++;
+            } else if (arg.equals("--roundTo")) {
+                builder.setRoundTo(Double.parseDouble(args[argIndex]));
+                argIndex++;
+            } else if (arg.equals("--mask")) {
+                useMask = true;
+                maskFile = args[argIndex];
+                argIndex++;
+            } else if (arg.equals("--demography")) {
+                builder.setDemographyFile(args[argIndex]);
+                argIndex++;
+            } else if (arg.equals("--exclude")) {
+                builder.setExcludeFile(args[argIndex]);
+                argIndex++;
+            } else if (arg.equals("--setTMRCAWeights")) {
+                builder.setTMRCAWeightsFile(args[argIndex]);
+                argIndex++;
+            } else if (arg.equals("--onlyIncludeSNPs")) {
+                builder.setOnlyIncludeSNPsFile(args[argIndex]);
+                argIndex++;
+            } else if (arg.equals("--log")) {
+                builder.setLogFile(args[argIndex]);
+                argIndex++;
+            } else if (arg.equals("--maskList")) {
+                useMaskList = true;
+                maskListFile = args[argIndex];
+                argIndex++;
+            } else if (arg.equals("--storePosteriors")) {
+                builder.setStorePosteriors(true);
+            } else if (arg.equals("--nonOverlappingIntervals")) {
+                builder.setStorePosteriors(true);
+            } else if (arg.equals("--entertainUser")) {
+                builder.setEntertainUser(true);
+            } else if (arg.equals("--computeHeterozygosity")) {
+                builder.setRegionBoundariesFile(args[argIndex]);
+                argIndex++;
+            } else if (arg.equals("--minLength")) {
+                builder.setMinimumLength(Double.parseDouble(args[argIndex]));
+                argIndex++;
+            } else if (arg.equals("--lenRange")) {
+                builder.setLengthRange(Double.parseDouble(args[argIndex]), Double.parseDouble(args[argIndex + 1]));
+                argIndex += 2;
+            } else if (arg.equals("--posteriorRange")) {
+                builder.setPosteriorRange(Double.parseDouble(args[argIndex]), Double.parseDouble(args[argIndex + 1]));
+                argIndex += 2;
+            } else if (arg.equals("--jackknife")) {
+                builder.setJackknife(true);
+            } else if (arg.equals("--noCumulative")) {
+                builder.setCumulative(false);
+            } else if (arg.equals("--emitPartial")) {
+                builder.setEmitPartialFile(args[argIndex]);
+                argIndex++;
+            } else if (arg.equals("--mergePartials")) {
+                partialListFile = args[argIndex];
+                argIndex++;
+            } else {
+                Tools.printHelpAndExit("Unsupported argument " + arg + ".");
+            }
+        }
+
+        boolean mergePartials = partialListFile.compareToIgnoreCase("") != 0;
+        boolean emitPartial = !"".equals(builder.emitPartialFile);
+        if (mergePartials && (pedFile.compareToIgnoreCase("") != 0 || listFile.compareToIgnoreCase("") != 0)) {
+            Tools.printHelpAndExit("--mergePartials takes the regions of the partial results, do not use --plink or --plinkList.");
+        }
+        if (mergePartials && emitPartial) {
+            Tools.printHelpAndExit("--emitPartial and --mergePartials should not be used together");
+        }
+        if (!mergePartials && pedFile.compareToIgnoreCase("") == 0 && matchFile.compareToIgnoreCase("") == 0 && listFile.compareToIgnoreCase("") == 0) {
+            Tools.printHelpAndExit("Both --plink/--match and --plinkList (or neither) were used.");
+        }
+        if ("".equals(builder.demographyFile) && !emitPartial) {
+            Tools.printHelpAndExit("Did not specify a demography.");
+        }
+
+        if (mergePartials) {
+            BufferedReader br = null;
+            try {
+                br = new BufferedReader(new FileReader(partialListFile));
+            } catch (FileNotFoundException ex) {
+                Tools.exit("Could not open partial results list file " + partialListFile);
+            }
+            String line = br.readLine();
+            while (line != null) {
+                if (line.trim().length() > 0) {
+                    builder.addPartialFile(line.trim());
+                }
+                line = br.readLine();
+            }
+            br.close();
+            if (builder.partialFiles.isEmpty()) {
+                Tools.exit("No partial results file in " + partialListFile);
+            }
+        } else if (pedFile.compareToIgnoreCase("") != 0) {
+            builder.addRegion(pedFile, matchFile);
+        } else if (listFile.compareToIgnoreCase("") != 0) {
+            BufferedReader br = null;
+            try {
+                br = new BufferedReader(new FileReader(listFile));
+            } catch (FileNotFoundException ex) {
+                Tools.exit("Could not open list file " + listFile);
+            }
+            String line = br.readLine();
+            while (line != null) {
+                String[] files = line.split("\\s+");
+                builder.addRegion(files[0], files[1]);
+                line = br.readLine();
+            }
+        } else {
+            Tools.printHelpAndExit("Did not set ped file or list.");
+        }
+
+        if (builder.pedFiles.size() < 2 && builder.jackknife && !mergePartials && !emitPartial) {
+            Tools.exit("Trying to run Jackknife with one region.");
+        }
+
+        if (useMaskList && useMask) {
+            Tools.printHelpAndExit("--mask and --maskList should not be used together");
+        }
+        if (useMask) {
+            builder.addMask(maskFile);
+        }
+        if (useMaskList) {
+            Tools.printProgress("Reading mask list file " + maskListFile);
+            BufferedReader br = null;
+            Tools.printVerboseProgressLevel1("Reading mask list file " + maskListFile);
+            try {
+                br = new BufferedReader(new FileReader(maskListFile));
+            } catch (FileNotFoundException ex) {
+                Tools.exit("Could not open mask list file " + maskListFile);
+            }
+            try {
+                String line = br.readLine();
+                int cnt = 0;
+                while (line != null) {
+                    cnt++;
+                    builder.addMask(line);
+                    line = br.readLine();
+                }
+                Tools.printVerboseProgressLevel1("Read " + cnt + " mask files.");
+            } catch (IOException ex) {
+                Tools.exit("Could not read mask list file " + maskListFile);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the roots of the .ped.gz, .map and .frq files of each region
+     */
+    public List<String> getPedFiles() {
+        return pedFiles;
+    }
+
+    /**
+     * @return the match file of each region
+     */
+    public List<String> getMatchFiles() {
+        return matchFiles;
+    }
+
+    /**
+     * @return the masks, "" for the whole region
+     */
+    public List<String> getMaskFiles() {
+        return maskFiles;
+    }
+
+    public boolean useExcludeMask() {
+        return !"".equals(excludeFile);
+    }
+
+    public String getExcludeFile() {
+        return excludeFile;
+    }
+
+    public String getDemographyFile() {
+        return demographyFile;
+    }
+
+    public boolean useTrinucleotideContext() {
+        return !"".equals(trinucleotideContextFile);
+    }
+
+    public String getTrinucleotideContextFile() {
+        return trinucleotideContextFile;
+    }
+
+    public boolean isTrinucleotideNoDirection() {
+        return trinucleotideNoDirection;
+    }
+
+    public boolean useOnlyIncludeSNPs() {
+        return !"".equals(onlyIncludeSNPsFile);
+    }
+
+    public String getOnlyIncludeSNPsFile() {
+        return onlyIncludeSNPsFile;
+    }
+
+    public String getTMRCAWeightsFile() {
+        return tMRCAWeightsFile;
+    }
+
+    public boolean isWeightedTMRCARegression() {
+        return weightedTMRCARegression;
+    }
+
+    public int getWeightMinObs() {
+        return weightMinObs;
+    }
+
+    public boolean computeHeterozygosity() {
+        return !"".equals(regionBoundariesFile);
+    }
+
+    public String getRegionBoundariesFile() {
+        return regionBoundariesFile;
+    }
+
+    public double getMinimumLength() {
+        return minimumLength;
+    }
+
+    public double getMaximumLength() {
+        return maximumLength;
+    }
+
+    /**
+     * @return the length of the shortest segment analyzed
+     */
+    public double getMinLen() {
+        return minLen;
+    }
+
+    public double getOffsetCM() {
+        return offsetCM;
+    }
+
+    public int getMaxVarCountMin() {
+        return maxVarCountMin;
+    }
+
+    public int getMaxVarCountInterval() {
+        return maxVarCountInterval;
+    }
+
+    public int getMaxVarCountMax() {
+        return maxVarCountMax;
+    }
+
+    public boolean isMaxCountRangeRegression() {
+        return maxCountRangeRegression;
+    }
+
+    public boolean isJackknife() {
+        return jackknife;
+    }
+
+    public boolean isCumulative() {
+        return cumulative;
+    }
+
+    public boolean isCumulativeMaAFRegression() {
+        return cumulativeMaAFRegression;
+    }
+
+    public double getRoundTo() {
+        return roundTo;
+    }
+
+    public boolean usePosteriors() {
+        return usePosteriors;
+    }
+
+    public double getPosteriorFrom() {
+        return posteriorFrom;
+    }
+
+    public double getPosteriorTo() {
+        return posteriorTo;
+    }
+
+    public boolean isStorePosterior() {
+        return storePosterior;
+    }
+
+    public boolean isPrintMutMatch() {
+        return printMutMatch;
+    }
+
+    public boolean isWriteMutMatch() {
+        return writeMutMatch;
+    }
+
+    public boolean isSaveBin() {
+        return saveBinSuffix != null;
+    }
+
+    public String getSaveBinSuffix() {
+        return saveBinSuffix;
+    }
+
+    public boolean isLoadBin() {
+        return loadBinSuffix != null;
+    }
+
+    public String getLoadBinSuffix() {
+        return loadBinSuffix;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getLoadThreads() {
+        return loadThreads;
+    }
+
+    /**
+     * @return the memory budget in MB, 0 for 80% of the maximum heap
+     */
+    public long getMemoryBudgetMB() {
+        return memoryBudgetMB;
+    }
+
+    public boolean useCache() {
+        return cacheDir != null;
+    }
+
+    public String getCacheDir() {
+        return cacheDir;
+    }
+
+    /**
+     * @return the size limit of the cache directory in MB
+     */
+    public long getCacheSizeMB() {
+        return cacheSizeMB;
+    }
+
+    public boolean useSegmentTables() {
+        return segmentTables;
+    }
+
+    public boolean isPrintRegression() {
+        return printRegression;
+    }
+
+    public boolean isPrintJackknife() {
+        return printJackknife;
+    }
+
+    public boolean isEntertainUser() {
+        return entertainUser;
+    }
+
+    public boolean isLogOn() {
+        return !"".equals(logFile);
+    }
+
+    public String getLogFile() {
+        return logFile;
+    }
+
+    /**
+     * @return whether regions are counted and written to a partial results
+     * file instead of estimating rates
+     */
+    public boolean isEmitPartial() {
+        return !"".equals(emitPartialFile);
+    }
+
+    public String getEmitPartialFile() {
+        return emitPartialFile;
+    }
+
+    /**
+     * @return whether rates are estimated from partial results files instead
+     * of counting regions
+     */
+    public boolean isMergePartials() {
+        return !partialFiles.isEmpty();
+    }
+
+    /**
+     * @return the partial results files to merge, in the order their regions
+     * are analyzed
+     */
+    public List<String> getPartialFiles() {
+        return partialFiles;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events of each stage of an analysis, so that a
+ * recording of a run (e.g. java -XX:StartFlightRecording=filename=run.jfr
+ * ...) shows where its time goes. Events are created and committed on the
+ * thread doing the work; they cost next to nothing when no recording is on.
+ *
+ * @author Pier Palamara
+ */
+final class AnalysisEvents {
+
+    private AnalysisEvents() {
+    }
+
+    @Name("IBDMUT.DatasetLoad")
+    @Label("Dataset Load")
+    @Category({"IBDMUT", "Loading"})
+    @Description("A region loaded from its ped.gz, map and frq files, or from a binary file")
+    @StackTrace(false)
+    static class DatasetLoad extends Event {
+
+        @Label("Region")
+        String region;
+
+        @Label("From Binary File")
+        boolean fromBinary;
+
+        @Label("Bytes")
+        @Description("Size of the compressed input read")
+        @DataAmount
+        long bytes;
+
+        @Label("Samples")
+        int samples;
+
+        @Label("Markers")
+        int markers;
+    }
+
+    @Name("IBDMUT.PedFileRead")
+    @Label("Ped File Read")
+    @Category({"IBDMUT", "Loading"})
+    @Description("The ped.gz and map files of a region parsed")
+    @StackTrace(false)
+    static class PedFileRead extends Event {
+
+        @Label("Region")
+        String region;
+
+        @Label("Bytes")
+        @Description("Size of the ped.gz file")
+        @DataAmount
+        long bytes;
+
+        @Label("Load Threads")
+        int loadThreads;
+
+        @Label("Samples")
+        int samples;
+
+        @Label("Markers")
+        int markers;
+    }
+
+    @Name("IBDMUT.FrequencyFileRead")
+    @Label("Frequency File Read")
+    @Category({"IBDMUT", "Loading"})
+    @StackTrace(false)
+    static class FrequencyFileRead extends Event {
+
+        @Label("File")
+        String file;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Markers")
+        int markers;
+    }
+
+    @Name("IBDMUT.MaskLoad")
+    @Label("Mask Load")
+    @Category({"IBDMUT", "Loading"})
+    @Description("The intervals of a bed file on one chromosome read")
+    @StackTrace(false)
+    static class MaskLoad extends Event {
+
+        @Label("Mask")
+        String mask;
+
+        @Label("Chromosome")
+        String chromosome;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Intervals")
+        int intervals;
+    }
+
+    @Name("IBDMUT.MatchProcessing")
+    @Label("Match Processing")
+    @Category({"IBDMUT", "Counting"})
+    @Description("One pass over the segments of a region, for up to 64 masks")
+    @StackTrace(false)
+    static class MatchProcessing extends Event {
+
+        @Label("Region")
+        String region;
+
+        @Label("Match File")
+        String matchFile;
+
+        @Label("Masks")
+        int masks;
+
+        @Label("From Segment Table")
+        boolean fromSegmentTable;
+
+        @Label("Bytes")
+        @Description("Size of the match file or of its segment table")
+        @DataAmount
+        long bytes;
+
+        @Label("Segments")
+        @Description("Segments that passed the length filters")
+        long segments;
+
+        @Label("Sites Scanned")
+        @Description("Sites of segments away from their edges, counted once per mask")
+        long sitesScanned;
+
+        @Label("Sites In Masks")
+        long sitesInMasks;
+
+        @Label("Discordant Sites")
+        @Description("Discordant sites in masks, summed over MaAF thresholds")
+        long discordant;
+    }
+
+    @Name("IBDMUT.Estimation")
+    @Label("Estimation")
+    @Category({"IBDMUT", "Estimation"})
+    @Description("Rates of a mask estimated from the counts of all regions, including the jackknife")
+    @StackTrace(false)
+    static class Estimation extends Event {
+
+        @Label("Mask")
+        String mask;
+
+        @Label("Regions")
+        int regions;
+
+        @Label("MaAF Thresholds")
+        int maafThresholds;
+
+        @Label("Jackknife")
+        boolean jackknife;
+    }
+}
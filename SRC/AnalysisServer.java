@@ -0,0 +1,214 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves analyses over HTTP on the loopback interface, keeping the datasets,
+ * segment tables and counts of regions in memory between requests, so that
+ * analyses that only change how rates are estimated (demography, length
+ * range, jackknife, ...) do not read any region again.
+ *
+ * POST /analyze takes a JSON object whose keys are command line options
+ * without the leading "--": true for flags, a string or number for options
+ * with one value, and an array for options with more, e.g.
+ * {"plinkList": "list.txt", "demography": "demo.txt", "jackknife": true,
+ * "MaAFRegression": [50, 50, 250]}. It returns the estimates of each mask.
+ * GET /status returns the number of cached items, and POST /clear drops
+ * them. Requests are handled one at a time.
+ *
+ * @author Pier Palamara
+ */
+public class AnalysisServer {
+
+    private final int port;
+    private final RegionCache cache = new RegionCache();
+    private HttpServer server;
+
+    public AnalysisServer(int port) {
+        this.port = port;
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/analyze", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                if (!"POST".equals(exchange.getRequestMethod())) {
+                    respond(exchange, 405, error("Use POST."));
+                    return;
+                }
+                analyze(exchange);
+            }
+        });
+        server.createContext("/status", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange, 200, status());
+            }
+        });
+        server.createContext("/clear", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                if (!"POST".equals(exchange.getRequestMethod())) {
+                    respond(exchange, 405, error("Use POST."));
+                    return;
+                }
+                cache.clear();
+                respond(exchange, 200, status());
+            }
+        });
+        // analyses share the cached datasets, so they must not overlap
+        server.setExecutor(Executors.newSingleThreadExecutor());
+        server.start();
+        Tools.printProgress("Listening on http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/");
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private void analyze(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try {
+            AnalysisConfig config = AnalysisConfig.parse(toArgs(Json.parse(readBody(exchange))));
+            ArrayList<MaskEstimates> estimates = new MutationRateAnalysis(config, cache).run();
+            respond(exchange, 200, toJson(estimates, (System.nanoTime() - start) / 1e9));
+        } catch (AnalysisException ex) {
+            respond(exchange, 400, error(ex.getMessage()));
+        } catch (IllegalArgumentException ex) {
+            respond(exchange, 400, error(ex.getMessage()));
+        } catch (IllegalStateException ex) {
+            respond(exchange, 400, error(ex.getMessage()));
+        } catch (IndexOutOfBoundsException ex) {
+            respond(exchange, 400, error("Missing value of an option."));
+        } catch (Exception ex) {
+            Throwable cause = (ex.getCause() != null) ? ex.getCause() : ex;
+            if (cause instanceof AnalysisException) {
+                respond(exchange, 400, error(cause.getMessage()));
+            } else {
+                Tools.warning("Analysis failed: " + cause);
+                respond(exchange, 500, error(cause.toString()));
+            }
+        }
+    }
+
+    /**
+     * @return the command line arguments given by the options of a request
+     */
+    static String[] toArgs(Object request) {
+        if (!(request instanceof Map)) {
+            throw new IllegalArgumentException("The request must be a JSON object of options.");
+        }
+        ArrayList<String> args = new ArrayList<String>();
+        for (Map.Entry<?, ?> option : ((Map<?, ?>) request).entrySet()) {
+            String name = (String) option.getKey();
+            Object value = option.getValue();
+            if (name.equals("quiet") || name.equals("server")) {
+                throw new IllegalArgumentException("Option " + name + " cannot be used in a request.");
+            }
+            if (value == null || Boolean.FALSE.equals(value)) {
+                continue;
+            }
+            args.add("--" + name);
+            if (value instanceof List) {
+                for (Object element : (List<?>) value) {
+                    args.add(String.valueOf(element));
+                }
+            } else if (!Boolean.TRUE.equals(value)) {
+                args.add(String.valueOf(value));
+            }
+        }
+        return args.toArray(new String[args.size()]);
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1 << 12];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            body.write(buffer, 0, read);
+        }
+        in.close();
+        return body.toString("UTF-8");
+    }
+
+    private static void respond(HttpExchange exchange, int code, String json) throws IOException {
+        byte[] bytes = json.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(code, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+
+    private static String error(String message) {
+        return "{\"error\": " + Json.quote(String.valueOf(message)) + "}\n";
+    }
+
+    private String status() {
+        return "{\"datasets\": " + cache.getNumDatasets() + ", \"segmentTables\": " + cache.getNumSegmentTables()
+                + ", \"results\": " + cache.getNumResults() + "}\n";
+    }
+
+    private static void appendEstimate(StringBuilder json, String name, Estimate estimate) {
+        if (estimate != null) {
+            json.append(", ").append(Json.quote(name)).append(": {\"value\": ").append(Json.number(estimate.getValue()))
+                    .append(", \"standardError\": ").append(Json.number(estimate.getStandardError())).append("}");
+        }
+    }
+
+    static String toJson(List<MaskEstimates> estimates, double seconds) {
+        StringBuilder json = new StringBuilder("{\"seconds\": ").append(seconds).append(", \"masks\": [");
+        for (int m = 0; m < estimates.size(); m++) {
+            MaskEstimates mask = estimates.get(m);
+            json.append((m > 0) ? ", " : "").append("{\"mask\": ").append(Json.quote(mask.getMaskFile()));
+            if (mask.getTsTv() != null) {
+                json.append(", \"tsTv\": ").append(Json.number(mask.getTsTv()));
+            }
+            appendEstimate(json, "mutationRate", mask.getMutationRate());
+            appendEstimate(json, "secondParameter", mask.getSecondParameter());
+            appendEstimate(json, "uncorrectedMutationRate", mask.getUncorrectedMutationRate());
+            appendEstimate(json, "uncorrectedMutationRateDifference", mask.getUncorrectedMutationRateDifference());
+            appendEstimate(json, "geneConversionRate", mask.getGeneConversionRate());
+            appendEstimate(json, "averageSegmentLength", mask.getAverageSegmentLength());
+            json.append(", \"lines\": [");
+            ArrayList<String> lines = mask.getLines();
+            for (int l = 0; l < lines.size(); l++) {
+                json.append((l > 0) ? ", " : "").append(Json.quote(lines.get(l)));
+            }
+            json.append("]}");
+        }
+        return json.append("]}\n").toString();
+    }
+}
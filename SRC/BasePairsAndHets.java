@@ -0,0 +1,50 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+/**
+ * Base pairs, heterozygous sites and mutation rate accumulated over the
+ * segments of a length bin.
+ *
+ * @author Pier Palamara
+ */
+class BasePairsAndHets {
+
+    double basePairs = 0;
+    int hets = 0;
+
+    int count = 0;
+    double mutRate = 0.0;
+
+    public BasePairsAndHets() {
+        this.hets = 0;
+        this.basePairs = 0;
+        this.mutRate = 0;
+        this.count = 0;
+    }
+
+    public BasePairsAndHets(int hets, double basePairs, int count, double mutRate) {
+        this.hets = hets;
+        this.basePairs = basePairs;
+        this.mutRate = mutRate;
+        this.count = count;
+    }
+
+}
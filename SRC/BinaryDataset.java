@@ -0,0 +1,520 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The binary file of a loaded dataset, written by --saveBin and read by
+ * --loadBin.
+ *
+ * After a magic number and a version, the file is a sequence of chunks, each
+ * compressed independently and stored with its uncompressed length,
+ * compressed length and CRC32, so that chunks are compressed and
+ * decompressed in parallel and corrupted files are detected. The first chunk
+ * holds the markers (IDs and primitive arrays of positions), the alleles, the
+ * frequencies, a table of the distinct strings of the samples (family,
+ * individual, parent, sex and phenotype IDs) and, for each haplotype, the
+ * indices of its strings. The other chunks hold the haplotypes in order, as
+ * raw words of alleles and observed sites followed by their posteriors.
+ * The masks and counters of analyses are not stored, as they are set when a
+ * region is analyzed.
+ *
+ * @author Pier Palamara
+ */
+class BinaryDataset {
+
+    private static final int magic = 0x49424442;
+    // part of the keys of DatasetCache, so that entries of other versions are not read
+    static final int version = 1;
+    // uncompressed bytes of the haplotypes of a chunk
+    private static final int chunkBytes = 1 << 23;
+    private static final int stringsPerHaplotype = 6;
+    // deflate compresses at most 1032:1
+    private static final int maxCompressionRatio = 1032;
+    private static final int maxArrayLength = Integer.MAX_VALUE - 8;
+
+    /**
+     * @return the binary file of a region saved with suffix
+     */
+    static String getFile(String pedFile, String suffix) {
+        return pedFile + suffix + ".bin";
+    }
+
+    /**
+     * A compressed chunk.
+     */
+    private static class Chunk {
+
+        byte[] compressed;
+        int rawLength;
+        long checksum;
+
+        static Chunk compress(byte[] raw, int length) {
+            Chunk chunk = new Chunk();
+            chunk.rawLength = length;
+            CRC32 crc = new CRC32();
+            crc.update(raw, 0, length);
+            chunk.checksum = crc.getValue();
+            // haplotype words are highly redundant, so the fastest level costs little in size
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            deflater.setInput(raw, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 4 + 64);
+            byte[] buffer = new byte[1 << 16];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            deflater.end();
+            chunk.compressed = out.toByteArray();
+            return chunk;
+        }
+
+        /**
+         * @return the uncompressed bytes of the chunk
+         * @throws IOException if they do not match the checksum
+         */
+        ByteBuffer decompress() throws IOException {
+            byte[] raw = new byte[rawLength];
+            Inflater inflater = new Inflater();
+            inflater.setInput(compressed);
+            try {
+                int length = 0;
+                while (length < rawLength) {
+                    int inflated = inflater.inflate(raw, length, rawLength - length);
+                    if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    length += inflated;
+                }
+                if (length != rawLength) {
+                    throw new IOException("truncated chunk");
+                }
+            } catch (DataFormatException ex) {
+                throw new IOException("corrupted chunk");
+            } finally {
+                inflater.end();
+            }
+            CRC32 crc = new CRC32();
+            crc.update(raw);
+            if (crc.getValue() != checksum) {
+                throw new IOException("checksum mismatch");
+            }
+            return ByteBuffer.wrap(raw);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(rawLength);
+            out.writeInt(compressed.length);
+            out.writeLong(checksum);
+            out.write(compressed);
+        }
+
+        /**
+         * @param fileLength the length of the file, which bounds the
+         * compressed length of the chunk
+         */
+        static Chunk read(DataInputStream in, long fileLength) throws IOException {
+            Chunk chunk = new Chunk();
+            chunk.rawLength = in.readInt();
+            int compressedLength = in.readInt();
+            chunk.checksum = in.readLong();
+            if (compressedLength < 0 || compressedLength > fileLength || chunk.rawLength < 0
+                    || chunk.rawLength > Math.min(maxArrayLength, (long) maxCompressionRatio * compressedLength + 64)) {
+                throw new IOException("corrupted chunk");
+            }
+            chunk.compressed = new byte[compressedLength];
+            in.readFully(chunk.compressed);
+            return chunk;
+        }
+    }
+
+    /**
+     * Writes data to file, using threads to compress chunks. It is written to
+     * a temporary file (ending in .tmp) first, so that an interrupted write
+     * never leaves a partial file.
+     */
+    public static void write(Dataset data, String file, int threads) throws IOException {
+        ArrayList<Individual> haplotypes = new ArrayList<Individual>(data.getIndividuals().values());
+        int numWords = 0;
+        for (Individual haplotype : haplotypes) {
+            numWords = Math.max(numWords, Math.max(haplotype.getBitWords().length, haplotype.getMaskWords().length));
+        }
+        int haplotypesPerChunk = Math.max(1, chunkBytes / (16 * numWords + 4));
+        int numChunks = (haplotypes.size() + haplotypesPerChunk - 1) / haplotypesPerChunk;
+
+        File binFile = new File(file).getAbsoluteFile();
+        // unique, so that processes writing the same file do not share it
+        File tmpFile = File.createTempFile(binFile.getName() + ".", ".tmp", binFile.getParentFile());
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 1 << 20));
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            out.writeInt(magic);
+            out.writeInt(version);
+            byte[] header = writeHeader(data, haplotypes, numWords, haplotypesPerChunk, numChunks);
+            Chunk.compress(header, header.length).write(out);
+            // chunks are compressed in parallel and written in order, with a bounded number pending
+            LinkedList<Future<Chunk>> pending = new LinkedList<Future<Chunk>>();
+            int nextChunk = 0;
+            while (nextChunk < numChunks || !pending.isEmpty()) {
+                if (nextChunk < numChunks && pending.size() < 2 * threads) {
+                    int from = nextChunk * haplotypesPerChunk;
+                    int to = Math.min(haplotypes.size(), from + haplotypesPerChunk);
+                    pending.add(executor.submit(new HaplotypeWriter(haplotypes.subList(from, to), numWords)));
+                    nextChunk++;
+                    continue;
+                }
+                pending.removeFirst().get().write(out);
+            }
+        } catch (InterruptedException ex) {
+            throw new IOException("Interrupted while writing " + file);
+        } catch (ExecutionException ex) {
+            throw new IOException("Could not write " + file + ": " + ex.getCause());
+        } finally {
+            executor.shutdownNow();
+            out.close();
+        }
+        if (!tmpFile.renameTo(binFile)) {
+            binFile.delete();
+            if (!tmpFile.renameTo(binFile)) {
+                tmpFile.delete();
+                throw new IOException("Could not rename " + tmpFile + " to " + binFile);
+            }
+        }
+    }
+
+    private static byte[] writeHeader(Dataset data, ArrayList<Individual> haplotypes, int numWords,
+            int haplotypesPerChunk, int numChunks) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(data.getChr());
+        out.writeBoolean(data.isHaveFreq());
+        out.writeBoolean(data.isWarnedPostNotContainsInd());
+
+        MarkerIndex markers = data.getMarkers();
+        out.writeInt(markers.size());
+        for (String ID : markers.getIDs()) {
+            out.writeUTF(ID);
+        }
+        ByteBuffer positions = ByteBuffer.allocate(12 * markers.size());
+        positions.asDoubleBuffer().put(markers.getGenPositions());
+        positions.position(8 * markers.size());
+        positions.asIntBuffer().put(markers.getPhysPositions());
+        out.write(positions.array());
+
+        ArrayList<Variant> variants = data.getVariants();
+        out.writeInt(variants.size());
+        ByteBuffer alleles = ByteBuffer.allocate(4 * variants.size());
+        for (Variant variant : variants) {
+            alleles.putChar(variant.getVarZero());
+            alleles.putChar(variant.getVarOne());
+        }
+        out.write(alleles.array());
+
+        out.writeInt(data.getIDToFreq().size());
+        for (Entry<String, Double> entry : data.getIDToFreq().entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeDouble(entry.getValue());
+        }
+        out.writeInt(data.getIDToVarCounts().size());
+        for (Entry<String, Integer> entry : data.getIDToVarCounts().entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+
+        HashMap<String, Integer> stringIndex = new HashMap<String, Integer>();
+        ArrayList<String> strings = new ArrayList<String>();
+        int[] haplotypeStrings = new int[stringsPerHaplotype * haplotypes.size()];
+        for (int h = 0; h < haplotypes.size(); h++) {
+            Individual haplotype = haplotypes.get(h);
+            String[] fields = {haplotype.getFamId(), haplotype.getIndId(), haplotype.getPatId(),
+                haplotype.getMatId(), haplotype.getSex(), haplotype.getPheno()};
+            for (int f = 0; f < stringsPerHaplotype; f++) {
+                Integer index = stringIndex.get(fields[f]);
+                if (index == null) {
+                    index = strings.size();
+                    stringIndex.put(fields[f], index);
+                    strings.add(fields[f]);
+                }
+                haplotypeStrings[stringsPerHaplotype * h + f] = index;
+            }
+        }
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            out.writeUTF(string);
+        }
+        out.writeInt(haplotypes.size());
+        ByteBuffer indices = ByteBuffer.allocate(4 * haplotypeStrings.length);
+        indices.asIntBuffer().put(haplotypeStrings);
+        out.write(indices.array());
+
+        out.writeInt(numWords);
+        out.writeInt(haplotypesPerChunk);
+        out.writeInt(numChunks);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Compresses the words and posteriors of a chunk of haplotypes.
+     */
+    private static class HaplotypeWriter implements Callable<Chunk> {
+
+        private final List<Individual> haplotypes;
+        private final int numWords;
+
+        HaplotypeWriter(List<Individual> haplotypes, int numWords) {
+            this.haplotypes = haplotypes;
+            this.numWords = numWords;
+        }
+
+        public Chunk call() {
+            int length = 0;
+            for (Individual haplotype : haplotypes) {
+                length += 16 * numWords + 4 + 4 * haplotype.getPosteriors().size();
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            for (Individual haplotype : haplotypes) {
+                // the buffer is zero-filled, so shorter words need no padding
+                buffer.asLongBuffer().put(haplotype.getBitWords());
+                buffer.position(buffer.position() + 8 * numWords);
+                buffer.asLongBuffer().put(haplotype.getMaskWords());
+                buffer.position(buffer.position() + 8 * numWords);
+                buffer.putInt(haplotype.getPosteriors().size());
+                for (Float posterior : haplotype.getPosteriors()) {
+                    buffer.putFloat(posterior);
+                }
+            }
+            return Chunk.compress(buffer.array(), length);
+        }
+    }
+
+    /**
+     * @return the dataset in file, decompressing chunks with threads
+     * @throws IOException if the file cannot be read, is not a binary file
+     * of this version or is corrupted
+     */
+    public static Dataset read(String file, int threads) throws IOException {
+        final long fileLength = new File(file).length();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 20));
+        ExecutorService executor = null;
+        try {
+            if (in.readInt() != magic || in.readInt() != version) {
+                throw new IOException(file + " is not a binary dataset of this version.");
+            }
+            final Dataset data = new Dataset();
+            final Header header = readHeader(Chunk.read(in, fileLength).decompress(), data);
+            // this thread reads chunks, workers decompress and decode them
+            executor = Executors.newFixedThreadPool(Math.max(1, threads));
+            TreeMap<String, Individual> individuals = new TreeMap<String, Individual>();
+            LinkedList<Future<Individual[]>> pending = new LinkedList<Future<Individual[]>>();
+            int nextChunk = 0;
+            while (nextChunk < header.numChunks || !pending.isEmpty()) {
+                if (nextChunk < header.numChunks && pending.size() < 2 * threads) {
+                    final Chunk chunk = Chunk.read(in, fileLength);
+                    final int firstHaplotype = nextChunk * header.haplotypesPerChunk;
+                    pending.add(executor.submit(new Callable<Individual[]>() {
+                        public Individual[] call() throws IOException {
+                            return header.readHaplotypes(chunk.decompress(), firstHaplotype);
+                        }
+                    }));
+                    nextChunk++;
+                    continue;
+                }
+                for (Individual haplotype : pending.removeFirst().get()) {
+                    individuals.put(haplotype.getFamId() + "\t" + haplotype.getIndId(), haplotype);
+                }
+            }
+            if (in.read() != -1) {
+                throw new IOException("unexpected data after the last chunk");
+            }
+            data.setIndividuals(individuals);
+            return data;
+        } catch (EOFException ex) {
+            throw new IOException("truncated file");
+        } catch (InterruptedException ex) {
+            throw new IOException("Interrupted while reading " + file);
+        } catch (ExecutionException ex) {
+            throw (ex.getCause() instanceof IOException) ? (IOException) ex.getCause() : new IOException(ex.getCause());
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            in.close();
+        }
+    }
+
+    /**
+     * The sample strings and chunk layout of a file.
+     */
+    private static class Header {
+
+        String[] strings;
+        int[] haplotypeStrings;
+        int numHaplotypes;
+        int numWords;
+        int haplotypesPerChunk;
+        int numChunks;
+
+        Individual[] readHaplotypes(ByteBuffer buffer, int firstHaplotype) throws IOException {
+            int count = Math.min(haplotypesPerChunk, numHaplotypes - firstHaplotype);
+            Individual[] haplotypes = new Individual[count];
+            for (int i = 0; i < count; i++) {
+                if (buffer.remaining() < 16L * numWords + 4) {
+                    throw new IOException("corrupted chunk");
+                }
+                long[] bitSeq = new long[numWords];
+                buffer.asLongBuffer().get(bitSeq);
+                buffer.position(buffer.position() + 8 * numWords);
+                long[] mask = new long[numWords];
+                buffer.asLongBuffer().get(mask);
+                buffer.position(buffer.position() + 8 * numWords);
+                int s = stringsPerHaplotype * (firstHaplotype + i);
+                Individual haplotype = new Individual(strings[haplotypeStrings[s]], strings[haplotypeStrings[s + 1]],
+                        strings[haplotypeStrings[s + 2]], strings[haplotypeStrings[s + 3]],
+                        strings[haplotypeStrings[s + 4]], strings[haplotypeStrings[s + 5]], bitSeq, mask);
+                int numPosteriors = buffer.getInt();
+                if (numPosteriors < 0 || numPosteriors > buffer.remaining() / 4) {
+                    throw new IOException("corrupted chunk");
+                }
+                ArrayList<Float> posteriors = new ArrayList<Float>(numPosteriors);
+                for (int p = 0; p < numPosteriors; p++) {
+                    posteriors.add(buffer.getFloat());
+                }
+                haplotype.setPosteriors(posteriors);
+                haplotypes[i] = haplotype;
+            }
+            return haplotypes;
+        }
+    }
+
+    private static Header readHeader(ByteBuffer buffer, Dataset data) throws IOException {
+        byte[] bytes = buffer.array();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        data.setChr(in.readUTF());
+        data.setHaveFreq(in.readBoolean());
+        data.setWarnedPostNotContainsInd(in.readBoolean());
+
+        int numMarkers = readCount(in, 14);
+        String[] IDs = new String[numMarkers];
+        for (int i = 0; i < numMarkers; i++) {
+            IDs[i] = in.readUTF();
+        }
+        byte[] positionBytes = new byte[12 * numMarkers];
+        in.readFully(positionBytes);
+        ByteBuffer positions = ByteBuffer.wrap(positionBytes);
+        double[] genPos = new double[numMarkers];
+        int[] physPos = new int[numMarkers];
+        positions.asDoubleBuffer().get(genPos);
+        positions.position(8 * numMarkers);
+        positions.asIntBuffer().get(physPos);
+        data.setMarkers(new MarkerIndex(IDs, genPos, physPos));
+        data.setMap(new Map(data.getChr(), data.getMarkers()));
+
+        int numVariants = readCount(in, 4);
+        byte[] alleleBytes = new byte[4 * numVariants];
+        in.readFully(alleleBytes);
+        ByteBuffer alleles = ByteBuffer.wrap(alleleBytes);
+        ArrayList<Variant> variants = new ArrayList<Variant>(numVariants);
+        for (int i = 0; i < numVariants; i++) {
+            char varZero = alleles.getChar();
+            char varOne = alleles.getChar();
+            variants.add(new Variant(varZero, varOne));
+        }
+        data.setVariants(variants);
+
+        TreeMap<String, Double> IDToFreq = new TreeMap<String, Double>();
+        int numFreq = readCount(in, 10);
+        for (int i = 0; i < numFreq; i++) {
+            String ID = in.readUTF();
+            IDToFreq.put(ID, in.readDouble());
+        }
+        data.setIDToFreq(IDToFreq);
+        TreeMap<String, Integer> IDToVarCounts = new TreeMap<String, Integer>();
+        int numVarCounts = readCount(in, 6);
+        for (int i = 0; i < numVarCounts; i++) {
+            String ID = in.readUTF();
+            IDToVarCounts.put(ID, in.readInt());
+        }
+        data.setIDToVarCounts(IDToVarCounts);
+
+        Header header = new Header();
+        header.strings = new String[readCount(in, 2)];
+        for (int i = 0; i < header.strings.length; i++) {
+            header.strings[i] = in.readUTF();
+        }
+        header.numHaplotypes = readCount(in, 4 * stringsPerHaplotype);
+        byte[] indexBytes = new byte[4 * stringsPerHaplotype * header.numHaplotypes];
+        in.readFully(indexBytes);
+        header.haplotypeStrings = new int[stringsPerHaplotype * header.numHaplotypes];
+        ByteBuffer.wrap(indexBytes).asIntBuffer().get(header.haplotypeStrings);
+        for (int index : header.haplotypeStrings) {
+            if (index < 0 || index >= header.strings.length) {
+                throw new IOException("corrupted string table");
+            }
+        }
+        header.numWords = in.readInt();
+        header.haplotypesPerChunk = in.readInt();
+        header.numChunks = in.readInt();
+        if (header.numWords < 0 || header.numWords > (numMarkers + 63) >>> 6 || header.haplotypesPerChunk < 1
+                || header.numChunks != (header.numHaplotypes + header.haplotypesPerChunk - 1) / header.haplotypesPerChunk) {
+            throw new IOException("corrupted header");
+        }
+        return header;
+    }
+
+    /**
+     * @return a count read from the header, checked against the bytes left
+     * in it, as each element takes at least elementBytes
+     */
+    private static int readCount(DataInputStream in, int elementBytes) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > in.available() / elementBytes) {
+            throw new IOException("corrupted header");
+        }
+        return count;
+    }
+}
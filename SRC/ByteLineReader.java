@@ -0,0 +1,107 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads lines of bytes from a stream into a reusable buffer, without
+ * decoding them to Strings.
+ *
+ * @author Pier Palamara
+ */
+public class ByteLineReader {
+
+    private final InputStream in;
+    private final byte[] buffer;
+    private int bufferPos = 0;
+    private int bufferLength = 0;
+    private byte[] line = new byte[1 << 16];
+    private int lineLength = 0;
+
+    public ByteLineReader(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Reads the next line, which is then available from getLine() until the
+     * following call.
+     *
+     * @return false if the end of the stream was reached
+     */
+    public boolean readLine() throws IOException {
+        lineLength = 0;
+        boolean readAny = false;
+        while (true) {
+            if (bufferPos == bufferLength) {
+                bufferLength = in.read(buffer);
+                bufferPos = 0;
+                if (bufferLength <= 0) {
+                    bufferLength = 0;
+                    return readAny;
+                }
+            }
+            readAny = true;
+            int start = bufferPos;
+            while (bufferPos < bufferLength && buffer[bufferPos] != '\n') {
+                bufferPos++;
+            }
+            append(start, bufferPos - start);
+            if (bufferPos < bufferLength) {
+                // skip newline
+                bufferPos++;
+                if (lineLength > 0 && line[lineLength - 1] == '\r') {
+                    lineLength--;
+                }
+                return true;
+            }
+        }
+    }
+
+    private void append(int from, int length) {
+        if (lineLength + length > line.length) {
+            byte[] larger = new byte[Math.max(2 * line.length, lineLength + length)];
+            System.arraycopy(line, 0, larger, 0, lineLength);
+            line = larger;
+        }
+        System.arraycopy(buffer, from, line, lineLength, length);
+        lineLength += length;
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * @return the line
+     */
+    public byte[] getLine() {
+        return line;
+    }
+
+    /**
+     * @return the lineLength
+     */
+    public int getLineLength() {
+        return lineLength;
+    }
+}
@@ -0,0 +1,604 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a synthetic cohort for scale testing: for each region, consistent
+ * .ped.gz, .map, .frq and .match.gz files, plus bed masks, a demography and
+ * the list files of the analysis.
+ *
+ * Haplotypes are mosaics of founder haplotypes: along each IBD segment, a
+ * haplotype copies the founders of a haplotype with a lower index (which may
+ * itself be copying another one), and elsewhere it is its own founder.
+ * Founder alleles are drawn from the frequency of their marker, and each
+ * haplotype differs from its founder at a few sites, so that segments have
+ * discordant sites. Every allele is a hash of the seed and its coordinates,
+ * and the segments of a haplotype are drawn from a generator seeded by its
+ * index, so nothing is held in memory beyond a few values per marker: the
+ * ped.gz file is written in blocks of samples, compressed in parallel as
+ * separate gzip members. Outputs depend only on the options (not on the
+ * number of threads).
+ *
+ * @author Pier Palamara
+ */
+public class CohortGenerator {
+
+    public enum Spectrum {
+
+        // frequencies with density proportional to 1/f, as in a population of constant size
+        NEUTRAL,
+        UNIFORM
+    }
+
+    private static final double basePairsPerCM = 1e6;
+    // segments are at least minSegmentCM long, plus an exponential length
+    private static final double minSegmentCM = 1.0;
+    private static final double meanExtraSegmentCM = 2.0;
+    // uncompressed bytes of the ped lines of a block of samples
+    private static final int blockBytes = 1 << 22;
+    private static final byte[] bases = {'A', 'C', 'G', 'T'};
+
+    private final String root;
+    private final int samples;
+    private final int markers;
+    private final int regions;
+    private final double regionCM;
+    private final double segmentsPerPair;
+    private final double missingness;
+    private final double discordance;
+    private final Spectrum spectrum;
+    private final int masks;
+    private final int demographySize;
+    private final long seed;
+    private final int threads;
+
+    private CohortGenerator(Builder builder) {
+        root = builder.root;
+        samples = builder.samples;
+        markers = builder.markers;
+        regions = builder.regions;
+        regionCM = builder.regionCM;
+        segmentsPerPair = builder.segmentsPerPair;
+        missingness = builder.missingness;
+        discordance = builder.discordance;
+        spectrum = builder.spectrum;
+        masks = builder.masks;
+        demographySize = builder.demographySize;
+        seed = builder.seed;
+        threads = builder.threads;
+    }
+
+    /**
+     * Sets up a cohort. Only the root of the output files is required.
+     */
+    public static class Builder {
+
+        private final String root;
+        private int samples = 1000;
+        private int markers = 100000;
+        private int regions = 1;
+        private double regionCM = 10.0;
+        private double segmentsPerPair = 0.001;
+        private double missingness = 0.001;
+        private double discordance = 0.001;
+        private Spectrum spectrum = Spectrum.NEUTRAL;
+        private int masks = 1;
+        private int demographySize = 10000;
+        private long seed = 1;
+        private int threads = 1;
+
+        /**
+         * @param root the prefix of all output files
+         */
+        public Builder(String root) {
+            this.root = root;
+        }
+
+        public Builder setSamples(int value) {
+            samples = value;
+            return this;
+        }
+
+        public Builder setMarkers(int value) {
+            markers = value;
+            return this;
+        }
+
+        public Builder setRegions(int value) {
+            regions = value;
+            return this;
+        }
+
+        /**
+         * @param value the genetic length of each region, at 1 cM per Mb
+         */
+        public Builder setRegionCM(double value) {
+            regionCM = value;
+            return this;
+        }
+
+        /**
+         * @param value the expected number of IBD segments shared by two
+         * haplotypes in a region
+         */
+        public Builder setSegmentsPerPair(double value) {
+            segmentsPerPair = value;
+            return this;
+        }
+
+        /**
+         * @param value the fraction of genotypes that are missing
+         */
+        public Builder setMissingness(double value) {
+            missingness = value;
+            return this;
+        }
+
+        /**
+         * @param value the fraction of sites that differ between the two
+         * haplotypes of a segment
+         */
+        public Builder setDiscordance(double value) {
+            discordance = value;
+            return this;
+        }
+
+        public Builder setSpectrum(Spectrum value) {
+            spectrum = value;
+            return this;
+        }
+
+        public Builder setMasks(int value) {
+            masks = value;
+            return this;
+        }
+
+        public Builder setDemographySize(int value) {
+            demographySize = value;
+            return this;
+        }
+
+        public Builder setSeed(long value) {
+            seed = value;
+            return this;
+        }
+
+        public Builder setThreads(int value) {
+            threads = value;
+            return this;
+        }
+
+        public CohortGenerator build() {
+            if (samples < 2 || markers < 2 || regions < 1 || masks < 0 || threads < 1) {
+                throw new IllegalStateException("A cohort needs at least 2 samples, 2 markers, 1 region and 1 thread.");
+            }
+            if (regionCM <= 0 || segmentsPerPair < 0 || missingness < 0 || missingness >= 1 || discordance < 0 || discordance >= 1) {
+                throw new IllegalStateException("Invalid region length or rate.");
+            }
+            if (regionCM * basePairsPerCM < markers) {
+                throw new IllegalStateException("Too many markers for the length of a region.");
+            }
+            return new CohortGenerator(this);
+        }
+    }
+
+    /**
+     * @return the generator given by the arguments following --generate;
+     * prints the help and exits if they are not valid
+     */
+    public static CohortGenerator parse(String[] args) {
+        if (args.length < 2 || args[1].startsWith("--")) {
+            Tools.printHelpAndExit("--generate requires the root of the output files.");
+        }
+        Builder builder = new Builder(args[1]);
+        int argIndex = 2;
+        while (argIndex < args.length) {
+            String arg = args[argIndex++];
+            if (arg.equals("--quiet")) {
+                Tools.makeQuiet();
+                continue;
+            }
+            if (argIndex >= args.length) {
+                Tools.printHelpAndExit("Missing value of " + arg + ".");
+            }
+            String value = args[argIndex++];
+            if (arg.equals("--samples")) {
+                builder.setSamples(Integer.parseInt(value));
+            } else if (arg.equals("--markers")) {
+                builder.setMarkers(Integer.parseInt(value));
+            } else if (arg.equals("--regions")) {
+                builder.setRegions(Integer.parseInt(value));
+            } else if (arg.equals("--regionCM")) {
+                builder.setRegionCM(Double.parseDouble(value));
+            } else if (arg.equals("--segmentsPerPair")) {
+                builder.setSegmentsPerPair(Double.parseDouble(value));
+            } else if (arg.equals("--missingness")) {
+                builder.setMissingness(Double.parseDouble(value));
+            } else if (arg.equals("--discordance")) {
+                builder.setDiscordance(Double.parseDouble(value));
+            } else if (arg.equals("--spectrum")) {
+                if (value.equalsIgnoreCase("neutral")) {
+                    builder.setSpectrum(Spectrum.NEUTRAL);
+                } else if (value.equalsIgnoreCase("uniform")) {
+                    builder.setSpectrum(Spectrum.UNIFORM);
+                } else {
+                    Tools.printHelpAndExit("Unsupported spectrum " + value + ", use neutral or uniform.");
+                }
+            } else if (arg.equals("--masks")) {
+                builder.setMasks(Integer.parseInt(value));
+            } else if (arg.equals("--demographySize")) {
+                builder.setDemographySize(Integer.parseInt(value));
+            } else if (arg.equals("--seed")) {
+                builder.setSeed(Long.parseLong(value));
+            } else if (arg.equals("--threads")) {
+                builder.setThreads(Integer.parseInt(value));
+            } else {
+                Tools.printHelpAndExit("Unsupported argument " + arg + " for --generate.");
+            }
+        }
+        try {
+            return builder.build();
+        } catch (IllegalStateException ex) {
+            Tools.printHelpAndExit(ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return the root of the ped.gz, map and frq files of a region, whose
+     * match file is the root followed by .match.gz
+     */
+    public String getRegionRoot(int region) {
+        return root + ".region" + region;
+    }
+
+    /**
+     * Writes all files: the regions, root.plinkList.txt, the masks
+     * root.maskK.bed listed in root.maskList.txt, and root.demo.
+     */
+    public void generate() throws IOException, InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            PrintWriter plinkList = new PrintWriter(new FileWriter(root + ".plinkList.txt"));
+            for (int region = 1; region <= regions; region++) {
+                generateRegion(new Region(region), executor);
+                plinkList.println(getRegionRoot(region) + "\t" + getRegionRoot(region) + ".match.gz");
+            }
+            plinkList.close();
+        } finally {
+            executor.shutdownNow();
+        }
+        writeMasks();
+        Writer demography = new BufferedWriter(new FileWriter(root + ".demo"));
+        demography.write("0\t" + demographySize + "\n");
+        demography.close();
+        Tools.printProgress("Wrote " + regions + " regions to " + root + ".plinkList.txt, " + masks + " masks to " + root
+                + ".maskList.txt and a demography to " + root + ".demo");
+    }
+
+    /**
+     * The markers of a region and the seeds of its random values.
+     */
+    private class Region {
+
+        final int index;
+        final String chr;
+        final int[] physPos = new int[markers];
+        final double[] genPos = new double[markers];
+        // frequency of the alternative allele among founders
+        final double[] freq = new double[markers];
+        final byte[] ref = new byte[markers];
+        final byte[] alt = new byte[markers];
+        final long founderSeed;
+        final long mutationSeed;
+        final long missingSeed;
+        final long segmentSeed;
+
+        Region(int index) {
+            this.index = index;
+            chr = Integer.toString(index);
+            long regionSeed = mix(seed + 0x9e3779b97f4a7c15L * index);
+            founderSeed = mix(regionSeed + 1);
+            mutationSeed = mix(regionSeed + 2);
+            missingSeed = mix(regionSeed + 3);
+            segmentSeed = mix(regionSeed + 4);
+            Random random = new Random(regionSeed);
+            int step = (int) (regionCM * basePairsPerCM / markers);
+            double minFreq = 1. / (2 * samples);
+            for (int i = 0; i < markers; i++) {
+                physPos[i] = i * step + 1 + random.nextInt(step);
+                genPos[i] = physPos[i] / basePairsPerCM;
+                int refBase = random.nextInt(4);
+                ref[i] = bases[refBase];
+                alt[i] = bases[(refBase + 1 + random.nextInt(3)) % 4];
+                double u = random.nextDouble();
+                freq[i] = (spectrum == Spectrum.NEUTRAL)
+                        ? Math.exp(Math.log(minFreq) + u * (Math.log(0.5) - Math.log(minFreq)))
+                        : minFreq + u * (0.5 - minFreq);
+            }
+        }
+
+        /**
+         * @return the segments in which a haplotype copies one with a lower
+         * index, as (source, first marker, last marker) triplets sorted by
+         * position and not overlapping. Two haplotypes share
+         * segmentsPerPair segments on average.
+         */
+        int[] getSegments(int haplotype) {
+            double segmentsPerCM = segmentsPerPair * haplotype / regionCM;
+            if (segmentsPerCM <= 0) {
+                return new int[0];
+            }
+            Random random = new Random(segmentSeed + haplotype);
+            int[] segments = new int[0];
+            int numSegments = 0;
+            double pos = genPos[0];
+            while (true) {
+                pos += -Math.log(1 - random.nextDouble()) / segmentsPerCM;
+                if (pos >= genPos[markers - 1]) {
+                    break;
+                }
+                double end = pos + minSegmentCM - Math.log(1 - random.nextDouble()) * meanExtraSegmentCM;
+                int source = random.nextInt(haplotype);
+                int from = firstMarkerAtOrAfter(pos);
+                int to = firstMarkerAtOrAfter(end) - 1;
+                pos = end;
+                // not within a sample, and with at least two markers
+                if (source / 2 == haplotype / 2 || to <= from) {
+                    continue;
+                }
+                if (3 * numSegments + 3 > segments.length) {
+                    segments = Arrays.copyOf(segments, Math.max(3 * numSegments + 3, 2 * segments.length));
+                }
+                segments[3 * numSegments] = source;
+                segments[3 * numSegments + 1] = from;
+                segments[3 * numSegments + 2] = to;
+                numSegments++;
+            }
+            return Arrays.copyOf(segments, 3 * numSegments);
+        }
+
+        private int firstMarkerAtOrAfter(double cM) {
+            int index = Arrays.binarySearch(genPos, cM);
+            return (index >= 0) ? index : -index - 1;
+        }
+
+        /**
+         * Sets founders[from..to] to the founder haplotype that a haplotype
+         * copies at each marker.
+         */
+        void resolveFounders(int haplotype, int from, int to, int[] founders) {
+            Arrays.fill(founders, from, to + 1, haplotype);
+            int[] segments = getSegments(haplotype);
+            for (int s = 0; s < segments.length; s += 3) {
+                int segmentFrom = Math.max(from, segments[s + 1]);
+                int segmentTo = Math.min(to, segments[s + 2]);
+                if (segmentFrom <= segmentTo) {
+                    resolveFounders(segments[s], segmentFrom, segmentTo, founders);
+                }
+            }
+        }
+
+        /**
+         * @return 1 if a haplotype, copying founder, carries the alternative
+         * allele at marker
+         */
+        int getAllele(int haplotype, int founder, int marker) {
+            int allele = (uniform(founderSeed, founder, marker) < freq[marker]) ? 1 : 0;
+            if (uniform(mutationSeed, haplotype, marker) < discordance / 2) {
+                allele ^= 1;
+            }
+            return allele;
+        }
+
+        boolean isMissing(int sample, int marker) {
+            return uniform(missingSeed, sample, marker) < missingness;
+        }
+    }
+
+    /**
+     * @return z with its bits mixed (the finalizer of SplitMix64)
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return a uniform value in [0, 1) given by a seed and two coordinates
+     */
+    private static double uniform(long seed, long a, long b) {
+        long h = mix(seed + 0x9e3779b97f4a7c15L * (a + 1));
+        h = mix(h + 0xc2b2ae3d27d4eb4fL * (b + 1));
+        return (h >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * The ped lines of a block of samples, compressed as one gzip member,
+     * and their allele counts.
+     */
+    private class PedBlock implements Callable<PedBlock> {
+
+        private final Region region;
+        private final int firstSample;
+        private final int lastSample;
+        byte[] compressed;
+        final int[] altCounts = new int[markers];
+        final int[] observed = new int[markers];
+
+        PedBlock(Region region, int firstSample, int lastSample) {
+            this.region = region;
+            this.firstSample = firstSample;
+            this.lastSample = lastSample;
+        }
+
+        public PedBlock call() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            // ped lines are highly redundant, so the fastest level costs little in size
+            OutputStream out = new GZIPOutputStream(bytes, 1 << 16) {
+                {
+                    def.setLevel(Deflater.BEST_SPEED);
+                }
+            };
+            int[] founders0 = new int[markers];
+            int[] founders1 = new int[markers];
+            byte[] line = new byte[4 * markers + 1];
+            for (int sample = firstSample; sample <= lastSample; sample++) {
+                int ID = sample + 1;
+                out.write((ID + " " + ID + " 0 0 1 -9").getBytes("UTF-8"));
+                region.resolveFounders(2 * sample, 0, markers - 1, founders0);
+                region.resolveFounders(2 * sample + 1, 0, markers - 1, founders1);
+                int pos = 0;
+                for (int i = 0; i < markers; i++) {
+                    byte allele0 = '0', allele1 = '0';
+                    if (!region.isMissing(sample, i)) {
+                        int a0 = region.getAllele(2 * sample, founders0[i], i);
+                        int a1 = region.getAllele(2 * sample + 1, founders1[i], i);
+                        allele0 = (a0 == 1) ? region.alt[i] : region.ref[i];
+                        allele1 = (a1 == 1) ? region.alt[i] : region.ref[i];
+                        altCounts[i] += a0 + a1;
+                        observed[i] += 2;
+                    }
+                    line[pos++] = ' ';
+                    line[pos++] = allele0;
+                    line[pos++] = ' ';
+                    line[pos++] = allele1;
+                }
+                line[pos++] = '\n';
+                out.write(line, 0, pos);
+            }
+            out.close();
+            compressed = bytes.toByteArray();
+            return this;
+        }
+    }
+
+    private void generateRegion(Region region, ExecutorService executor) throws IOException, InterruptedException, ExecutionException {
+        String regionRoot = getRegionRoot(region.index);
+        Tools.printProgress("Writing region " + regionRoot);
+
+        Writer map = new BufferedWriter(new FileWriter(regionRoot + ".map"), 1 << 16);
+        for (int i = 0; i < markers; i++) {
+            map.write(region.chr + "\t" + region.chr + ":" + region.physPos[i] + "\t" + region.genPos[i] + "\t" + region.physPos[i] + "\n");
+        }
+        map.close();
+
+        // blocks are compressed in parallel and written in order, with a bounded number pending
+        int samplesPerBlock = Math.max(1, blockBytes / (4 * markers + 32));
+        int[] altCounts = new int[markers];
+        int[] observed = new int[markers];
+        OutputStream ped = new BufferedOutputStream(new FileOutputStream(regionRoot + ".ped.gz"), 1 << 20);
+        LinkedList<Future<PedBlock>> pending = new LinkedList<Future<PedBlock>>();
+        int nextSample = 0;
+        while (nextSample < samples || !pending.isEmpty()) {
+            if (nextSample < samples && pending.size() < 2 * threads) {
+                int lastSample = Math.min(samples, nextSample + samplesPerBlock) - 1;
+                pending.add(executor.submit(new PedBlock(region, nextSample, lastSample)));
+                nextSample = lastSample + 1;
+                continue;
+            }
+            PedBlock block = pending.removeFirst().get();
+            ped.write(block.compressed);
+            for (int i = 0; i < markers; i++) {
+                altCounts[i] += block.altCounts[i];
+                observed[i] += block.observed[i];
+            }
+            Tools.printVerboseProgressLevel2("Wrote " + (block.lastSample + 1) + " samples.");
+        }
+        ped.close();
+
+        Writer frq = new BufferedWriter(new FileWriter(regionRoot + ".frq"), 1 << 16);
+        frq.write(" CHR SNP A1 A2 MAF NCHROBS\n");
+        for (int i = 0; i < markers; i++) {
+            // A1 is the minor allele
+            boolean altIsMinor = 2 * altCounts[i] <= observed[i];
+            int minorCount = (altIsMinor) ? altCounts[i] : observed[i] - altCounts[i];
+            double maf = (observed[i] == 0) ? 0. : minorCount / (double) observed[i];
+            frq.write(region.chr + " " + region.chr + ":" + region.physPos[i] + " " + (char) ((altIsMinor) ? region.alt[i] : region.ref[i])
+                    + " " + (char) ((altIsMinor) ? region.ref[i] : region.alt[i]) + " " + maf + " " + observed[i] + "\n");
+        }
+        frq.close();
+
+        Writer match = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(regionRoot + ".match.gz"), 1 << 16), "UTF-8"), 1 << 16);
+        long numSegments = 0;
+        for (int haplotype = 0; haplotype < 2 * samples; haplotype++) {
+            int[] segments = region.getSegments(haplotype);
+            for (int s = 0; s < segments.length; s += 3) {
+                int source = segments[s];
+                int from = segments[s + 1];
+                int to = segments[s + 2];
+                double length = Math.round((region.genPos[to] - region.genPos[from]) * 100) / 100.;
+                match.write((source / 2 + 1) + " " + (source / 2 + 1) + "." + (source % 2) + "\t"
+                        + (haplotype / 2 + 1) + " " + (haplotype / 2 + 1) + "." + (haplotype % 2) + "\t"
+                        + region.chr + "\t" + region.physPos[from] + " " + region.physPos[to] + "\t"
+                        + region.chr + ":" + region.physPos[from] + " " + region.chr + ":" + region.physPos[to] + "\t"
+                        + (to - from + 1) + "\t" + length + "\tcM\t0\t1\t1\n");
+                numSegments++;
+            }
+        }
+        match.close();
+        Tools.printVerboseProgressLevel1("Wrote " + samples + " samples, " + markers + " markers and " + numSegments + " segments.");
+    }
+
+    /**
+     * Writes bed files whose intervals cover about half of each region.
+     */
+    private void writeMasks() throws IOException {
+        PrintWriter maskList = new PrintWriter(new FileWriter(root + ".maskList.txt"));
+        int intervals = Math.max(1, (int) (10 * regionCM));
+        int width = (int) (regionCM * basePairsPerCM / intervals);
+        for (int mask = 1; mask <= masks; mask++) {
+            String maskFile = root + ".mask" + mask + ".bed";
+            Random random = new Random(mix(seed - mask));
+            Writer bed = new BufferedWriter(new FileWriter(maskFile));
+            for (int region = 1; region <= regions; region++) {
+                for (int k = 0; k < intervals; k++) {
+                    int from = k * width + random.nextInt(Math.max(1, width / 2));
+                    bed.write(region + "\t" + from + "\t" + (from + width / 2) + "\n");
+                }
+            }
+            bed.close();
+            maskList.println(maskFile);
+        }
+        maskList.close();
+    }
+}
@@ -19,21 +19,13 @@ under the License.
 
 package IBDMUT;
 
-import com.esotericsoftware.kryo.Kryo;
-import com.esotericsoftware.kryo.io.Input;
-import com.esotericsoftware.kryo.io.Output;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.util.BitSet;
 import java.util.concurrent.Callable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 /**
  *
@@ -41,6 +33,7 @@ import java.util.zip.GZIPOutputStream;
  */
 public class DataLoader implements Callable<Dataset> {
 
+    private final AnalysisConfig config;
     private final String pedFile;
     private final boolean saveBin;
     private final boolean loadBin;
@@ -50,67 +43,168 @@ public class DataLoader implements Callable<Dataset> {
     private final boolean usePosteriors;
     private final String saveBinSuffix;
     private final String loadBinSuffix;
+    // IDs, positions, variants and frequency maps of a marker
+    private static final long bytesPerMarker = 400;
 
-    public DataLoader(String loadBinSuffix, String saveBinSuffix, String pedFile, boolean saveBin, boolean loadBin, boolean usePosteriors, double posteriorFrom, double posteriorTo, boolean storePosterior) {
-        this.loadBin = loadBin;
+    public DataLoader(AnalysisConfig config, String pedFile) {
+        this.config = config;
         this.pedFile = pedFile;
-        this.saveBin = saveBin;
-        this.posteriorFrom = posteriorFrom;
-        this.posteriorTo = posteriorTo;
-        this.storePosterior = storePosterior;
-        this.usePosteriors = usePosteriors;
-        this.loadBinSuffix = loadBinSuffix;
-        this.saveBinSuffix = saveBinSuffix;
+        this.loadBin = config.isLoadBin();
+        this.saveBin = config.isSaveBin();
+        this.posteriorFrom = config.getPosteriorFrom();
+        this.posteriorTo = config.getPosteriorTo();
+        this.storePosterior = config.isStorePosterior();
+        this.usePosteriors = config.usePosteriors();
+        this.loadBinSuffix = config.getLoadBinSuffix();
+        this.saveBinSuffix = config.getSaveBinSuffix();
     }
 
     public Dataset call() throws FileNotFoundException, IOException {
-        Dataset data;
+        AnalysisEvents.DatasetLoad event = new AnalysisEvents.DatasetLoad();
+        event.begin();
+        Dataset data = null;
+        File cacheEntry = null;
         if (!loadBin) {
-            data = new Dataset();
-            try {
-                data.readPedFile(pedFile);
-            } catch (Exception ex) {
-                Logger.getLogger(PedMatchProcessor.class.getName()).log(Level.SEVERE, null, ex);
-                System.exit(1);
-            }
-            File f = new File(pedFile + ".frq");
-            if (!f.exists()) {
-                Tools.exit("Frequency file not " + f + "found");
-            } else {
-                data.addFreqFile(pedFile + ".frq");
-                data.setHaveFreq(true);
-            }
-
-            if (usePosteriors) {
-                String posteriorsFile = pedFile + ".post.gz";
-                try {
-                    data.readPosteriorsFile(posteriorsFile, posteriorFrom, posteriorTo, storePosterior);
-                } catch (Exception ex) {
-                    Logger.getLogger(PedMatchProcessor.class.getName()).log(Level.SEVERE, null, ex);
-                    System.exit(1);
+            if (config.useCache()) {
+                DatasetCache cache = new DatasetCache(config.getCacheDir(), config.getCacheSizeMB());
+                String key = DatasetCache.getKey(config, pedFile);
+                data = cache.get(key, config.getLoadThreads());
+                if (data != null) {
+                    cacheEntry = cache.getEntry(key);
+                } else {
+                    data = readInputFiles();
+                    cache.put(key, data, config.getLoadThreads());
                 }
+            } else {
+                data = readInputFiles();
             }
             if (saveBin) {
-                String binFile = pedFile + saveBinSuffix + ".bin.gz";
+                String binFile = BinaryDataset.getFile(pedFile, saveBinSuffix);
                 Tools.printVerboseProgressLevel2("Saving data to " + binFile);
-                Kryo kryo = new Kryo();
-                kryo.register(BitSet.class, new BitSetSerializer());
-                OutputStream outputStream = new GZIPOutputStream(new FileOutputStream(binFile));
-                Output output = new Output(outputStream);
-                kryo.writeObject(output, data);
-                output.close();
+                try {
+                    BinaryDataset.write(data, binFile, config.getLoadThreads());
+                } catch (IOException ex) {
+                    Tools.exit("Could not write binary file " + binFile + ": " + ex.getMessage());
+                }
             }
         } else {
-            String binFile = pedFile + loadBinSuffix + ".bin.gz";
+            String binFile = getBinFile(pedFile, loadBinSuffix);
             Tools.printProgress("Loading data from " + binFile);
-            Kryo kryo = new Kryo();
-            kryo.register(BitSet.class, new BitSetSerializer());
-            GZIPInputStream inputStream = new GZIPInputStream(new FileInputStream(binFile));
-            Input input = new Input(inputStream);
-            data = kryo.readObject(input, Dataset.class);
-            input.close();
+            long binModified = new File(binFile).lastModified();
+            for (String inputFile : new String[]{pedFile + ".ped.gz", pedFile + ".map", pedFile + ".frq"}) {
+                if (binModified > 0 && new File(inputFile).lastModified() > binModified) {
+                    Tools.warning("Warning: " + inputFile + " was modified after " + binFile
+                            + " was saved. Use --cacheDir to rebuild binary files when their inputs change.");
+                }
+            }
+            try {
+                data = BinaryDataset.read(binFile, config.getLoadThreads());
+            } catch (FileNotFoundException ex) {
+                Tools.exit("Could not open binary file " + binFile);
+            } catch (IOException ex) {
+                Tools.exit("Could not read binary file " + binFile + ": " + ex.getMessage());
+            }
+        }
+        if (event.shouldCommit()) {
+            event.region = pedFile;
+            event.fromBinary = loadBin || cacheEntry != null;
+            if (loadBin) {
+                event.bytes = new File(getBinFile(pedFile, loadBinSuffix)).length();
+            } else {
+                event.bytes = ((cacheEntry != null) ? cacheEntry : new File(pedFile + ".ped.gz")).length();
+            }
+            event.samples = data.getIndividuals().size() / 2;
+            event.markers = data.getMarkers().size();
+            event.commit();
         }
         return data;
     }
 
+    /**
+     * @return the dataset read from the ped.gz, map, frq and (if used)
+     * posteriors files of the region
+     */
+    private Dataset readInputFiles() throws IOException {
+        Dataset data = new Dataset();
+        try {
+            data.readPedFile(pedFile, config);
+        } catch (AnalysisException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            Logger.getLogger(PedMatchProcessor.class.getName()).log(Level.SEVERE, null, ex);
+            Tools.exit("Could not read ped file " + pedFile);
+        }
+        File f = new File(pedFile + ".frq");
+        if (!f.exists()) {
+            Tools.exit("Frequency file not " + f + "found");
+        } else {
+            data.addFreqFile(pedFile + ".frq");
+            data.setHaveFreq(true);
+        }
+
+        if (usePosteriors) {
+            String posteriorsFile = pedFile + ".post.gz";
+            try {
+                data.readPosteriorsFile(posteriorsFile, posteriorFrom, posteriorTo, storePosterior);
+            } catch (AnalysisException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                Logger.getLogger(PedMatchProcessor.class.getName()).log(Level.SEVERE, null, ex);
+                Tools.exit("Could not read posteriors file " + posteriorsFile);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * @return the binary file of a region saved with suffix. Exits if there
+     * is none but a .bin.gz file written by older versions is found.
+     */
+    static String getBinFile(String pedFile, String suffix) {
+        String binFile = BinaryDataset.getFile(pedFile, suffix);
+        String oldFile = pedFile + suffix + ".bin.gz";
+        if (!new File(binFile).exists() && new File(oldFile).exists()) {
+            Tools.exit(oldFile + " was saved by an older version; re-create it with --saveBin");
+        }
+        return binFile;
+    }
+
+    /**
+     * @return an estimate of the memory, in bytes, used by the dataset once
+     * loaded: two bits per marker for each haplotype (words of alleles and
+     * observed sites) plus the per-marker maps. Markers and
+     * haplotypes are counted from the .frq file (lines and NCHROBS); if there
+     * is none, the estimate is four times the size of the compressed input.
+     */
+    public long estimateMemory() {
+        File frqFile = new File(pedFile + ".frq");
+        if (!frqFile.isFile()) {
+            String inputFile = (loadBin) ? getBinFile(pedFile, loadBinSuffix) : pedFile + ".ped.gz";
+            return 4 * new File(inputFile).length();
+        }
+        long markers = 0;
+        long haplotypes = 0;
+        try {
+            ByteLineReader reader = new ByteLineReader(new FileInputStream(frqFile), 1 << 16);
+            FieldTokenizer fields = new FieldTokenizer();
+            while (reader.readLine()) {
+                if (markers < 1000) {
+                    fields.tokenize(reader.getLine(), reader.getLineLength());
+                    // NCHROBS is the last field; lines may start with spaces
+                    String observed = fields.getString(fields.getNumFields() - 1);
+                    if (fields.getNumFields() > 5 && !observed.equals("NCHROBS")) {
+                        haplotypes = Math.max(haplotypes, (long) Double.parseDouble(observed));
+                    }
+                }
+                markers++;
+            }
+            reader.close();
+        } catch (IOException ex) {
+            Tools.exit("Could not read frequency file " + frqFile);
+        } catch (NumberFormatException ex) {
+            Tools.exit("Could not read frequency file " + frqFile);
+        }
+        return haplotypes * markers / 4 + markers * bytesPerMarker;
+    }
+
 }
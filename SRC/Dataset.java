@@ -20,6 +20,7 @@ under the License.
 package IBDMUT;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
@@ -28,9 +29,15 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.ArrayList;
-import java.util.BitSet;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.GZIPInputStream;
 
 /**
@@ -40,34 +47,17 @@ import java.util.zip.GZIPInputStream;
 public class Dataset {
 
     private ArrayList<Variant> variants = new ArrayList<Variant>();
-    private ArrayList<String> SNP_IDs = new ArrayList<String>();
-    private TreeMap<Double, Integer> genToIndex = new TreeMap<Double, Integer>();
-    private TreeMap<Integer, Integer> physToIndex = new TreeMap<Integer, Integer>();
-    private TreeMap<Double, Integer> genToPhys = new TreeMap<Double, Integer>();
-    private TreeMap<String, Double> IDToGen = new TreeMap<String, Double>();
+    private MarkerIndex markers;
+    private transient GeneticMapInterpolator genToPhys;
     private TreeMap<String, Double> IDToFreq = new TreeMap<String, Double>();
     private TreeMap<String, Integer> IDToVarCounts = new TreeMap<String, Integer>();
-    private ArrayList<Double> genPosArray = new ArrayList<Double>();
-    private ArrayList<Integer> physPos = new ArrayList<Integer>();
-    private TreeMap<String, Integer> IDtoPos = new TreeMap<String, Integer>();
-    private TreeMap<Integer, String> physToID = new TreeMap<Integer, String>();
     private TreeMap<String, Individual> individuals = new TreeMap<String, Individual>();
     private Map map = null;
     private Mask includeMask;
     private Mask excludeMask;
     private boolean haveFreq = false;
     private String chr = "-1";
-    private static boolean enterTainUser = false;
-    
-    public static void setEntertainment() {
-        enterTainUser = true;
-    }
-    
-    public static void setRoundTo(double RT) {
-        roundTo = RT;
-    }
-
-    private static double roundTo = 10.0;
+    private static final long pedChunkBytes = 1 << 24;
 
     private double totDiff = 0.0;
     private double totInMask = 0.0;
@@ -75,97 +65,144 @@ public class Dataset {
     private int notInMask = 0;
     private boolean warnedPostNotContainsInd = false;
 
-    void readPedFile(String root) throws IOException, Exception {
+    /**
+     * Resets the counters of analyzed sites, before the dataset is analyzed
+     * again.
+     */
+    void resetCounts() {
+        totDiff = 0.0;
+        totInMask = 0.0;
+        inMask = 0;
+        notInMask = 0;
+    }
+
+    void readPedFile(String root, AnalysisConfig config) throws IOException, Exception {
+        int loadThreads = config.getLoadThreads();
+        // progress is only printed when regions are analyzed one at a time
+        boolean printProgress = config.getThreads() <= 1;
         String mapFile = root + ".map";
         String pedFile = root + ".ped.gz";
-        BufferedReader br = null;
+        ByteLineReader reader = null;
+        AnalysisEvents.PedFileRead event = new AnalysisEvents.PedFileRead();
+        event.begin();
         Tools.printProgress("Reading ped file " + pedFile);
         try {
             InputStream fileStream = new FileInputStream(pedFile);
-            InputStream gzipStream = new GZIPInputStream(fileStream);
-            Reader decoder = new InputStreamReader(gzipStream, "UTF-8");
-            br = new BufferedReader(decoder);
+            InputStream gzipStream = new GZIPInputStream(fileStream, 1 << 16);
+            reader = new ByteLineReader(gzipStream, 1 << 20);
         } catch (FileNotFoundException ex) {
             Tools.exit("Could not open ped file " + pedFile);
         }
         try {
-            String line = br.readLine();
+            boolean haveLine = reader.readLine();
+            if (!haveLine) {
+                Tools.exit("Empty ped file " + pedFile);
+            }
             int lineCnt = 0;
             double miss = 0;
             double cnt = 0;
-            int length = (line.split("\\s+").length - 6) / 2;
-            for (int i = 0; i < length; i++) {
-                getVariants().add(new Variant());
-            }
-            while (line != null) {
-                String[] strSplit = line.split("\\s+");
-                lineCnt++;
-                String famId = strSplit[0];
-                String indId = strSplit[1];
-                String patId = strSplit[2];
-                String matId = strSplit[3];
-                String sex = strSplit[4];
-                String pheno = strSplit[5];
-
-                String ID = famId + "-" + indId;
-
-                if (patId.compareToIgnoreCase("0") != 0 || matId.compareToIgnoreCase("0") != 0) {
-                    Tools.warning("Warning: skipping trio/duo child " + ID);
-                    line = br.readLine();
-                    continue;
-                }
-
-                BitSet bitSeq0 = new BitSet(getVariants().size());
-                BitSet bitSeq1 = new BitSet(getVariants().size());
-                BitSet mask0 = new BitSet(getVariants().size());
-                mask0.flip(0, mask0.size());
-                BitSet mask1 = new BitSet(getVariants().size());
-                mask1.flip(0, mask1.size());
-                int varIndex = 0;
-                for (int i = 6; i < strSplit.length; i += 2) {
-                    char geno0 = strSplit[i].charAt(0);
-                    char geno1 = strSplit[i + 1].charAt(0);;
-                    Variant thisVar = getVariants().get(varIndex);
-                    cnt++;
-                    if (geno0 == '0') {
-                        // mask this position out
-                        mask0.flip(varIndex);
-                        miss++;
-                    } else {
-                        // record sequence by flipping allele
-                        if (thisVar.alleleToBit(geno0)) {
-                            bitSeq0.flip(varIndex);
+            PedParser parser = new PedParser(PedParser.countSites(reader.getLine(), reader.getLineLength()));
+            int numSites = parser.getNumSites();
+            if (loadThreads > 1) {
+                // this thread decompresses and splits lines, workers parse chunks of lines
+                ExecutorService executor = Executors.newFixedThreadPool(loadThreads);
+                LinkedList<Future<PedChunkParser>> pending = new LinkedList<Future<PedChunkParser>>();
+                ArrayList<byte[]> chunk = new ArrayList<byte[]>();
+                long chunkBytes = 0;
+                try {
+                    while (haveLine || !chunk.isEmpty() || !pending.isEmpty()) {
+                        if (haveLine) {
+                            chunk.add(Arrays.copyOf(reader.getLine(), reader.getLineLength()));
+                            chunkBytes += reader.getLineLength();
+                            haveLine = reader.readLine();
                         }
-                    }
-                    if (geno1 == '0') {
-                        // mask this position out
-                        mask1.flip(varIndex);
-                        miss++;
-                    } else {
-                        // record sequence by flipping allele
-                        if (thisVar.alleleToBit(geno1)) {
-                            bitSeq1.flip(varIndex);
+                        if (!chunk.isEmpty() && (!haveLine || chunkBytes >= pedChunkBytes)) {
+                            pending.add(executor.submit(new PedChunkParser(chunk, numSites)));
+                            chunk = new ArrayList<byte[]>();
+                            chunkBytes = 0;
                         }
+                        if (pending.size() < 2 * loadThreads && haveLine) {
+                            continue;
+                        }
+                        if (pending.isEmpty()) {
+                            continue;
+                        }
+                        // merge the oldest chunk, in file order
+                        PedChunkParser parsed = pending.removeFirst().get();
+                        long[] flip = parser.mergeAlleles(parsed.getParser());
+                        miss += parsed.getMissing();
+                        for (int i = 0; i < parsed.getHeaders().size(); i++) {
+                            String[] header = parsed.getHeaders().get(i);
+                            lineCnt++;
+                            if (PedChunkParser.isTrioChild(header)) {
+                                Tools.warning("Warning: skipping trio/duo child " + header[0] + "-" + header[1]);
+                                continue;
+                            }
+                            long[][] words = parsed.getHaplotypes().get(i);
+                            for (int w = 0; w < flip.length; w++) {
+                                words[0][w] ^= flip[w] & words[2][w];
+                                words[1][w] ^= flip[w] & words[3][w];
+                            }
+                            cnt += numSites;
+                            addHaplotypes(header, words[0], words[1], words[2], words[3]);
+                        }
+                        if (printProgress) {
+                            Tools.printVerboseProgressSameLine("Read " + lineCnt + " individuals.");
+                        }
+                    }
+                } catch (ExecutionException ex) {
+                    if (ex.getCause() instanceof AnalysisException) {
+                        throw (AnalysisException) ex.getCause();
                     }
-                    varIndex++;
+                    throw new Exception(ex.getCause());
+                } finally {
+                    executor.shutdownNow();
                 }
-                Individual ind0 = new Individual(famId, indId + ".0", patId, matId, sex, pheno, bitSeq0, mask0);
-                Individual ind1 = new Individual(famId, indId + ".1", patId, matId, sex, pheno, bitSeq1, mask1);
-                getIndividuals().put(famId + "\t" + indId + ".0", ind0);
-                getIndividuals().put(famId + "\t" + indId + ".1", ind1);
-                line = br.readLine();
-                if (EstimateMutationRateFromIBD.maxThreads <= 1) {
-                    if (!enterTainUser) {
-                        Tools.printVerboseProgressSameLine("Read " + lineCnt + " individuals.");
-                    } else {
-                        Tools.printAnimation();
+            } else {
+                String[] header = new String[PedParser.headerFields];
+                while (haveLine) {
+                    // kept by the haplotypes of the line
+                    long[] bitSeq0 = new long[parser.getNumWords()];
+                    long[] bitSeq1 = new long[parser.getNumWords()];
+                    long[] mask0 = new long[parser.getNumWords()];
+                    long[] mask1 = new long[parser.getNumWords()];
+                    parser.parseHeader(reader.getLine(), reader.getLineLength(), header);
+                    lineCnt++;
+                    String famId = header[0];
+                    String indId = header[1];
+                    String patId = header[2];
+                    String matId = header[3];
+                    String sex = header[4];
+                    String pheno = header[5];
+
+                    String ID = famId + "-" + indId;
+
+                    if (patId.compareToIgnoreCase("0") != 0 || matId.compareToIgnoreCase("0") != 0) {
+                        Tools.warning("Warning: skipping trio/duo child " + ID);
+                        haveLine = reader.readLine();
+                        continue;
+                    }
+
+                    miss += parser.parseGenotypes(reader.getLine(), reader.getLineLength(), bitSeq0, bitSeq1, mask0, mask1);
+                    cnt += numSites;
+                    addHaplotypes(header, bitSeq0, bitSeq1, mask0, mask1);
+                    haveLine = reader.readLine();
+                    if (printProgress) {
+                        if (!config.isEntertainUser()) {
+                            Tools.printVerboseProgressSameLine("Read " + lineCnt + " individuals.");
+                        } else {
+                            Tools.printAnimation();
+                        }
                     }
                 }
             }
+            getVariants().addAll(parser.getVariants());
+            reader.close();
             Tools.printVerboseProgressLevel1("Read " + lineCnt + " individuals. Missing fraction: " + miss / (2. * cnt));
         } catch (IOException ex) {
             Tools.exit("Could not read ped file " + pedFile);
         }
+        BufferedReader br = null;
         Tools.printVerboseProgressLevel1("Reading file " + mapFile);
         try {
             br = new BufferedReader(new FileReader(mapFile));
@@ -175,6 +212,9 @@ public class Dataset {
         try {
             String line = br.readLine();
             int cnt = 0, nonIncreasing = 0;
+            String[] IDs = new String[Math.max(getVariants().size(), 1)];
+            double[] genPos = new double[IDs.length];
+            int[] physPos = new int[IDs.length];
             while (line != null) {
                 cnt++;
                 String[] strSplit = line.split("\\s+");
@@ -182,64 +222,105 @@ public class Dataset {
                     Tools.exit("found two chromosomes in map.");
                 }
                 setChr(strSplit[0]);
-                getSNP_IDs().add(strSplit[1]);
+                if (cnt > IDs.length) {
+                    IDs = Arrays.copyOf(IDs, 2 * IDs.length);
+                    genPos = Arrays.copyOf(genPos, IDs.length);
+                    physPos = Arrays.copyOf(physPos, IDs.length);
+                }
+                IDs[cnt - 1] = strSplit[1];
                 double gen = Double.parseDouble(strSplit[2]);
-                if (cnt > 1 && gen < getGenToIndex().lastKey()) {
-                    gen = getGenToIndex().lastKey();
+                if (cnt > 1 && gen < genPos[cnt - 2]) {
+                    gen = genPos[cnt - 2];
                     nonIncreasing++;
-//                    Tools.warning("Warning: found two non-increasing genetic positions in map: " + genToIndex.lastKey() + "\t" + gen + ". Substituting with largest value.");
-                }
-                if (getGenToIndex().get(gen) == null) { // otherwise there's an earlier SNP at this gen dist
-                    getGenToIndex().put(gen, cnt - 1);
+//                    Tools.warning("Warning: found two non-increasing genetic positions in map: " + genPos[cnt - 2] + "\t" + gen + ". Substituting with largest value.");
                 }
-                getIDtoPos().put(strSplit[1], cnt - 1);
-                getIdToGen().put(strSplit[1], gen);
-                getGenPosArray().add(gen);
+                genPos[cnt - 1] = gen;
                 int phys = Integer.parseInt(strSplit[3]);
-                getPhysToIndex().put(phys, cnt - 1);
-                getPhysToID().put(phys, strSplit[1]);
-                getGenToPhys().put(gen, phys);
-                if (cnt > 1 && phys < getPhysPos().get(getPhysPos().size() - 1)) {
+                if (cnt > 1 && phys < physPos[cnt - 2]) {
                     Tools.exit("found two non-increasing physical positions in map.");
                 }
-                getPhysPos().add(phys);
+                physPos[cnt - 1] = phys;
                 line = br.readLine();
             }
             if (nonIncreasing > 0) {
                 Tools.warning("WARNING: found " + nonIncreasing + " non-increasing genetic positions in map. Set them to higher value.");
             }
-            setMap(new Map(getChr(), getSNP_IDs(), getGenToIndex(), getPhysPos()));
-            getMap().setGenPosArray(getGenPosArray());
+            setMarkers(new MarkerIndex(Arrays.copyOf(IDs, cnt), Arrays.copyOf(genPos, cnt), Arrays.copyOf(physPos, cnt)));
+            setMap(new Map(getChr(), getMarkers()));
+            updateHaplotypeWords();
             Tools.printVerboseProgressLevel1("Read " + getMap().getSize() + " markers.");
         } catch (IOException ex) {
             Tools.exit("Could not read map file " + mapFile);
         }
+        if (event.shouldCommit()) {
+            event.region = root;
+            event.bytes = new File(pedFile).length();
+            event.loadThreads = loadThreads;
+            event.samples = getIndividuals().size() / 2;
+            event.markers = getMarkers().size();
+            event.commit();
+        }
     }
 
-    public int genCoordToPhys(double pos) {
+    private void addHaplotypes(String[] header, long[] bitSeq0, long[] bitSeq1, long[] mask0, long[] mask1) {
+        String famId = header[0];
+        String indId = header[1];
+        Individual ind0 = new Individual(famId, indId + ".0", header[2], header[3], header[4], header[5], bitSeq0, mask0);
+        Individual ind1 = new Individual(famId, indId + ".1", header[2], header[3], header[4], header[5], bitSeq1, mask1);
+        getIndividuals().put(famId + "\t" + indId + ".0", ind0);
+        getIndividuals().put(famId + "\t" + indId + ".1", ind1);
+    }
 
-        double fromGen = (getGenToPhys().floorKey(pos) != null)
-                ? getGenToPhys().floorKey(pos) : getGenToPhys().ceilingKey(pos);
-        double fromPhys = (getGenToPhys().floorEntry(pos) != null)
-                ? getGenToPhys().floorEntry(pos).getValue() : getGenToPhys().ceilingEntry(pos).getValue();
-        if (fromGen == pos) {
-            // exact match in map
-            return getGenToPhys().floorEntry(pos).getValue();
+    /**
+     * Sets the words of all haplotypes to the markers of the map.
+     */
+    public void updateHaplotypeWords() {
+        for (Individual ind : getIndividuals().values()) {
+            ind.updateWords(getMarkers().size());
         }
+    }
 
-        double toGen = (getGenToPhys().ceilingKey(pos) != null)
-                ? getGenToPhys().ceilingKey(pos) : getGenToPhys().floorKey(pos);
-        double toPhys = (getGenToPhys().ceilingEntry(pos) != null)
-                ? getGenToPhys().ceilingEntry(pos).getValue() : getGenToPhys().floorEntry(pos).getValue();
-        double totPhysDist = toPhys - fromPhys;
-        double totGenDist = toGen - fromGen;
-        double fraction = (pos - fromGen) / totGenDist;
-        return (int) Math.round(fromPhys + fraction * totPhysDist);
+    /**
+     * @return a word per 64 markers with bits set for the markers that are in
+     * includeMask, not in excludeMask, and listed in onlyIncludeSNPs. Null
+     * arguments are not applied.
+     */
+    public long[] getIncludedSites(Mask includeMask, Mask excludeMask, TreeSet<String> onlyIncludeSNPs) {
+        int numSites = getMarkers().size();
+        long[] included;
+        if (includeMask != null) {
+            included = includeMask.getSitesInMask(getMarkers().getPhysPositions());
+        } else {
+            included = new long[(numSites + 63) >>> 6];
+            Arrays.fill(included, -1L);
+            if ((numSites & 63) != 0) {
+                included[included.length - 1] = -1L >>> (64 - (numSites & 63));
+            }
+        }
+        if (excludeMask != null) {
+            long[] excluded = excludeMask.getSitesInMask(getMarkers().getPhysPositions());
+            for (int w = 0; w < included.length; w++) {
+                included[w] &= ~excluded[w];
+            }
+        }
+        if (onlyIncludeSNPs != null) {
+            for (int i = 0; i < numSites; i++) {
+                if (!onlyIncludeSNPs.contains(getMarkers().getIDAtPhys(getMarkers().getPhysPos(i)))) {
+                    included[i >>> 6] &= ~(1L << i);
+                }
+            }
+        }
+        return included;
+    }
 
+    public int genCoordToPhys(double pos) {
+        return getGenToPhys().toPhys(pos);
     }
 
     public void addFreqFile(String freqFile) {
         BufferedReader br = null;
+        AnalysisEvents.FrequencyFileRead event = new AnalysisEvents.FrequencyFileRead();
+        event.begin();
         Tools.printVerboseProgressLevel1("Reading frequency file " + freqFile);
         try {
             br = new BufferedReader(new FileReader(freqFile));
@@ -265,6 +346,12 @@ public class Dataset {
                 cnt++;
             }
             Tools.printVerboseProgressLevel1("Read " + cnt + " frequency lines.");
+            if (event.shouldCommit()) {
+                event.file = freqFile;
+                event.bytes = new File(freqFile).length();
+                event.markers = (int) cnt;
+                event.commit();
+            }
         } catch (IOException ex) {
             Tools.exit("Could not read frequency file " + freqFile);
         }
@@ -326,24 +413,24 @@ public class Dataset {
                         lineCnt++;
                         continue;
                     }
-                    if (lastPos > -1 && parsedPos > this.getPhysPos().get(currIndex)) {
-                        Tools.warning("Warning: Missing position " + this.getPhysPos().get(currIndex) + " in posterior file. Setting mask to 0 for everyone.");
+                    if (lastPos > -1 && parsedPos > getMarkers().getPhysPos(currIndex)) {
+                        Tools.warning("Warning: Missing position " + getMarkers().getPhysPos(currIndex) + " in posterior file. Setting mask to 0 for everyone.");
                         for (Individual ind : getIndividuals().values()) {
-                            ind.getMask().set(currIndex, false);
+                            ind.setMissing(currIndex);
                         }
                         currIndex++;
                         lineCnt++;
                         continue;
                     }
-                    if (!physToID.containsKey(parsedPos)) {
+                    if (getMarkers().lastIndexAtPhys(parsedPos) < 0) {
 //                        System.out.println("Nope " + parsedPos);
                         line = br.readLine();
                         lineCnt++;
                         continue;
                     }
-                    if (parsedPos != this.getPhysPos().get(currIndex) || currIndex != getPhysToIndex().get(parsedPos)) {
+                    if (parsedPos != getMarkers().getPhysPos(currIndex) || currIndex != getMarkers().lastIndexAtPhys(parsedPos)) {
                         Tools.exit("Mismatch of index/position in posteriors. " + parsedPos + "\t"
-                                + this.getPhysPos().get(currIndex) + "\t" + currIndex + "\t" + getPhysToIndex().get(parsedPos));
+                                + getMarkers().getPhysPos(currIndex) + "\t" + currIndex + "\t" + getMarkers().lastIndexAtPhys(parsedPos));
                     }
                     for (int i = 3; i < strSplit.length; i += 4) {
                         float probAA = Float.parseFloat(strSplit[i]);
@@ -365,7 +452,7 @@ public class Dataset {
                         } else {
                             Individual ind = getIndividuals().get(IDorder.get(count));
                             if (!(posterior >= posteriorFrom && posterior <= posteriorTo)) {
-                                ind.getMask().set(currIndex, false);
+                                ind.setMissing(currIndex);
                             }
                             if (storePosterior) {
                                 ind.getPosteriors().add(posterior);
@@ -399,75 +486,29 @@ public class Dataset {
     }
 
     /**
-     * @return the SNP_IDs
-     */
-    public ArrayList<String> getSNP_IDs() {
-        return SNP_IDs;
-    }
-
-    /**
-     * @param SNP_IDs the SNP_IDs to set
-     */
-    public void setSNP_IDs(ArrayList<String> SNP_IDs) {
-        this.SNP_IDs = SNP_IDs;
-    }
-
-    /**
-     * @return the genToIndex
-     */
-    public TreeMap<Double, Integer> getGenToIndex() {
-        return genToIndex;
-    }
-
-    /**
-     * @param genToIndex the genToIndex to set
-     */
-    public void setGenToIndex(TreeMap<Double, Integer> genToIndex) {
-        this.genToIndex = genToIndex;
-    }
-
-    /**
-     * @return the physToIndex
+     * @return the markers
      */
-    public TreeMap<Integer, Integer> getPhysToIndex() {
-        return physToIndex;
+    public MarkerIndex getMarkers() {
+        return markers;
     }
 
     /**
-     * @param physToIndex the physToIndex to set
+     * @param markers the markers to set
      */
-    public void setPhysToIndex(TreeMap<Integer, Integer> physToIndex) {
-        this.physToIndex = physToIndex;
+    public void setMarkers(MarkerIndex markers) {
+        this.markers = markers;
     }
 
     /**
-     * @return the genToPhys
+     * @return the genetic to physical interpolation of the markers
      */
-    public TreeMap<Double, Integer> getGenToPhys() {
+    public GeneticMapInterpolator getGenToPhys() {
+        if (genToPhys == null) {
+            genToPhys = new GeneticMapInterpolator(getMarkers());
+        }
         return genToPhys;
     }
 
-    /**
-     * @param genToPhys the genToPhys to set
-     */
-    public void setGenToPhys(TreeMap<Double, Integer> genToPhys) {
-        this.genToPhys = genToPhys;
-    }
-
-    /**
-     * @return the idToGen
-     */
-    public TreeMap<String, Double> getIdToGen() {
-        return IDToGen;
-    }
-
-    /**
-     * @param idToGen the idToGen to set
-     */
-    public void setIdToGen(TreeMap<String, Double> idToGen) {
-        this.IDToGen = idToGen;
-    }
-
     /**
      * @return the IDToFreq
      */
@@ -496,62 +537,6 @@ public class Dataset {
         this.IDToVarCounts = IDToVarCounts;
     }
 
-    /**
-     * @return the genPosArray
-     */
-    public ArrayList<Double> getGenPosArray() {
-        return genPosArray;
-    }
-
-    /**
-     * @param genPosArray the genPosArray to set
-     */
-    public void setGenPosArray(ArrayList<Double> genPosArray) {
-        this.genPosArray = genPosArray;
-    }
-
-    /**
-     * @return the physPos
-     */
-    public ArrayList<Integer> getPhysPos() {
-        return physPos;
-    }
-
-    /**
-     * @param physPos the physPos to set
-     */
-    public void setPhysPos(ArrayList<Integer> physPos) {
-        this.physPos = physPos;
-    }
-
-    /**
-     * @return the IDtoPos
-     */
-    public TreeMap<String, Integer> getIDtoPos() {
-        return IDtoPos;
-    }
-
-    /**
-     * @param IDtoPos the IDtoPos to set
-     */
-    public void setIDtoPos(TreeMap<String, Integer> IDtoPos) {
-        this.IDtoPos = IDtoPos;
-    }
-
-    /**
-     * @return the PhysToID
-     */
-    public TreeMap<Integer, String> getPhysToID() {
-        return physToID;
-    }
-
-    /**
-     * @param PhysToID the PhysToID to set
-     */
-    public void setPhysToID(TreeMap<Integer, String> PhysToID) {
-        this.physToID = PhysToID;
-    }
-
     /**
      * @return the individuals
      */
@@ -622,13 +607,6 @@ public class Dataset {
         this.haveFreq = haveFreq;
     }
 
-    /**
-     * @return the roundTo
-     */
-    public double getRoundTo() {
-        return roundTo;
-    }
-
     /**
      * @return the totDiff
      */
@@ -0,0 +1,228 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A directory of the binary files of loaded datasets (see BinaryDataset),
+ * read instead of the input files of a region in later runs.
+ *
+ * Entries are named by a hash of the input files (their size, modification
+ * time and a fingerprint of their content) and of the options used to load
+ * them, so that an entry is only read while its inputs and options are
+ * unchanged; entries of changed inputs are never read again and are
+ * eventually evicted. Entries are written atomically, and reading an entry
+ * marks it as recently used. When the directory exceeds its size, the least
+ * recently used entries are deleted.
+ *
+ * @author Pier Palamara
+ */
+class DatasetCache {
+
+    private static final String extension = ".bin";
+    // bytes hashed at the start and at the end of each input file
+    private static final int fingerprintBytes = 1 << 20;
+    // temporary files of writes interrupted more than a day ago are deleted
+    private static final long staleTmpMillis = 24L * 3600 * 1000;
+    // entries written by the loaders of the process are evicted one at a time
+    private static final Object evictionLock = new Object();
+
+    private final File dir;
+    private final long maxBytes;
+
+    /**
+     * @param dir the cache directory, created if needed
+     * @param sizeMB the size limit of the directory
+     */
+    public DatasetCache(String dir, long sizeMB) {
+        this.dir = new File(dir);
+        this.maxBytes = sizeMB << 20;
+    }
+
+    /**
+     * @return the key of the dataset of a region: a hash of its input files
+     * and of the options that affect how they are loaded
+     */
+    static String getKey(AnalysisConfig config, String pedFile) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IOException(ex);
+        }
+        StringBuilder options = new StringBuilder("version\t").append(BinaryDataset.version);
+        if (config.usePosteriors()) {
+            options.append("\tposteriors\t").append(config.getPosteriorFrom()).append("\t").append(config.getPosteriorTo())
+                    .append("\t").append(config.isStorePosterior());
+        }
+        digest.update(options.toString().getBytes("UTF-8"));
+        addFile(digest, pedFile + ".ped.gz");
+        addFile(digest, pedFile + ".map");
+        addFile(digest, pedFile + ".frq");
+        if (config.usePosteriors()) {
+            addFile(digest, pedFile + ".post.gz");
+        }
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b & 0xff));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Adds the size, modification time and the first and last
+     * fingerprintBytes of file to digest.
+     */
+    private static void addFile(MessageDigest digest, String file) throws IOException {
+        File f = new File(file);
+        digest.update(("\nfile\t" + f.length() + "\t" + f.lastModified() + "\n").getBytes("UTF-8"));
+        if (!f.isFile()) {
+            return;
+        }
+        RandomAccessFile in = new RandomAccessFile(f, "r");
+        try {
+            byte[] bytes = new byte[(int) Math.min(f.length(), fingerprintBytes)];
+            in.readFully(bytes);
+            digest.update(bytes);
+            if (f.length() > fingerprintBytes) {
+                in.seek(Math.max(fingerprintBytes, f.length() - fingerprintBytes));
+                bytes = new byte[(int) (f.length() - in.getFilePointer())];
+                in.readFully(bytes);
+                digest.update(bytes);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    public File getEntry(String key) {
+        return new File(dir, key + extension);
+    }
+
+    /**
+     * @return the dataset stored with key, or null if there is none. Entries
+     * that cannot be read are deleted.
+     */
+    public Dataset get(String key, int threads) {
+        File entry = getEntry(key);
+        if (!entry.isFile()) {
+            return null;
+        }
+        Tools.printProgress("Loading data from " + entry);
+        try {
+            Dataset data = BinaryDataset.read(entry.getPath(), threads);
+            entry.setLastModified(System.currentTimeMillis());
+            return data;
+        } catch (IOException ex) {
+            Tools.warning("Warning: discarding cached dataset " + entry + ": " + ex.getMessage());
+            entry.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Stores data with key, then evicts the least recently used entries if
+     * the directory exceeds its size. Failures are reported as warnings, as
+     * the dataset has been loaded anyway.
+     */
+    public void put(String key, Dataset data, int threads) {
+        File entry = getEntry(key);
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+            Tools.warning("Warning: could not create cache directory " + dir);
+            return;
+        }
+        Tools.printVerboseProgressLevel2("Caching data in " + entry);
+        try {
+            BinaryDataset.write(data, entry.getPath(), threads);
+        } catch (IOException ex) {
+            Tools.warning("Warning: could not cache dataset in " + entry + ": " + ex.getMessage());
+            return;
+        }
+        evict(entry);
+    }
+
+    /**
+     * A file of the directory, with its time of last use and length read
+     * once, as other processes may touch entries while they are sorted.
+     */
+    private static class CachedFile {
+
+        final File file;
+        final long modified;
+        final long length;
+
+        CachedFile(File file) {
+            this.file = file;
+            this.modified = file.lastModified();
+            this.length = file.length();
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries other than keep until the
+     * directory fits in its size, and the temporary files of interrupted
+     * writes.
+     */
+    private void evict(File keep) {
+        synchronized (evictionLock) {
+            File[] listed = dir.listFiles();
+            if (listed == null) {
+                return;
+            }
+            CachedFile[] files = new CachedFile[listed.length];
+            for (int i = 0; i < listed.length; i++) {
+                files[i] = new CachedFile(listed[i]);
+            }
+            // most recently used first
+            Arrays.sort(files, new Comparator<CachedFile>() {
+                public int compare(CachedFile f1, CachedFile f2) {
+                    return (f1.modified > f2.modified) ? -1 : ((f1.modified < f2.modified) ? 1 : 0);
+                }
+            });
+            long now = System.currentTimeMillis();
+            long bytes = 0;
+            for (CachedFile cached : files) {
+                File file = cached.file;
+                if (file.getName().endsWith(".tmp")) {
+                    if (now - cached.modified > staleTmpMillis) {
+                        file.delete();
+                    }
+                    continue;
+                }
+                if (!file.getName().endsWith(extension)) {
+                    continue;
+                }
+                bytes += cached.length;
+                if (bytes > maxBytes && !file.equals(keep)) {
+                    Tools.printVerboseProgressLevel2("Evicting cached dataset " + file);
+                    bytes -= cached.length;
+                    file.delete();
+                }
+            }
+        }
+    }
+}
@@ -24,6 +24,7 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  *
@@ -34,9 +35,46 @@ public class Demography {
     ArrayList<Double> timesInput = new ArrayList<Double>();
     ArrayList<Double> sizesInput = new ArrayList<Double>();
     ArrayList<Double> sizePerGenStartingAtZero = new ArrayList<Double>();
+    // sizePerGenStartingAtZero up to maxGen, padded with the ancestral size
+    private double[] sizePerGen;
+    // ages of segments by their length range, shared by all estimates using this demography
+    private final ConcurrentHashMap<SegmentLengths, Double> agesOfSegments = new ConcurrentHashMap<SegmentLengths, Double>();
 
     static final int maxGen = 10000;
 
+    /**
+     * The arguments of getAgeOfSegment.
+     */
+    private static final class SegmentLengths {
+
+        private final double fromLen;
+        private final double toLen;
+        private final boolean upperInfinite;
+
+        SegmentLengths(double fromLen, double toLen, boolean upperInfinite) {
+            this.fromLen = fromLen;
+            this.toLen = toLen;
+            this.upperInfinite = upperInfinite;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SegmentLengths)) {
+                return false;
+            }
+            SegmentLengths other = (SegmentLengths) o;
+            return Double.doubleToLongBits(fromLen) == Double.doubleToLongBits(other.fromLen)
+                    && Double.doubleToLongBits(toLen) == Double.doubleToLongBits(other.toLen)
+                    && upperInfinite == other.upperInfinite;
+        }
+
+        @Override
+        public int hashCode() {
+            long bits = 31 * Double.doubleToLongBits(fromLen) + Double.doubleToLongBits(toLen);
+            return (int) (bits ^ (bits >>> 32)) * 2 + ((upperInfinite) ? 1 : 0);
+        }
+    }
+
     public Demography(String fileName) throws IOException {
         Tools.printProgress("Reading demography from file " + fileName);
         BufferedReader br = null;
@@ -77,18 +115,51 @@ public class Demography {
             }
         }
         sizePerGenStartingAtZero.add(sizesInput.get(sizesInput.size() - 1));
+        double ancestral = sizePerGenStartingAtZero.get(sizePerGenStartingAtZero.size() - 1);
+        sizePerGen = new double[maxGen];
+        for (int gen = 0; gen < maxGen; gen++) {
+            sizePerGen[gen] = gen < sizePerGenStartingAtZero.size() ? sizePerGenStartingAtZero.get(gen) : ancestral;
+        }
+    }
+
+    /**
+     * Computes the ages of segments in the length bins starting at fromLens,
+     * each binLength long, so that estimates using them do not compute them
+     * again.
+     */
+    public void precomputeAgesOfSegments(double[] fromLens, double binLength, boolean upperInfinite) {
+        for (double fromLen : fromLens) {
+            getAgeOfSegment(fromLen, fromLen + binLength, upperInfinite);
+        }
     }
 
+    /**
+     * @return the expected age of segments with length in [fromLen, toLen)
+     * cM, or longer than fromLen if upperInfinite. Ages are computed once
+     * for each length range; this is safe to call from several threads.
+     */
     public double getAgeOfSegment(double fromLen, double toLen, boolean upperInfinite) {
+        SegmentLengths key = new SegmentLengths(fromLen, toLen, upperInfinite);
+        Double age = agesOfSegments.get(key);
+        if (age == null) {
+            age = computeAgeOfSegment(fromLen, toLen, upperInfinite);
+            agesOfSegments.putIfAbsent(key, age);
+        }
+        return age;
+    }
+
+    /**
+     * @return the age returned by getAgeOfSegment, computed without memoization
+     */
+    double computeAgeOfSegment(double fromLen, double toLen, boolean upperInfinite) {
         fromLen /= 100.; //in cM
         toLen /= 100.; //in cM
         double pNotCoal = 1;
-        ArrayList<Double> segCoalPerGenStartingAtZero = new ArrayList<Double>();
-        segCoalPerGenStartingAtZero.add(0.); // can't coal at gen 0;
+        double[] segCoalPerGenStartingAtZero = new double[maxGen];
+        segCoalPerGenStartingAtZero[0] = 0.; // can't coal at gen 0;
         double tot = 0;
-        double ancestral = sizePerGenStartingAtZero.get(sizePerGenStartingAtZero.size() - 1);
         for (int gen = 1; gen < maxGen; gen++) {
-            double popSize = gen < sizePerGenStartingAtZero.size() ? sizePerGenStartingAtZero.get(gen) : ancestral;
+            double popSize = sizePerGen[gen];
             double pCoal = 1 / popSize;
             double thisSegCoal;
             if (fromLen == toLen) {
@@ -98,13 +169,13 @@ public class Demography {
                         ? pCoal * pNotCoal * 2 * Math.exp(-2 * gen * fromLen) * gen
                         : pCoal * pNotCoal * ((2 * Math.exp(-2 * gen * toLen) * gen) - (2 * Math.exp(-2 * gen * fromLen) * gen));
             }
-            segCoalPerGenStartingAtZero.add(thisSegCoal);
+            segCoalPerGenStartingAtZero[gen] = thisSegCoal;
             pNotCoal = pNotCoal * (1 - pCoal);
             tot += thisSegCoal;
         }
         double expAge = 0.0;
         for (int gen = 1; gen < maxGen; gen++) {
-            expAge += gen * segCoalPerGenStartingAtZero.get(gen) / tot;
+            expAge += gen * segCoalPerGenStartingAtZero[gen] / tot;
         }
         return expAge;
     }
@@ -0,0 +1,75 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+/**
+ * A jackknife estimate and its standard error.
+ *
+ * @author Pier Palamara
+ */
+public class Estimate {
+
+    private final double value;
+    private final double standardError;
+
+    public Estimate(double value, double standardError) {
+        this.value = value;
+        this.standardError = standardError;
+    }
+
+    /**
+     * @param jackknife the estimate and standard error, as returned by
+     * Tools.weightedBlockJackknife
+     */
+    public Estimate(Pair<Double, Double> jackknife) {
+        this(jackknife.getKey(), jackknife.getValue());
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public double getStandardError() {
+        return standardError;
+    }
+
+    /**
+     * @return the lower bound of the 95% confidence interval
+     */
+    public double getLowerBound() {
+        return value - 1.959964 * standardError;
+    }
+
+    /**
+     * @return the upper bound of the 95% confidence interval
+     */
+    public double getUpperBound() {
+        return value + 1.959964 * standardError;
+    }
+
+    /**
+     * @return the estimate, standard error and confidence interval, as
+     * printed in results
+     */
+    @Override
+    public String toString() {
+        return value + "\ts.e.\t" + standardError + "\tC.I.\t" + getLowerBound() + "\t" + getUpperBound();
+    }
+}
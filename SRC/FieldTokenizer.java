@@ -0,0 +1,128 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Splits a line of bytes into whitespace-separated fields, as
+ * String.split("\\s+") does, recording where each field starts and ends.
+ * Fields are only decoded when they are requested.
+ *
+ * @author Pier Palamara
+ */
+class FieldTokenizer {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private byte[] line;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int numFields = 0;
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+    }
+
+    public void tokenize(byte[] line, int length) {
+        this.line = line;
+        numFields = 0;
+        int pos = 0;
+        if (length > 0 && isWhitespace(line[0])) {
+            // leading whitespace gives an empty first field
+            addField(0, 0);
+        }
+        while (pos < length) {
+            while (pos < length && isWhitespace(line[pos])) {
+                pos++;
+            }
+            int start = pos;
+            while (pos < length && !isWhitespace(line[pos])) {
+                pos++;
+            }
+            if (pos > start) {
+                addField(start, pos);
+            }
+        }
+        if (length == 0) {
+            // an empty line has one empty field
+            addField(0, 0);
+        } else if (numFields == 1 && ends[0] == 0) {
+            // a line of whitespace has none
+            numFields = 0;
+        }
+    }
+
+    private void addField(int start, int end) {
+        if (numFields == starts.length) {
+            starts = Arrays.copyOf(starts, 2 * numFields);
+            ends = Arrays.copyOf(ends, 2 * numFields);
+        }
+        starts[numFields] = start;
+        ends[numFields] = end;
+        numFields++;
+    }
+
+    public int getNumFields() {
+        return numFields;
+    }
+
+    private void checkField(int field) {
+        if (field >= numFields) {
+            throw new ArrayIndexOutOfBoundsException(field);
+        }
+    }
+
+    public String getString(int field) {
+        checkField(field);
+        return new String(line, starts[field], ends[field] - starts[field], UTF8);
+    }
+
+    /**
+     * @return the field parsed as Integer.parseInt would
+     */
+    public int getInt(int field) {
+        checkField(field);
+        int pos = starts[field];
+        int end = ends[field];
+        boolean negative = pos < end && line[pos] == '-';
+        if (pos < end && (line[pos] == '-' || line[pos] == '+')) {
+            pos++;
+        }
+        // at most 9 digits cannot overflow; anything else is left to Integer.parseInt
+        if (pos == end || end - pos > 9) {
+            return Integer.parseInt(getString(field));
+        }
+        int value = 0;
+        for (; pos < end; pos++) {
+            int digit = line[pos] - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(getString(field));
+            }
+            value = 10 * value + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    public double getDouble(int field) {
+        return Double.parseDouble(getString(field));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+import java.util.Arrays;
+
+/**
+ * Piecewise-linear conversion of genetic to physical coordinates. Knots are
+ * the distinct genetic positions of the map, each with the physical position
+ * of the last marker at that genetic position. Positions outside the map
+ * convert to 0, as they always have.
+ *
+ * @author Pier Palamara
+ */
+public class GeneticMapInterpolator {
+
+    private final double[] knotGen;
+    private final int[] knotPhys;
+
+    public GeneticMapInterpolator(MarkerIndex markers) {
+        int numKnots = 0;
+        double[] gen = new double[markers.size()];
+        int[] phys = new int[markers.size()];
+        for (int i = 0; i < markers.size(); i++) {
+            if (numKnots > 0 && gen[numKnots - 1] == markers.getGenPos(i)) {
+                phys[numKnots - 1] = markers.getPhysPos(i);
+            } else {
+                gen[numKnots] = markers.getGenPos(i);
+                phys[numKnots] = markers.getPhysPos(i);
+                numKnots++;
+            }
+        }
+        knotGen = Arrays.copyOf(gen, numKnots);
+        knotPhys = Arrays.copyOf(phys, numKnots);
+    }
+
+    /**
+     * @return the physical position at genetic position pos
+     */
+    public int toPhys(double pos) {
+        int low = 0, high = knotGen.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (knotGen[mid] <= pos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return interpolate(low - 1, pos);
+    }
+
+    /**
+     * Converts count genetic positions to physical positions. Runs of
+     * non-decreasing positions are converted by walking the knots instead of
+     * searching for each of them.
+     */
+    public void toPhys(double[] pos, int[] phys, int count) {
+        int knot = -1;
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && pos[i] < pos[i - 1]) {
+                phys[i] = toPhys(pos[i]);
+                knot = -1;
+                continue;
+            }
+            while (knot + 1 < knotGen.length && knotGen[knot + 1] <= pos[i]) {
+                knot++;
+            }
+            phys[i] = interpolate(knot, pos[i]);
+        }
+    }
+
+    /**
+     * @return the physical position at pos, given the last knot at or before
+     * pos (-1 if there is none)
+     */
+    private int interpolate(int floor, double pos) {
+        int from = (floor >= 0) ? floor : 0;
+        if (floor >= 0 && knotGen[floor] == pos) {
+            // exact match in map
+            return knotPhys[floor];
+        }
+        int to = (floor + 1 < knotGen.length) ? floor + 1 : floor;
+        double fromPhys = knotPhys[from];
+        double totPhysDist = knotPhys[to] - fromPhys;
+        double totGenDist = knotGen[to] - knotGen[from];
+        double fraction = (pos - knotGen[from]) / totGenDist;
+        return (int) Math.round(fromPhys + fraction * totPhysDist);
+    }
+}
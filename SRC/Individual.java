@@ -20,7 +20,7 @@ under the License.
 package IBDMUT;
 
 import java.util.ArrayList;
-import java.util.BitSet;
+import java.util.Arrays;
 
 /**
  *
@@ -28,8 +28,9 @@ import java.util.BitSet;
  */
 public class Individual {
 
-    private BitSet bitSeq;
-    private BitSet mask;
+    // alleles and observed sites, a bit per site in words of 64 sites
+    private long[] bitWords;
+    private long[] maskWords;
     
     private ArrayList<Float> posteriors = new ArrayList<Float>();
     
@@ -40,58 +41,86 @@ public class Individual {
     private String sex;
     private String pheno;
 
-    public Individual(String famId, String indId, String patId, String matId, String sex, String pheno, BitSet bitSeq, BitSet mask) {
+    /**
+     * The words of alleles and observed sites are kept, not copied.
+     */
+    public Individual(String famId, String indId, String patId, String matId, String sex, String pheno, long[] bitWords, long[] maskWords) {
         this.famId = famId;
         this.indId = indId;
         this.matId = matId;
         this.patId = patId;
         this.sex = sex;
         this.pheno = pheno;
-        this.bitSeq = bitSeq;
-        this.mask = mask;
+        this.bitWords = bitWords;
+        this.maskWords = maskWords;
     }
 
     public void printFromBitSet(ArrayList<Variant> variants) {
         StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < getBitSeq().size(); i++) {
+        for (int i = 0; i < 64 * bitWords.length; i++) {
             sb.append(' ');
             Variant currVar = variants.get(i);
-            char thisVar = (getBitSeq().get(i)) ? currVar.getVarOne() : currVar.getVarZero();
+            char thisVar = (getAllele(i)) ? currVar.getVarOne() : currVar.getVarZero();
             sb.append(thisVar);
         }
         System.out.println(getFam() + sb);
     }
 
-    String getFam() {
-        return this.getFamId() + "\t" + this.getIndId() + "\t" + this.getMatId() + "\t" + this.getPatId() + "\t" + this.getSex() + "\t" + this.getPheno();
+    /**
+     * Resizes the words of alleles and observed sites to numSites sites.
+     */
+    public void updateWords(int numSites) {
+        int numWords = (numSites + 63) >>> 6;
+        if (bitWords.length != numWords) {
+            bitWords = Arrays.copyOf(bitWords, numWords);
+        }
+        if (maskWords.length != numWords) {
+            maskWords = Arrays.copyOf(maskWords, numWords);
+        }
     }
 
     /**
-     * @return the bitSeq
+     * @return true if the allele at site is the second allele of its variant
      */
-    public BitSet getBitSeq() {
-        return bitSeq;
+    public boolean getAllele(int site) {
+        int word = site >>> 6;
+        return word < bitWords.length && (bitWords[word] & (1L << site)) != 0;
     }
 
     /**
-     * @param bitSeq the bitSeq to set
+     * @return true if the allele at site is not missing
      */
-    public void setBitSeq(BitSet bitSeq) {
-        this.bitSeq = bitSeq;
+    public boolean isObserved(int site) {
+        int word = site >>> 6;
+        return word < maskWords.length && (maskWords[word] & (1L << site)) != 0;
+    }
+
+    /**
+     * Marks the allele at site as missing.
+     */
+    public void setMissing(int site) {
+        int word = site >>> 6;
+        if (word < maskWords.length) {
+            maskWords[word] &= ~(1L << site);
+        }
+    }
+
+    String getFam() {
+        return this.getFamId() + "\t" + this.getIndId() + "\t" + this.getMatId() + "\t" + this.getPatId() + "\t" + this.getSex() + "\t" + this.getPheno();
     }
 
     /**
-     * @return the mask
+     * @return the bitWords
      */
-    public BitSet getMask() {
-        return mask;
+    public long[] getBitWords() {
+        return bitWords;
     }
 
     /**
-     * @param mask the mask to set
+     * @return the maskWords
      */
-    public void setMask(BitSet mask) {
-        this.mask = mask;
+    public long[] getMaskWords() {
+        return maskWords;
     }
 
     /**
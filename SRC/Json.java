@@ -0,0 +1,254 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * Reads and writes the JSON of the analysis server. Objects are read as
+ * LinkedHashMaps, arrays as ArrayLists, numbers as BigDecimals (so that they
+ * keep the digits they were written with), and true, false and null as
+ * Booleans and null.
+ *
+ * @author Pier Palamara
+ */
+class Json {
+
+    private final String text;
+    private int pos = 0;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @throws IllegalArgumentException if text is not a JSON value
+     */
+    public static Object parse(String text) {
+        Json json = new Json(text);
+        Object value = json.readValue();
+        json.skipWhitespace();
+        if (json.pos != text.length()) {
+            throw json.error("Unexpected text after JSON value");
+        }
+        return value;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at character " + pos + ".");
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private char peek() {
+        skipWhitespace();
+        if (pos == text.length()) {
+            throw error("Unexpected end of JSON");
+        }
+        return text.charAt(pos);
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("Expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    private boolean readLiteral(String literal) {
+        if (text.startsWith(literal, pos)) {
+            pos += literal.length();
+            return true;
+        }
+        return false;
+    }
+
+    private Object readValue() {
+        char c = peek();
+        if (c == '{') {
+            return readObject();
+        } else if (c == '[') {
+            return readArray();
+        } else if (c == '"') {
+            return readString();
+        } else if (readLiteral("true")) {
+            return Boolean.TRUE;
+        } else if (readLiteral("false")) {
+            return Boolean.FALSE;
+        } else if (readLiteral("null")) {
+            return null;
+        }
+        return readNumber();
+    }
+
+    private LinkedHashMap<String, Object> readObject() {
+        LinkedHashMap<String, Object> object = new LinkedHashMap<String, Object>();
+        expect('{');
+        if (peek() == '}') {
+            pos++;
+            return object;
+        }
+        while (true) {
+            if (peek() != '"') {
+                throw error("Expected a string key");
+            }
+            String key = readString();
+            expect(':');
+            object.put(key, readValue());
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect('}');
+                return object;
+            }
+        }
+    }
+
+    private ArrayList<Object> readArray() {
+        ArrayList<Object> array = new ArrayList<Object>();
+        expect('[');
+        if (peek() == ']') {
+            pos++;
+            return array;
+        }
+        while (true) {
+            array.add(readValue());
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect(']');
+                return array;
+            }
+        }
+    }
+
+    private String readString() {
+        expect('"');
+        StringBuilder string = new StringBuilder();
+        while (true) {
+            if (pos == text.length()) {
+                throw error("Unterminated string");
+            }
+            char c = text.charAt(pos++);
+            if (c == '"') {
+                return string.toString();
+            }
+            if (c != '\\') {
+                string.append(c);
+                continue;
+            }
+            if (pos == text.length()) {
+                throw error("Unterminated string");
+            }
+            c = text.charAt(pos++);
+            switch (c) {
+                case 'b':
+                    string.append('\b');
+                    break;
+                case 'f':
+                    string.append('\f');
+                    break;
+                case 'n':
+                    string.append('\n');
+                    break;
+                case 'r':
+                    string.append('\r');
+                    break;
+                case 't':
+                    string.append('\t');
+                    break;
+                case 'u':
+                    if (pos + 4 > text.length()) {
+                        throw error("Invalid unicode escape");
+                    }
+                    try {
+                        string.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("Invalid unicode escape");
+                    }
+                    pos += 4;
+                    break;
+                default:
+                    // '"', '\\' and '/'
+                    string.append(c);
+            }
+        }
+    }
+
+    private BigDecimal readNumber() {
+        int start = pos;
+        while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+            pos++;
+        }
+        try {
+            return new BigDecimal(text.substring(start, pos));
+        } catch (NumberFormatException ex) {
+            pos = start;
+            throw error("Invalid JSON value");
+        }
+    }
+
+    /**
+     * @return s as a JSON string
+     */
+    public static String quote(String s) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * @return value as a JSON number, or null if it is not finite
+     */
+    public static String number(double value) {
+        return (Double.isNaN(value) || Double.isInfinite(value)) ? "null" : Double.toString(value);
+    }
+}
@@ -69,13 +69,13 @@ public class LinearRegression {
     double[] Ycalc;         // Calculated values of Y
     double[] DY;            // Residual values of Y
 
-    private static boolean printReg = false;
+    private boolean printReg = false;
 
-    public static void setPrintReg(boolean value) {
+    public void setPrintReg(boolean value) {
         printReg = value;
     }
 
-    public static boolean getPrintReg() {
+    public boolean getPrintReg() {
         return printReg;
     }
 
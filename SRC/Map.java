@@ -19,9 +19,6 @@ under the License.
 
 package IBDMUT;
 
-import java.util.ArrayList;
-import java.util.TreeMap;
-
 /**
  *
  * @author Pier Palamara
@@ -29,19 +26,11 @@ import java.util.TreeMap;
 class Map {
 
     private String chr;
-    private ArrayList<String> ID;
-    private TreeMap<Double, Integer> genPos;
-    private ArrayList<Double> genPosArray;
-    private ArrayList<Integer> physPos;
-    private int size;
+    private MarkerIndex markers;
 
-    public Map(String chr, ArrayList<String> ID, TreeMap<Double, Integer> genPos, ArrayList<Integer> physPos) {
+    public Map(String chr, MarkerIndex markers) {
         this.chr = chr;
-        this.ID = ID;
-        this.genPos = genPos;
-        this.physPos = physPos;
-        this.size = physPos.size();
-        genPosArray = new ArrayList<Double>(genPos.keySet());
+        this.markers = markers;
     }
 
     /**
@@ -59,72 +48,23 @@ class Map {
     }
 
     /**
-     * @return the ID
-     */
-    public ArrayList<String> getID() {
-        return ID;
-    }
-
-    /**
-     * @param ID the ID to set
+     * @return the markers
      */
-    public void setID(ArrayList<String> ID) {
-        this.ID = ID;
+    public MarkerIndex getMarkers() {
+        return markers;
     }
 
     /**
-     * @return the genPos
+     * @param markers the markers to set
      */
-    public TreeMap<Double, Integer> getGenPos() {
-        return genPos;
-    }
-
-    /**
-     * @param genPos the genPos to set
-     */
-    public void setGenPos(TreeMap<Double, Integer> genPos) {
-        this.genPos = genPos;
-    }
-
-    /**
-     * @return the genPosArray
-     */
-    public ArrayList<Double> getGenPosArray() {
-        return genPosArray;
-    }
-
-    /**
-     * @param genPosArray the genPosArray to set
-     */
-    public void setGenPosArray(ArrayList<Double> genPosArray) {
-        this.genPosArray = genPosArray;
-    }
-
-    /**
-     * @return the physPos
-     */
-    public ArrayList<Integer> getPhysPos() {
-        return physPos;
-    }
-
-    /**
-     * @param physPos the physPos to set
-     */
-    public void setPhysPos(ArrayList<Integer> physPos) {
-        this.physPos = physPos;
+    public void setMarkers(MarkerIndex markers) {
+        this.markers = markers;
     }
 
     /**
      * @return the size
      */
     public int getSize() {
-        return size;
-    }
-
-    /**
-     * @param size the size to set
-     */
-    public void setSize(int size) {
-        this.size = size;
+        return markers.size();
     }
 }
@@ -0,0 +1,207 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+/**
+ * Markers of a map file stored in primitive arrays, in map order. Genetic and
+ * physical positions are non-decreasing, so position lookups are binary
+ * searches. Where several markers share a position or an ID, lookups return
+ * the last of them, as the maps previously keyed by position or ID did.
+ *
+ * @author Pier Palamara
+ */
+public class MarkerIndex {
+
+    private String[] IDs;
+    private double[] genPos;
+    private int[] physPos;
+    // open-addressing hash table of marker index + 1 by ID, 0 for empty slots
+    private int[] IDTable;
+
+    public MarkerIndex(String[] IDs, double[] genPos, int[] physPos) {
+        this.IDs = IDs;
+        this.genPos = genPos;
+        this.physPos = physPos;
+        IDTable = new int[Integer.highestOneBit(Math.max(2 * IDs.length, 2) - 1) << 1];
+        for (int i = 0; i < IDs.length; i++) {
+            int slot = findSlot(IDs[i]);
+            // later markers replace earlier ones with the same ID
+            IDTable[slot] = i + 1;
+        }
+    }
+
+    /**
+     * @return the slot holding ID, or the empty slot where it would be added
+     */
+    private int findSlot(String ID) {
+        int mask = IDTable.length - 1;
+        int h = ID.hashCode();
+        int slot = (h ^ (h >>> 16)) & mask;
+        while (IDTable[slot] != 0 && !IDs[IDTable[slot] - 1].equals(ID)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    public int size() {
+        return physPos.length;
+    }
+
+    public String getID(int index) {
+        return IDs[index];
+    }
+
+    public double getGenPos(int index) {
+        return genPos[index];
+    }
+
+    public int getPhysPos(int index) {
+        return physPos[index];
+    }
+
+    /**
+     * @return the index of the last marker with this ID, or -1 if there is
+     * none
+     */
+    public int indexOfID(String ID) {
+        return IDTable[findSlot(ID)] - 1;
+    }
+
+    /**
+     * @return the index of the last marker at physical position pos, or -1 if
+     * there is none
+     */
+    public int lastIndexAtPhys(int pos) {
+        int floor = physFloorIndex(pos);
+        return (floor >= 0 && physPos[floor] == pos) ? floor : -1;
+    }
+
+    /**
+     * @return the ID of the last marker at physical position pos, or null if
+     * there is none
+     */
+    public String getIDAtPhys(int pos) {
+        int index = lastIndexAtPhys(pos);
+        return (index >= 0) ? IDs[index] : null;
+    }
+
+    /**
+     * @return the index of the last marker at or before physical position
+     * pos, or -1 if there is none
+     */
+    public int physFloorIndex(int pos) {
+        int low = 0, high = physPos.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (physPos[mid] <= pos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * @return the index of the last marker at the first physical position at
+     * or after pos, or -1 if there is none
+     */
+    public int physCeilingIndex(int pos) {
+        int low = 0, high = physPos.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (physPos[mid] < pos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return (low == physPos.length) ? -1 : physFloorIndex(physPos[low]);
+    }
+
+    /**
+     * @return the index of the last marker at or before genetic position pos,
+     * or -1 if there is none
+     */
+    public int genFloorIndex(double pos) {
+        int low = 0, high = genPos.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (genPos[mid] <= pos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * @return the index of the last marker at the first genetic position at or
+     * after pos, or -1 if there is none
+     */
+    public int genCeilingIndex(double pos) {
+        int low = 0, high = genPos.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (genPos[mid] < pos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return (low == genPos.length) ? -1 : genFloorIndex(genPos[low]);
+    }
+
+    /**
+     * @return a hash of the IDs and positions of all markers, which identifies
+     * the map that files indexed by marker were built for
+     */
+    public long getFingerprint() {
+        long hash = physPos.length;
+        for (int i = 0; i < physPos.length; i++) {
+            hash = 31 * hash + IDs[i].hashCode();
+            hash = 31 * hash + physPos[i];
+            hash = 31 * hash + Double.doubleToLongBits(genPos[i]);
+        }
+        return hash;
+    }
+
+    /**
+     * @return the IDs
+     */
+    public String[] getIDs() {
+        return IDs;
+    }
+
+    /**
+     * @return the genPos
+     */
+    public double[] getGenPositions() {
+        return genPos;
+    }
+
+    /**
+     * @return the physPos
+     */
+    public int[] getPhysPositions() {
+        return physPos;
+    }
+}
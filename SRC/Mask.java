@@ -20,6 +20,7 @@ under the License.
 package IBDMUT;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
@@ -41,6 +42,8 @@ public class Mask {
 
     public Mask(String maskFile, String chr) {
         TreeMap<Integer, Integer> myMask = new TreeMap<Integer, Integer>();
+        AnalysisEvents.MaskLoad event = new AnalysisEvents.MaskLoad();
+        event.begin();
         BufferedReader br = null;
         try {
             br = new BufferedReader(new FileReader(maskFile));
@@ -67,6 +70,13 @@ public class Mask {
                 cnt++;
             }
             Tools.printVerboseProgressLevel1("Read " + cnt + " mask lines from " + maskFile);
+            if (event.shouldCommit()) {
+                event.mask = maskFile;
+                event.chromosome = chr;
+                event.bytes = new File(maskFile).length();
+                event.intervals = (int) cnt;
+                event.commit();
+            }
         } catch (IOException ex) {
             Tools.exit("Could not read mask file " + maskFile);
         }
@@ -92,6 +102,37 @@ public class Mask {
         return (pos >= floor.getKey() && pos <= floor.getValue());
     }
 
+    /**
+     * @return a word per 64 markers with bits set for the markers that are in
+     * the mask, i.e. for which contains() is true. physPos must be sorted.
+     */
+    public long[] getSitesInMask(int[] physPos) {
+        long[] words = new long[(physPos.length + 63) >>> 6];
+        java.util.Map.Entry<Integer, Integer> currentRegion = getMask().firstEntry();
+        while (currentRegion != null) {
+            java.util.Map.Entry<Integer, Integer> nextRegion = getMask().higherEntry(currentRegion.getKey());
+            // contains() only checks the last region starting at or before a position
+            long to = currentRegion.getValue();
+            if (nextRegion != null) {
+                to = Math.min(to, (long) nextRegion.getKey() - 1);
+            }
+            int low = 0, high = physPos.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (physPos[mid] < currentRegion.getKey()) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            for (int i = low; i < physPos.length && physPos[i] <= to; i++) {
+                words[i >>> 6] |= 1L << i;
+            }
+            currentRegion = nextRegion;
+        }
+        return words;
+    }
+
     public int getMaskOverlapWithRegion(int fromRegion, int toRegion) {
         int overlap = 0;
         java.util.Map.Entry<Integer, Integer> currentRegion = getMask().floorEntry(fromRegion);
@@ -0,0 +1,248 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The estimates of an analysis for one mask. With the jackknife, these are
+ * the jackknife estimates (null if they were not computed); without it, the
+ * regression fits. Estimates that were not computed are null.
+ *
+ * @author Pier Palamara
+ */
+public class MaskEstimates {
+
+    /**
+     * The jackknife estimate of the probability of a trinucleotide class.
+     */
+    public static class TrinucleotideEstimate {
+
+        private final String trinucleotide;
+        private final double probability;
+        private final Estimate jackknife;
+        private final int regions;
+
+        TrinucleotideEstimate(String trinucleotide, double probability, Estimate jackknife, int regions) {
+            this.trinucleotide = trinucleotide;
+            this.probability = probability;
+            this.jackknife = jackknife;
+            this.regions = regions;
+        }
+
+        public String getTrinucleotide() {
+            return trinucleotide;
+        }
+
+        /**
+         * @return the probability in all regions
+         */
+        public double getProbability() {
+            return probability;
+        }
+
+        /**
+         * @return the jackknife estimate, null if the class was not observed
+         */
+        public Estimate getJackknife() {
+            return jackknife;
+        }
+
+        /**
+         * @return the number of regions left out in the jackknife whose
+         * remaining regions observed the class
+         */
+        public int getRegions() {
+            return regions;
+        }
+    }
+
+    /**
+     * A regression of the mutation rate computed without the jackknife.
+     */
+    public static class RegressionFit {
+
+        private final double intercept;
+        private final double slope;
+        private final double averageSegmentLength;
+        private final double segmentCount;
+
+        RegressionFit(double intercept, double slope, double averageSegmentLength, double segmentCount) {
+            this.intercept = intercept;
+            this.slope = slope;
+            this.averageSegmentLength = averageSegmentLength;
+            this.segmentCount = segmentCount;
+        }
+
+        public double getIntercept() {
+            return intercept;
+        }
+
+        public double getSlope() {
+            return slope;
+        }
+
+        public double getAverageSegmentLength() {
+            return averageSegmentLength;
+        }
+
+        public double getSegmentCount() {
+            return segmentCount;
+        }
+    }
+
+    private final String maskFile;
+    // with the jackknife
+    Double tsTv;
+    Estimate mutationRate;
+    Estimate secondParameter;
+    Estimate uncorrectedMutationRate;
+    Estimate uncorrectedMutationRateDifference;
+    Estimate geneConversionRate;
+    Estimate averageSegmentLength;
+    ArrayList<TrinucleotideEstimate> trinucleotides;
+    // without the jackknife
+    boolean spansMutations = true;
+    RegressionFit maAFRegressionFit;
+    ArrayList<RegressionFit> regionFits;
+
+    MaskEstimates(String maskFile) {
+        this.maskFile = maskFile;
+    }
+
+    public String getMaskFile() {
+        return maskFile;
+    }
+
+    /**
+     * @return the ratio of transitions to transversions, computed without
+     * regression on the MaAF
+     */
+    public Double getTsTv() {
+        return tsTv;
+    }
+
+    public Estimate getMutationRate() {
+        return mutationRate;
+    }
+
+    public Estimate getSecondParameter() {
+        return secondParameter;
+    }
+
+    public Estimate getUncorrectedMutationRate() {
+        return uncorrectedMutationRate;
+    }
+
+    public Estimate getUncorrectedMutationRateDifference() {
+        return uncorrectedMutationRateDifference;
+    }
+
+    public Estimate getGeneConversionRate() {
+        return geneConversionRate;
+    }
+
+    public Estimate getAverageSegmentLength() {
+        return averageSegmentLength;
+    }
+
+    public List<TrinucleotideEstimate> getTrinucleotides() {
+        return (trinucleotides == null) ? null : Collections.unmodifiableList(trinucleotides);
+    }
+
+    /**
+     * @return false if, without the jackknife, no segment spanned the mask
+     */
+    public boolean spansMutations() {
+        return spansMutations;
+    }
+
+    /**
+     * @return the regression on the MaAF, without the jackknife
+     */
+    public RegressionFit getMaAFRegressionFit() {
+        return maAFRegressionFit;
+    }
+
+    /**
+     * @return the regression of each region, without the jackknife and
+     * without regression on the MaAF
+     */
+    public List<RegressionFit> getRegionFits() {
+        return (regionFits == null) ? null : Collections.unmodifiableList(regionFits);
+    }
+
+    /**
+     * @return the lines of results of the command line tool
+     */
+    public ArrayList<String> getLines() {
+        ArrayList<String> lines = new ArrayList<String>();
+        if (!spansMutations) {
+            lines.add("Mask " + maskFile + " did not span any mutations in the mask.");
+            return lines;
+        }
+        if (tsTv != null) {
+            lines.add("Ts/Tv:\t" + tsTv);
+        }
+        if (mutationRate != null) {
+            lines.add("Estimated mutation rate for mask " + maskFile + "\t" + mutationRate);
+            lines.add("Estimated second parameter for mask " + maskFile + "\t" + secondParameter);
+        }
+        if (uncorrectedMutationRate != null) {
+            lines.add("Estimated uncorrected mu for mask " + maskFile + "\t" + uncorrectedMutationRate);
+            lines.add("Estimated uncorrected mu difference for mask " + maskFile + "\t" + uncorrectedMutationRateDifference);
+        }
+        if (geneConversionRate != null) {
+            lines.add("Estimated gene conversion rate for mask " + maskFile + "\t" + geneConversionRate);
+        }
+        if (averageSegmentLength != null) {
+            lines.add("Average IBD segment length spanning mask " + maskFile + "\t" + averageSegmentLength);
+        }
+        if (trinucleotides != null) {
+            lines.add("Trinucleotide results");
+            for (TrinucleotideEstimate trinucleotide : trinucleotides) {
+                lines.add("\t" + trinucleotide.trinucleotide + "\t" + trinucleotide.probability + "\t"
+                        + ((trinucleotide.jackknife != null)
+                                ? trinucleotide.jackknife.getValue() + "\t" + trinucleotide.jackknife.getStandardError() + "\t" + trinucleotide.regions
+                                : "NA\tNA\t0"));
+            }
+        }
+        if (maAFRegressionFit != null) {
+            lines.add("Estimated mutation rate for mask " + maskFile + ". Intercept (mu)\t" + maAFRegressionFit.intercept + "\tslope (~GC)\t" + maAFRegressionFit.slope);
+            lines.add("Average IBD segment length spanning mask " + maskFile + "\t" + maAFRegressionFit.averageSegmentLength);
+            lines.add("Total number of IBD segments spanning mask " + maskFile + "\t" + maAFRegressionFit.segmentCount);
+        }
+        if (regionFits != null) {
+            for (RegressionFit fit : regionFits) {
+                lines.add("Estimated mutation rate for mask " + maskFile + ". Intercept\t" + fit.intercept + "\tslope\t" + fit.slope);
+                lines.add("Average IBD segment length spanning mask " + maskFile + "\t" + fit.averageSegmentLength);
+            }
+        }
+        return lines;
+    }
+
+    public void printResults() {
+        for (String line : getLines()) {
+            Tools.printResult(line);
+        }
+    }
+}
@@ -0,0 +1,428 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Estimates mutation rates for the regions and masks of a configuration. All
+ * the state of an analysis (inputs read from files, thread pools, memory
+ * budget, log) belongs to one run, so analyses can be embedded in other
+ * programs and run at the same time in one JVM. Errors end the analysis with
+ * an AnalysisException, never the JVM.
+ *
+ * @author Pier Palamara
+ */
+public class MutationRateAnalysis {
+
+    private final AnalysisConfig config;
+    // keeps regions between analyses, null if not used
+    private final RegionCache cache;
+
+    public MutationRateAnalysis(AnalysisConfig config) {
+        this(config, null);
+    }
+
+    /**
+     * An analysis that uses the regions of cache, and adds to it those it
+     * loads and counts.
+     */
+    MutationRateAnalysis(AnalysisConfig config, RegionCache cache) {
+        this.config = config;
+        this.cache = cache;
+    }
+
+    public AnalysisConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Analyzes all regions and estimates the mutation rate of each mask. With
+     * --emitPartial, the counts of the regions are written to a file instead,
+     * and no mask is estimated.
+     *
+     * @return the estimates of each mask, in the order of the configuration
+     */
+    public ArrayList<MaskEstimates> run() throws Exception {
+        PrintWriter log = (config.isLogOn()) ? new PrintWriter(config.getLogFile(), "UTF-8") : null;
+        try {
+            ArrayList<Integer> maxVarCountList = new ArrayList<Integer>();
+            for (int count = config.getMaxVarCountMin(); count <= config.getMaxVarCountMax(); count += config.getMaxVarCountInterval()) {
+                maxVarCountList.add(count);
+            }
+            if (maxVarCountList.size() > 1) {
+                // add results with no constraint, used to get difference between GC correction and uncorrected.
+                maxVarCountList.add(EstimateMutationRateFromIBD.largeValue);
+            }
+
+            if (config.isEmitPartial()) {
+                ArrayList<TreeMap<String, Results>> regionResults = countRegions(maxVarCountList, log);
+                PartialResults.write(config.getEmitPartialFile(), config, maxVarCountList, config.getPedFiles(), config.getMatchFiles(), regionResults);
+                Tools.printProgress("Wrote the counts of " + regionResults.size() + " regions to " + config.getEmitPartialFile());
+                return new ArrayList<MaskEstimates>();
+            }
+
+            Demography demography = new Demography(config.getDemographyFile());
+            TreeMap<Double, Double> weightsMap = (!"".equals(config.getTMRCAWeightsFile())) ? readWeights(config.getTMRCAWeightsFile()) : null;
+            List<String> pedList = config.getPedFiles();
+            ArrayList<TreeMap<String, Results>> regionResults = null;
+            if (config.isMergePartials()) {
+                pedList = new ArrayList<String>();
+                regionResults = new ArrayList<TreeMap<String, Results>>();
+                readPartials(pedList, regionResults);
+                if (config.isJackknife() && regionResults.size() < 2) {
+                    Tools.exit("Trying to run Jackknife with one region.");
+                }
+            }
+            TreeMap<String, Pair<Double, Double>> inverseHeterozygosity = null;
+            if (config.computeHeterozygosity()) {
+                // NOTE: this is loading frequencies again, should be done in data loader. Fine for now.
+                inverseHeterozygosity = getInverseHeterozygosityForAllMasks(config.getMaskFiles(), pedList,
+                        readRegionBoundaries(config.getRegionBoundariesFile()), log, config.isPrintJackknife());
+            }
+            if (regionResults == null) {
+                regionResults = countRegions(maxVarCountList, log);
+            }
+
+            MutationRateEstimator estimator = new MutationRateEstimator(config, demography, regionResults, maxVarCountList,
+                    inverseHeterozygosity, weightsMap, log);
+            ArrayList<MaskEstimates> estimates = new ArrayList<MaskEstimates>();
+            for (String maskFile : config.getMaskFiles()) {
+                estimates.add(estimator.estimate(maskFile));
+            }
+            return estimates;
+        } finally {
+            if (log != null) {
+                log.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the regions and results of the partial results files, which must
+     * have been counted with the options of this analysis. Each region (ped
+     * and match file) may only be in one of them, as it would be counted
+     * twice otherwise.
+     */
+    private void readPartials(List<String> pedList, List<TreeMap<String, Results>> regionResults) throws IOException {
+        String countingOptions = PartialResults.getCountingOptions(config);
+        // the partial results file of each region read so far
+        HashMap<String, String> fileOfRegion = new HashMap<String, String>();
+        for (String file : config.getPartialFiles()) {
+            Tools.printVerboseProgressLevel1("Reading partial results file " + file);
+            PartialResults partial = PartialResults.read(file);
+            if (!partial.getCountingOptions().equals(countingOptions)) {
+                Tools.exit("The regions in " + file + " were counted with options other than those of this analysis:\n"
+                        + partial.getCountingOptions());
+            }
+            for (int i = 0; i < partial.getPedFiles().size(); i++) {
+                String pedFile = partial.getPedFiles().get(i);
+                String matchFile = partial.getMatchFiles().get(i);
+                String previousFile = fileOfRegion.put(pedFile + "\t" + matchFile, file);
+                if (previousFile != null) {
+                    Tools.exit("The region " + pedFile + " with match file " + matchFile + " is in "
+                            + ((previousFile.equals(file)) ? file + " twice" : "both " + previousFile + " and " + file) + ".");
+                }
+            }
+            pedList.addAll(partial.getPedFiles());
+            regionResults.addAll(partial.getRegionResults());
+        }
+        Tools.printVerboseProgressLevel1("Read the counts of " + regionResults.size() + " regions.");
+    }
+
+    /**
+     * Reads all regions and computes their histograms for each mask and
+     * MaAF value.
+     *
+     * @return the results of each region, in the order of the configuration
+     */
+    private ArrayList<TreeMap<String, Results>> countRegions(ArrayList<Integer> maxVarCountList, PrintWriter log) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(config.getThreads());
+        // segments of a region are analyzed in batches by this pool, or inline with one thread
+        ForkJoinPool segmentPool = (config.getThreads() > 1) ? new ForkJoinPool(config.getThreads()) : null;
+        try {
+            TreeMap<String, Pair<String, String>> context = (config.useTrinucleotideContext())
+                    ? TrinucleotideContext.readContext(config.getTrinucleotideContextFile())
+                    : new TreeMap<String, Pair<String, String>>();
+            TreeSet<String> onlyIncludeSNPs = (config.useOnlyIncludeSNPs()) ? readOnlyIncludeSNPs(config.getOnlyIncludeSNPsFile()) : null;
+
+            // by default, datasets loaded at the same time may use 80% of the heap
+            long memoryBudgetBytes = (config.getMemoryBudgetMB() > 0) ? config.getMemoryBudgetMB() << 20 : (long) (0.8 * Runtime.getRuntime().maxMemory());
+            int memoryBudgetMB = (int) Math.min(Integer.MAX_VALUE, Math.max(1, memoryBudgetBytes >> 20));
+            Semaphore memoryBudget = new Semaphore(memoryBudgetMB);
+
+            List<String> pedList = config.getPedFiles();
+            List<String> matchList = config.getMatchFiles();
+            // results of regions counted by a previous analysis, null for the others
+            ArrayList<TreeMap<String, Results>> regionResults = new ArrayList<TreeMap<String, Results>>();
+            // results are only cached when they are all the analysis of a region produces
+            boolean cacheResults = cache != null && !config.isPrintMutMatch() && !config.isWriteMutMatch();
+            String[] resultsKeys = new String[pedList.size()];
+            ArrayList<Future<TreeMap<String, Results>>> resultsOfRegion = new ArrayList<Future<TreeMap<String, Results>>>();
+            for (int i = 0; i < pedList.size(); i++) {
+                if (cacheResults) {
+                    resultsKeys[i] = RegionCache.getResultsKey(config, pedList.get(i), matchList.get(i));
+                }
+                regionResults.add((cacheResults) ? cache.getResults(resultsKeys[i]) : null);
+                resultsOfRegion.add(null);
+            }
+            // the most expensive regions are submitted first, so that a large region does not start last. With
+            // one thread, or when segments are printed as they are read, regions run in list order like their output.
+            Integer[] submissionOrder;
+            if (config.getThreads() > 1 && !config.isPrintMutMatch() && !config.isWriteMutMatch()) {
+                submissionOrder = getRegionsByDecreasingCost(pedList, matchList);
+            } else {
+                submissionOrder = new Integer[pedList.size()];
+                for (int i = 0; i < submissionOrder.length; i++) {
+                    submissionOrder[i] = i;
+                }
+            }
+            // log lines of the regions, written in list order
+            String[] regionLog = new String[pedList.size()];
+            for (int i : submissionOrder) {
+                String pedFile = pedList.get(i);
+                String matchFile = matchList.get(i);
+                if (regionResults.get(i) != null) {
+                    Tools.printVerboseProgressLevel1("Using the counts of a previous analysis for " + pedFile);
+                    continue;
+                }
+                if (log != null) {
+                    regionLog[i] = "Analyzing files in " + pedFile + "\tmatch:\t" + matchFile + "\tmask:\t" + ((config.getMaskFiles().size() == 1) ? config.getMaskFiles().get(0) : "")
+                            + "\tminVarCount:\t" + config.getMaxVarCountMin() + "\tmaxVarCountMin:\t" + config.getMaxVarCountMin() + "\tmaxVarCountMin:\t" + config.getMaxVarCountMin();
+                }
+                PedMatchProcessor thread = new PedMatchProcessor(config, pedFile, matchFile, maxVarCountList, onlyIncludeSNPs, context,
+                        segmentPool, memoryBudget, memoryBudgetMB);
+                thread.setCache(cache);
+                resultsOfRegion.set(i, executor.submit(thread));
+            }
+            for (int i = 0; i < pedList.size(); i++) {
+                if (regionLog[i] != null) {
+                    log.println(regionLog[i]);
+                }
+            }
+            // results are kept in the order of the list
+            for (int i = 0; i < pedList.size(); i++) {
+                if (resultsOfRegion.get(i) == null) {
+                    continue;
+                }
+                try {
+                    regionResults.set(i, resultsOfRegion.get(i).get());
+                } catch (ExecutionException ex) {
+                    if (ex.getCause() instanceof AnalysisException) {
+                        throw (AnalysisException) ex.getCause();
+                    }
+                    throw new Exception(ex.getCause());
+                }
+                if (cacheResults) {
+                    cache.putResults(resultsKeys[i], regionResults.get(i));
+                }
+            }
+            return regionResults;
+        } finally {
+            executor.shutdownNow();
+            if (segmentPool != null) {
+                segmentPool.shutdownNow();
+            }
+        }
+    }
+
+    private static TreeSet<String> readOnlyIncludeSNPs(String file) throws IOException {
+        Tools.printVerboseProgressLevel1("Reading SNP inclusion file " + file);
+        BufferedReader br = null;
+        TreeSet<String> onlyIncludeSNPs = new TreeSet<String>();
+        try {
+            br = new BufferedReader(new FileReader(file));
+        } catch (FileNotFoundException ex) {
+            Tools.exit("Could not open SNP excusion file " + file);
+        }
+        String line = br.readLine();
+        while (line != null) {
+            String[] strSplit = line.trim().split("\\s+");
+            String ID = strSplit[0];
+            onlyIncludeSNPs.add(ID);
+            line = br.readLine();
+        }
+        br.close();
+        Tools.printVerboseProgressLevel1("Read " + onlyIncludeSNPs.size() + " SNPs");
+        return onlyIncludeSNPs;
+    }
+
+    private static TreeMap<Double, Double> readWeights(String weightsFile) throws IOException {
+        BufferedReader br = null;
+        try {
+            br = new BufferedReader(new FileReader(weightsFile));
+        } catch (FileNotFoundException ex) {
+            Tools.exit("Could not open tMRCA regression weights file " + weightsFile);
+        }
+        String line = br.readLine();
+        TreeMap<Double, Double> weightsMap = new TreeMap<Double, Double>();
+        int cnt = 0;
+        while (line != null) {
+            String[] tokens = line.split("\\s+");
+            weightsMap.put(Double.parseDouble(tokens[0]), Double.parseDouble(tokens[1]));
+            line = br.readLine();
+            cnt++;
+        }
+        br.close();
+        Tools.printVerboseProgressLevel1("Read " + cnt + " tMRCA weights.");
+        return weightsMap;
+    }
+
+    private static TreeMap<String, Pair<Integer, Integer>> readRegionBoundaries(String regionBoundariesFile) throws IOException {
+        TreeMap<String, Pair<Integer, Integer>> regionBoundaries = new TreeMap<String, Pair<Integer, Integer>>();
+        BufferedReader br = null;
+        try {
+            br = new BufferedReader(new FileReader(regionBoundariesFile));
+        } catch (FileNotFoundException ex) {
+            Tools.exit("Could not open region boundaries file " + regionBoundariesFile);
+        }
+        String line = br.readLine();
+        while (line != null) {
+            String[] tokens = line.split("\\s+");
+            String thisFile = tokens[0];
+            int from = Integer.parseInt(tokens[1]);
+            int to = Integer.parseInt(tokens[2]);
+            regionBoundaries.put(thisFile, new Pair<Integer, Integer>(from, to));
+            line = br.readLine();
+        }
+        br.close();
+        return regionBoundaries;
+    }
+
+    /**
+     * @return the indices of regions sorted by decreasing estimated cost,
+     * which is the size of their ped.gz and match files
+     */
+    static Integer[] getRegionsByDecreasingCost(List<String> pedList, List<String> matchList) {
+        Integer[] regions = new Integer[pedList.size()];
+        final long[] cost = new long[pedList.size()];
+        for (int i = 0; i < regions.length; i++) {
+            regions[i] = i;
+            cost[i] = new File(pedList.get(i) + ".ped.gz").length() + new File(matchList.get(i)).length();
+        }
+        // stable, so regions of equal cost stay in list order
+        Arrays.sort(regions, new Comparator<Integer>() {
+            public int compare(Integer region1, Integer region2) {
+                return (cost[region1] > cost[region2]) ? -1 : ((cost[region1] < cost[region2]) ? 1 : 0);
+            }
+        });
+        return regions;
+    }
+
+    private static TreeMap<String, Pair<Double, Double>> getInverseHeterozygosityForAllMasks(List<String> maskFiles, List<String> pedFiles,
+            TreeMap<String, Pair<Integer, Integer>> regionBoundaries, PrintWriter log, boolean printJackknife) {
+        TreeMap<String, Pair<Double, Double>> results = new TreeMap<String, Pair<Double, Double>>();
+        TreeMap<String, TreeMap<String, Pair<Double, Double>>> heterozygosityForEachFileAndMask = new TreeMap<String, TreeMap<String, Pair<Double, Double>>>();
+        for (String pedFile : pedFiles) {
+            TreeMap<String, Pair<Double, Double>> heterozygosityForEachMask = new TreeMap<String, Pair<Double, Double>>();
+            String freqFile = pedFile + ".frq";
+            BufferedReader br = null;
+            Tools.printVerboseProgressLevel1("Reading frequency file " + freqFile);
+            try {
+                br = new BufferedReader(new FileReader(freqFile));
+            } catch (FileNotFoundException ex) {
+                Tools.exit("Could not open frequency file " + freqFile);
+            }
+            try {
+                String chr = null;
+                String line = br.readLine();
+                ArrayList<Double> freq = new ArrayList<Double>();
+                ArrayList<Integer> pos = new ArrayList<Integer>();
+                while (line != null) {
+                    String[] strSplit = line.trim().split("\\s+");
+                    if (strSplit[0].compareToIgnoreCase("CHR") == 0) {
+                        line = br.readLine();
+                        continue;
+                    }
+                    String ID = strSplit[1];
+                    freq.add(Double.parseDouble(strSplit[4]));
+                    String[] posString = strSplit[1].split(":"); // NOTE: SNP IDs must be coded as chr:physpos
+                    pos.add(Integer.parseInt(posString[1]));
+                    chr = strSplit[0];
+                    line = br.readLine();
+                }
+                for (String maskFile : maskFiles) {
+                    Mask mask = new Mask(maskFile, chr);
+                    Pair<Integer, Integer> region = regionBoundaries.get(pedFile);
+                    double numerator = 0, denominator = mask.getSize(region.getKey(), region.getValue());
+                    for (int i = 0; i < pos.size(); i++) {
+                        if (mask.contains(pos.get(i))) {
+                            numerator += 2 * freq.get(i) * (1. - freq.get(i));
+                        }
+                    }
+                    heterozygosityForEachMask.put(maskFile, new Pair<Double, Double>(numerator, denominator));
+                }
+                heterozygosityForEachFileAndMask.put(pedFile, heterozygosityForEachMask);
+            } catch (IOException ex) {
+                Tools.exit("Could not read frequency file " + freqFile);
+            }
+        }
+        // compute jackknife heterozygosity for each mask
+        for (String maskFile : maskFiles) {
+            Double mergedAll = 0.;
+            Double[] weights = new Double[pedFiles.size()];
+            Double[] allBut = new Double[pedFiles.size()];
+            double mergedNum = 0, mergedDen = 0;
+            int i = 0;
+            double[] numerators = new double[pedFiles.size()];
+            for (String pedFile : pedFiles) {
+                // merge all
+                numerators[i] = heterozygosityForEachFileAndMask.get(pedFile).get(maskFile).getKey();
+                mergedNum += numerators[i];
+                weights[i] = heterozygosityForEachFileAndMask.get(pedFile).get(maskFile).getValue();
+                mergedDen += weights[i];
+                i++;
+            }
+            mergedAll = 1. / (mergedNum / mergedDen);
+            for (int j = 0; j < i; j++) {
+                double numerator = 0, denominator = 0;
+                // exclude j-th element
+                for (int k = 0; k < i; k++) {
+                    if (k != j) {
+                        numerator += numerators[k];
+                        denominator += weights[k];
+                    }
+                }
+                allBut[j] = 1. / (numerator / denominator);
+            }
+            Pair<Double, Double> heterozygosityForThisMask = Tools.weightedBlockJackknife(allBut, weights, mergedAll, log, printJackknife);
+            results.put(maskFile, heterozygosityForThisMask);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,478 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.TreeMap;
+
+/**
+ * Estimates the mutation rate of each mask from the results of all regions of
+ * an analysis, with the options of its configuration.
+ *
+ * @author Pier Palamara
+ */
+class MutationRateEstimator {
+
+    private static final boolean printWeights = false;
+
+    private final AnalysisConfig config;
+    private final Demography demography;
+    // results of each region, by mask and MaAF threshold
+    private final ArrayList<TreeMap<String, Results>> regionResults;
+    private final ArrayList<Integer> maxVarCountList;
+    private final TreeMap<String, Pair<Double, Double>> inverseHeterozygosity;
+    private final TreeMap<Double, Double> tMRCARegressionWeightsMap;
+    // null if the analysis is not logged
+    private final PrintWriter log;
+    private final int maxVarCountMin;
+    private final int maxVarCountInterval;
+    private final int maxVarCountMax;
+    private final double minimumLength;
+    private final double maximumLength;
+
+    // weights of the tMRCA regressions of the current mask
+    private double[] tMRCARegressionWeights;
+
+    public MutationRateEstimator(AnalysisConfig config, Demography demography, ArrayList<TreeMap<String, Results>> regionResults,
+            ArrayList<Integer> maxVarCountList, TreeMap<String, Pair<Double, Double>> inverseHeterozygosity,
+            TreeMap<Double, Double> tMRCARegressionWeightsMap, PrintWriter log) {
+        this.config = config;
+        this.demography = demography;
+        this.regionResults = regionResults;
+        this.maxVarCountList = maxVarCountList;
+        this.inverseHeterozygosity = inverseHeterozygosity;
+        this.tMRCARegressionWeightsMap = tMRCARegressionWeightsMap;
+        this.log = log;
+        maxVarCountMin = config.getMaxVarCountMin();
+        maxVarCountInterval = config.getMaxVarCountInterval();
+        maxVarCountMax = config.getMaxVarCountMax();
+        minimumLength = config.getMinimumLength();
+        maximumLength = config.getMaximumLength();
+        // the ages of the length bins are the same for all masks, MaAF values and jackknife replicates
+        demography.precomputeAgesOfSegments(Results.getBinLengths(minimumLength, maximumLength), Results.getLengthIncrement(),
+                config.isCumulative());
+    }
+
+    private void writeLog(String s) {
+        if (log != null) {
+            log.println(s);
+        }
+    }
+
+    private Pair<Double, Double> jackknife(Double[] estimates, Double[] weights, Double estimateAll) {
+        return Tools.weightedBlockJackknife(estimates, weights, estimateAll, log, config.isPrintJackknife());
+    }
+
+    private Results getRegionResults(int region, String maskFile, int count) {
+        return regionResults.get(region).get(maskFile + "\t" + count);
+    }
+
+    private double[] getMu(Results results) {
+        return results.getMu(demography, minimumLength, maximumLength, config.isCumulative(),
+                config.isWeightedTMRCARegression() ? tMRCARegressionWeights : null, config.isPrintRegression());
+    }
+
+    private void setWeightsFromMap(TreeMap<Double, BasePairsAndHets> hist) {
+        Tools.printProgress("Using user-specified weights in tMRCA regression.");
+        int indexWeights = 0;
+        for (Double u : hist.keySet()) {
+            tMRCARegressionWeights[indexWeights] = (tMRCARegressionWeightsMap.containsKey(u))
+                    ? tMRCARegressionWeightsMap.get(u)
+                    : 0.;
+            if (printWeights) {
+                System.out.println(u + "\tSet to " + tMRCARegressionWeights[indexWeights]);
+            }
+            indexWeights++;
+        }
+    }
+
+    /**
+     * @return the estimates for maskFile
+     */
+    public MaskEstimates estimate(String maskFile) throws IOException {
+        AnalysisEvents.Estimation event = new AnalysisEvents.Estimation();
+        event.begin();
+        MaskEstimates estimates = estimateRates(maskFile);
+        if (event.shouldCommit()) {
+            event.mask = maskFile;
+            event.regions = regionResults.size();
+            event.maafThresholds = maxVarCountList.size();
+            event.jackknife = config.isJackknife();
+            event.commit();
+        }
+        return estimates;
+    }
+
+    private MaskEstimates estimateRates(String maskFile) throws IOException {
+        MaskEstimates estimates = new MaskEstimates(maskFile);
+        boolean useCumulative = config.isCumulative();
+        tMRCARegressionWeights = null;
+        if (config.isJackknife()) {
+            Tools.printProgress("Computing Jackknife results.");
+            boolean applyingGeneConversionCorrection = false;
+            TreeMap<Integer, Results> allMergedMap = new TreeMap<Integer, Results>();
+            for (int count : maxVarCountList) {
+                Results mergedAllThisCount = new Results(maskFile, count, config.getRoundTo());
+                for (int i = 0; i < regionResults.size(); i++) {
+                    mergedAllThisCount.mergeResults(getRegionResults(i, maskFile, count));
+                }
+                allMergedMap.put(count, mergedAllThisCount);
+            }
+
+            if (allMergedMap.size() > 1) {
+                applyingGeneConversionCorrection = true;
+            } else {
+                for (Results r : allMergedMap.values()) {
+                    estimates.tsTv = r.getTransitions() / r.getTransversions();
+                }
+            }
+
+            if (applyingGeneConversionCorrection) {
+                Tools.printProgress("Performing regression on maximum allele count frequency.");
+            }
+            ArrayList<TreeMap<Integer, Results>> allButOneList = new ArrayList<TreeMap<Integer, Results>>();
+            for (int exclude = 0; exclude < regionResults.size(); exclude++) {
+                TreeMap<Integer, Results> allButOneMap = new TreeMap<Integer, Results>();
+                for (int count : maxVarCountList) {
+                    Results mergedAllButOneThisCount = new Results(maskFile, count, config.getRoundTo());
+                    for (int i = 0; i < regionResults.size(); i++) {
+                        if (i == exclude) {
+                            continue;
+                        }
+                        mergedAllButOneThisCount.mergeResults(getRegionResults(i, maskFile, count));
+                    }
+                    allButOneMap.put(count, mergedAllButOneThisCount);
+                }
+                allButOneList.add(allButOneMap);
+            }
+
+            // compute weights for regression
+            if (config.isWeightedTMRCARegression()) {
+                TreeMap<Double, BasePairsAndHets> allHist = (useCumulative)
+                        ? allMergedMap.get(EstimateMutationRateFromIBD.largeValue).getCumulativeHistogram()
+                        : allMergedMap.get(EstimateMutationRateFromIBD.largeValue).getHistogram();
+                tMRCARegressionWeights = new double[allHist.keySet().size()];
+
+                if (tMRCARegressionWeightsMap != null) {
+                    setWeightsFromMap(allHist);
+                } else {
+                    Tools.printProgress("Computing jackknife weights for inverse-variance weighting of tMRCA regression.");
+                    int indexWeights = 0;
+                    for (Double u : allHist.keySet()) {
+                        // for each length bin, cumulative or not
+                        int numerOfRegionsWhereThisLengthWasObserved = 0;
+                        // this code is a bit slow, since getCumulativeHistogram() costs something.
+                        for (int i = 0; i < regionResults.size(); i++) {
+                            TreeMap<Double, BasePairsAndHets> thisHist = (useCumulative)
+                                    ? allButOneList.get(i).get(EstimateMutationRateFromIBD.largeValue).getCumulativeHistogram()
+                                    : allButOneList.get(i).get(EstimateMutationRateFromIBD.largeValue).getHistogram();
+                            if (thisHist.containsKey(u)) {
+                                numerOfRegionsWhereThisLengthWasObserved++;
+                                if (printWeights) {
+                                    System.out.println(i + "\tcontains\t" + u + "\t" + thisHist.get(u).count);
+                                }
+                            } else {
+                                if (useCumulative && thisHist.ceilingEntry(u) != null) {
+                                    numerOfRegionsWhereThisLengthWasObserved++;
+                                    if (printWeights) {
+                                        System.out.println(i + "\tcontains\t" + u + "\t" + thisHist.ceilingEntry(u).getValue().count);
+                                    }
+                                } else {
+                                    if (printWeights) {
+                                        System.out.println(i + "\tdoes not contain\t" + u);
+                                    }
+
+                                }
+                            }
+                        }
+                        if (printWeights) {
+                            System.out.println(u + "\t" + numerOfRegionsWhereThisLengthWasObserved);
+                        }
+                        if (numerOfRegionsWhereThisLengthWasObserved < config.getWeightMinObs()) {
+                            // skip this length bin if not enough observations
+                            tMRCARegressionWeights[indexWeights] = Double.MAX_VALUE;
+                            tMRCARegressionWeights[indexWeights] = 0.;
+                            if (printWeights) {
+                                System.out.println(u + "\tSet to " + tMRCARegressionWeights[indexWeights]);
+                            }
+                            indexWeights++;
+                            continue;
+                        }
+                        // being lazy, looping twice
+                        Double[] hetAllBut = new Double[numerOfRegionsWhereThisLengthWasObserved];
+                        Double[] hetAllButWeights = new Double[numerOfRegionsWhereThisLengthWasObserved];
+                        Double hetAll = allHist.get(u).mutRate / (double) allHist.get(u).count;
+                        int cnt = 0;
+                        for (int i = 0; i < regionResults.size(); i++) {
+                            TreeMap<Double, BasePairsAndHets> thisHist = (useCumulative)
+                                    ? allButOneList.get(i).get(EstimateMutationRateFromIBD.largeValue).getCumulativeHistogram()
+                                    : allButOneList.get(i).get(EstimateMutationRateFromIBD.largeValue).getHistogram();
+                            if (thisHist.containsKey(u)) {
+                                hetAllBut[cnt] = thisHist.get(u).mutRate / (double) thisHist.get(u).count;
+                                System.out.println("SEEN\t" + u + "\t" + hetAllBut[cnt]);
+                                hetAllButWeights[cnt] = getRegionResults(i, maskFile, EstimateMutationRateFromIBD.largeValue).getTotalBasePairsObserved();
+                                System.out.println(hetAll + "\t" + hetAllBut[cnt] + "\t" + hetAllButWeights[cnt]);
+                                cnt++;
+                            } else {
+                                if (useCumulative && thisHist.ceilingEntry(u) != null) {
+                                    hetAllBut[cnt] = thisHist.ceilingEntry(u).getValue().mutRate / (double) thisHist.ceilingEntry(u).getValue().count;
+                                    hetAllButWeights[cnt] = getRegionResults(i, maskFile, EstimateMutationRateFromIBD.largeValue).getTotalBasePairsObserved();
+                                    cnt++;
+                                }
+                            }
+                        }
+                        Pair<Double, Double> jackRes = jackknife(hetAllBut, hetAllButWeights, hetAll);
+                        tMRCARegressionWeights[indexWeights] = jackRes.getValue();
+                        tMRCARegressionWeights[indexWeights] = 1 / (jackRes.getValue() * jackRes.getValue());
+                        if (printWeights) {
+                            System.out.println(u + "\tSet to " + tMRCARegressionWeights[indexWeights] + "\testimate\t" + jackRes.getKey() + "\ts.e.\t" + jackRes.getValue());
+                        }
+                        indexWeights++;
+                    }
+                }
+            }
+
+            // get results
+            Double[] muMergedAllBut = new Double[regionResults.size()];
+            Double[] secondParamMergedAllBut = new Double[regionResults.size()];
+            Double[] noGCcorrectionMuMergedAllBut = new Double[regionResults.size()];
+            Double[] noGCcorrectionMuDiffMergedAllBut = new Double[regionResults.size()];
+            for (int exclude = 0; exclude < regionResults.size(); exclude++) {
+                TreeMap<Integer, Results> allButOneMap = allButOneList.get(exclude);
+                double[] muResAllButOne = (applyingGeneConversionCorrection) ? regressMuForListOfMaxCounts(exclude, allButOneMap, maskFile) : regressMuNoMaxCounts(allButOneMap, maskFile);
+                muMergedAllBut[exclude] = muResAllButOne[0];
+                secondParamMergedAllBut[exclude] = muResAllButOne[1];
+                if (applyingGeneConversionCorrection) {
+                    if (config.isPrintRegression()) {
+                        System.out.println("Regression\tExcluding region " + exclude + "\tMaAF\t" + EstimateMutationRateFromIBD.largeValue);
+                    }
+                    noGCcorrectionMuMergedAllBut[exclude] = getMu(allButOneMap.get(EstimateMutationRateFromIBD.largeValue))[1];
+                    noGCcorrectionMuDiffMergedAllBut[exclude] = noGCcorrectionMuMergedAllBut[exclude] - muMergedAllBut[exclude];
+                }
+            }
+
+            double[] muRes = (applyingGeneConversionCorrection)
+                    ? regressMuForListOfMaxCounts(-1, allMergedMap, maskFile)
+                    : regressMuNoMaxCounts(allMergedMap, maskFile);
+            Double muMergedAll = muRes[0];
+            Double secondParamMergedAll = muRes[1];
+            Double noGCcorrectionMuAll = null;
+            Double noGCcorrectionMuDiffAll = null;
+            if (applyingGeneConversionCorrection) {
+                if (config.isPrintRegression()) {
+                    System.out.println("Regression\tExcluding region " + (-1) + "\tMaAF\t" + EstimateMutationRateFromIBD.largeValue);
+                }
+                noGCcorrectionMuAll = getMu(allMergedMap.get(EstimateMutationRateFromIBD.largeValue))[1];
+                noGCcorrectionMuDiffAll = noGCcorrectionMuAll - muMergedAll;
+            }
+            Double[] mergedAllButWeights = new Double[regionResults.size()];
+            for (int exclude = 0; exclude < regionResults.size(); exclude++) {
+                double weight = 0.0;
+                for (int i = 0; i < regionResults.size(); i++) {
+                    if (i == exclude) {
+                        continue;
+                    }
+                    weight += getRegionResults(i, maskFile, maxVarCountMin).getTotalBasePairsObserved();
+                }
+                mergedAllButWeights[exclude] = weight;
+            }
+            estimates.mutationRate = new Estimate(jackknife(muMergedAllBut, mergedAllButWeights, muMergedAll));
+            estimates.secondParameter = new Estimate(jackknife(secondParamMergedAllBut, mergedAllButWeights, secondParamMergedAll));
+            if (applyingGeneConversionCorrection) {
+                estimates.uncorrectedMutationRate = new Estimate(jackknife(noGCcorrectionMuMergedAllBut, mergedAllButWeights, noGCcorrectionMuAll));
+                estimates.uncorrectedMutationRateDifference = new Estimate(jackknife(noGCcorrectionMuDiffMergedAllBut, mergedAllButWeights, noGCcorrectionMuDiffAll));
+            }
+            writeLog("Estimated mutation rate for mask " + maskFile + "\t" + estimates.mutationRate);
+            writeLog("Estimated second parameter for mask " + maskFile + "\t" + estimates.secondParameter);
+            if (applyingGeneConversionCorrection) {
+                writeLog("Estimated uncorrected mu for mask " + maskFile + "\t" + estimates.uncorrectedMutationRate);
+                writeLog("Estimated uncorrected mu difference for mask " + maskFile + "\t" + estimates.uncorrectedMutationRateDifference);
+                if (inverseHeterozygosity != null) {
+                    double meanDiff = estimates.uncorrectedMutationRateDifference.getValue();
+                    double varDiff = estimates.uncorrectedMutationRateDifference.getStandardError() * estimates.uncorrectedMutationRateDifference.getStandardError();
+                    double meanInverseHet = inverseHeterozygosity.get(maskFile).getKey();
+                    double varInverseHet = inverseHeterozygosity.get(maskFile).getValue();
+                    double productExpectation = meanDiff * meanInverseHet;
+                    double productVar = meanDiff * meanDiff * varInverseHet + meanInverseHet * meanInverseHet * varDiff + varDiff * varInverseHet;
+                    double productStdev = Math.sqrt(productVar);
+                    estimates.geneConversionRate = new Estimate(productExpectation, productStdev);
+                    writeLog("Estimated gene conversion rate for mask " + maskFile + "\t" + estimates.geneConversionRate);
+                }
+            }
+            // report average segment length spanning non-zero regions
+            double mergedAverageLen = 0.0;
+            double cnt = 0.0;
+            for (int region = 0; region < regionResults.size(); region++) {
+                mergedAverageLen += getRegionResults(region, maskFile, maxVarCountMin).getTotalSegmentLength();
+                cnt += getRegionResults(region, maskFile, maxVarCountMin).getTotalSegmentCount();
+            }
+            mergedAverageLen /= cnt;
+            Double[] avgLenMergedAllButValue = new Double[regionResults.size()];
+            Double[] avgLenMergedAllButWeights = new Double[regionResults.size()];
+            for (int exclude = 0; exclude < regionResults.size(); exclude++) {
+                double AllButAverage = 0.0;
+                double AllButCnt = 0.0;
+                for (int region = 0; region < regionResults.size(); region++) {
+                    if (region == exclude) {
+                        continue;
+                    }
+                    AllButAverage += getRegionResults(region, maskFile, maxVarCountMin).getTotalSegmentLength();
+                    AllButCnt += getRegionResults(region, maskFile, maxVarCountMin).getTotalSegmentCount();
+                }
+                avgLenMergedAllButValue[exclude] = AllButAverage / AllButCnt;
+                avgLenMergedAllButWeights[exclude] = AllButCnt;
+            }
+            estimates.averageSegmentLength = new Estimate(jackknife(avgLenMergedAllButValue, avgLenMergedAllButWeights, mergedAverageLen));
+            writeLog("Average IBD segment length spanning mask " + maskFile + "\t" + estimates.averageSegmentLength);
+            if (config.useTrinucleotideContext()) {
+                Tools.warning("Processing trinucleotide results for maxVarCountMin only.");
+                estimates.trinucleotides = new ArrayList<MaskEstimates.TrinucleotideEstimate>();
+                Results[] muMergedAllButTrinucleotide = new Results[regionResults.size()];
+                for (int exclude = 0; exclude < regionResults.size(); exclude++) {
+                    Results mergedAllButOne = new Results(maskFile, maxVarCountMin, config.getRoundTo());
+                    for (int i = 0; i < regionResults.size(); i++) {
+                        if (i == exclude) {
+                            continue;
+                        }
+                        mergedAllButOne.mergeResults(getRegionResults(i, maskFile, maxVarCountMin));
+                    }
+                    muMergedAllButTrinucleotide[exclude] = mergedAllButOne;
+                }
+                String[] referencelist = (config.isTrinucleotideNoDirection()) ? TrinucleotideContext.trinucleotideListNoDirection : TrinucleotideContext.trinucleotideListDirectional;
+                for (String trinucleotide : referencelist) {
+                    Results mergedAll = allMergedMap.get(maxVarCountMin);
+                    double mergedAllResultsTrinucleotide = mergedAll.getTrinucleotideContextResults().getTrinucleotideProbability(trinucleotide);
+                    Double[] mergedAllButResultsTrinucleotide = new Double[regionResults.size()];
+                    Double[] mergedAllButWeightsTrinucleotide = new Double[regionResults.size()];
+                    int cntNonZeroWeigts = 0;
+                    for (int region = 0; region < regionResults.size(); region++) {
+                        Results allButThisRegion = muMergedAllButTrinucleotide[region];
+                        mergedAllButResultsTrinucleotide[region] = allButThisRegion.getTrinucleotideContextResults().getTrinucleotideProbability(trinucleotide);
+                        mergedAllButWeightsTrinucleotide[region] = allButThisRegion.getTrinucleotideContextResults().getTrinucleotideRawCount(trinucleotide);
+                        if (mergedAllButWeightsTrinucleotide[region] > 0) {
+                            cntNonZeroWeigts++;
+                        }
+                    }
+                    Estimate jackknife = (cntNonZeroWeigts > 0)
+                            ? new Estimate(jackknife(mergedAllButResultsTrinucleotide, mergedAllButWeightsTrinucleotide, mergedAllResultsTrinucleotide))
+                            : null;
+                    estimates.trinucleotides.add(new MaskEstimates.TrinucleotideEstimate(trinucleotide, mergedAllResultsTrinucleotide, jackknife, cntNonZeroWeigts));
+                }
+            }
+        } else {
+            Tools.warning("The code for non-jackknife computation needs testing and expansion.");
+            if (config.isWeightedTMRCARegression()) {
+                if (tMRCARegressionWeightsMap == null) {
+                    Tools.exit("Inverse-variance regression weights require jackknife.");
+                } else {
+                    TreeMap<Integer, Results> allMergedMap = new TreeMap<Integer, Results>();
+                    for (int count : maxVarCountList) {
+                        Results mergedAllThisCount = new Results(maskFile, count, config.getRoundTo());
+                        for (int i = 0; i < regionResults.size(); i++) {
+                            mergedAllThisCount.mergeResults(getRegionResults(i, maskFile, count));
+                        }
+                        allMergedMap.put(count, mergedAllThisCount);
+                    }
+                    TreeMap<Double, BasePairsAndHets> allHist = (useCumulative)
+                            ? allMergedMap.get(EstimateMutationRateFromIBD.largeValue).getCumulativeHistogram()
+                            : allMergedMap.get(EstimateMutationRateFromIBD.largeValue).getHistogram();
+                    tMRCARegressionWeights = new double[allHist.keySet().size()];
+                    setWeightsFromMap(allHist);
+                }
+            }
+            if (getRegionResults(regionResults.size() - 1, maskFile, EstimateMutationRateFromIBD.largeValue).getTotInMask() == 0) {
+                estimates.spansMutations = false;
+                return estimates;
+            }
+            if (config.isMaxCountRangeRegression()) {
+                Tools.printProgress("Performing regression on maximum allele count frequency.");
+                double avgIBDLen = 0.0;
+                double totIBDseg = 0.0;
+                TreeMap<Integer, Results> maxCountResList = new TreeMap<Integer, Results>();
+                for (int count : maxVarCountList) {
+                    for (int i = 0; i < regionResults.size(); i++) {
+                        Results result = getRegionResults(i, maskFile, count);
+                        maxCountResList.put(count, result);
+                        avgIBDLen = result.getTotalSegmentLength() / result.getTotalSegmentCount();
+                        totIBDseg = result.getTotalSegmentCount();
+                    }
+                }
+                double[] maxCountResultInterceptSlopeRsquare = regressMuForListOfMaxCounts(-1, maxCountResList, maskFile);
+                estimates.maAFRegressionFit = new MaskEstimates.RegressionFit(maxCountResultInterceptSlopeRsquare[0], maxCountResultInterceptSlopeRsquare[1], avgIBDLen, totIBDseg);
+            } else {
+                estimates.regionFits = new ArrayList<MaskEstimates.RegressionFit>();
+                for (TreeMap<String, Results> results : regionResults) {
+                    Results result = results.firstEntry().getValue();
+                    double[] interceptSlopeRsquare = getMu(result);
+                    estimates.regionFits.add(new MaskEstimates.RegressionFit(interceptSlopeRsquare[0], interceptSlopeRsquare[1],
+                            result.getTotalSegmentLength() / result.getTotalSegmentCount(), result.getTotalSegmentCount()));
+                }
+            }
+        }
+        return estimates;
+    }
+
+    private double[] regressMuNoMaxCounts(TreeMap<Integer, Results> resultsMap, String maskFile) {
+        // will not do regression on maxCount, only one value available
+        double intercept = getMu(resultsMap.firstEntry().getValue())[0];
+        double mu = getMu(resultsMap.firstEntry().getValue())[1];
+        double rSquare = getMu(resultsMap.firstEntry().getValue())[2];
+        writeLog("\nNo GC correction for mask " + maskFile + "\t" + mu + "\t" + intercept);
+        return new double[]{mu, intercept, rSquare};
+    }
+
+    private double[] regressMuForListOfMaxCounts(int region, TreeMap<Integer, Results> resultsMap, String maskFile) {
+        double mean = 0.;
+        // will do regression on maxCount
+        // size-1 because of extra bin for uncorrected value
+        double[] muOfCount = new double[resultsMap.size() - 1];
+        double[][] counts = new double[resultsMap.size() - 1][1];
+        int i = 0;
+        for (int count = maxVarCountMin; count <= maxVarCountMax; count += maxVarCountInterval) {
+            if (config.isPrintRegression()) {
+                System.out.println("Regression\tExcluding region " + region + "\tMaAF\t" + count);
+            }
+            Results thisCountResults = resultsMap.get(count);
+            writeLog("\nCalling getMu for mask " + maskFile + " maxCount " + count);
+            muOfCount[i] = getMu(thisCountResults)[1];
+            mean += muOfCount[i];
+            writeLog("\nResult: " + muOfCount[i]);
+            counts[i][0] = count;
+            i++;
+        }
+        // do rgression on maxCounts
+        writeLog("\nRegression on max counts for " + maskFile);
+
+        if (!config.isCumulativeMaAFRegression()) {
+            return new double[]{mean / i / maxVarCountInterval, 0, 0};
+        } else {
+            double[] w = new double[counts.length];
+            for (int k = 0; k < w.length; k++) {
+                w[k] = 1.;
+            }
+            if (config.isPrintRegression()) {
+                System.out.println("Regression\tMaAF-Regression for all but " + region);
+            }
+            return Tools.simpleRegression(counts, muOfCount, w, config.isPrintRegression());
+        }
+    }
+}
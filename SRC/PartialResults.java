@@ -0,0 +1,194 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The counts of a subset of regions, written by --emitPartial so that regions
+ * can be counted on several machines and estimated together with
+ * --mergePartials. Files store the results of each region (for each mask and
+ * MaAF value) with the options they were counted with, which must be those
+ * of the merge.
+ *
+ * @author Pier Palamara
+ */
+class PartialResults {
+
+    private static final int magic = 0x49424450;
+    private static final int version = 1;
+
+    private final String countingOptions;
+    private final ArrayList<Integer> maxVarCountList;
+    private final ArrayList<String> pedFiles = new ArrayList<String>();
+    private final ArrayList<String> matchFiles = new ArrayList<String>();
+    private final ArrayList<TreeMap<String, Results>> regionResults = new ArrayList<TreeMap<String, Results>>();
+
+    private PartialResults(String countingOptions, ArrayList<Integer> maxVarCountList) {
+        this.countingOptions = countingOptions;
+        this.maxVarCountList = maxVarCountList;
+    }
+
+    /**
+     * @return the options that affect how the segments of a region are
+     * counted. Options only used to estimate rates from the counts are not
+     * part of them.
+     */
+    static String getCountingOptions(AnalysisConfig config) {
+        StringBuilder options = new StringBuilder();
+        for (String maskFile : config.getMaskFiles()) {
+            options.append("mask\t").append(maskFile).append("\n");
+        }
+        options.append("exclude\t").append(config.getExcludeFile()).append("\n");
+        options.append("onlyIncludeSNPs\t").append(config.getOnlyIncludeSNPsFile()).append("\n");
+        options.append("trinucleotideContext\t").append(config.getTrinucleotideContextFile()).append("\n");
+        if (config.usePosteriors()) {
+            options.append("posteriorRange\t").append(config.getPosteriorFrom()).append("\t").append(config.getPosteriorTo()).append("\n");
+        }
+        options.append("offsetCM\t").append(config.getOffsetCM()).append("\n");
+        options.append("minLen\t").append(config.getMinLen()).append("\n");
+        options.append("MaAF\t").append(config.getMaxVarCountMin()).append("\t").append(config.getMaxVarCountInterval())
+                .append("\t").append(config.getMaxVarCountMax()).append("\t").append(config.isCumulativeMaAFRegression()).append("\n");
+        options.append("roundTo\t").append(config.getRoundTo()).append("\n");
+        return options.toString();
+    }
+
+    /**
+     * Writes the results of regions to file. It is written to a temporary
+     * file first, so that an interrupted write never leaves a partial file.
+     */
+    public static void write(String file, AnalysisConfig config, List<Integer> maxVarCountList, List<String> pedFiles,
+            List<String> matchFiles, List<TreeMap<String, Results>> regionResults) throws IOException {
+        File partialFile = new File(file);
+        File tmpFile = new File(file + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tmpFile), 1 << 16)));
+        try {
+            out.writeInt(magic);
+            out.writeInt(version);
+            byte[] options = getCountingOptions(config).getBytes("UTF-8");
+            out.writeInt(options.length);
+            out.write(options);
+            out.writeInt(maxVarCountList.size());
+            for (int count : maxVarCountList) {
+                out.writeInt(count);
+            }
+            out.writeInt(regionResults.size());
+            for (int i = 0; i < regionResults.size(); i++) {
+                out.writeUTF(pedFiles.get(i));
+                out.writeUTF(matchFiles.get(i));
+                out.writeInt(regionResults.get(i).size());
+                for (Map.Entry<String, Results> entry : regionResults.get(i).entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    entry.getValue().write(out);
+                }
+            }
+        } finally {
+            out.close();
+        }
+        if (!tmpFile.renameTo(partialFile)) {
+            partialFile.delete();
+            if (!tmpFile.renameTo(partialFile)) {
+                tmpFile.delete();
+                throw new IOException("Could not rename " + tmpFile + " to " + partialFile);
+            }
+        }
+    }
+
+    /**
+     * @return the partial results in file
+     */
+    public static PartialResults read(String file) throws IOException {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), 1 << 16)));
+        } catch (IOException ex) {
+            Tools.exit("Could not open partial results file " + file);
+        }
+        try {
+            if (in.readInt() != magic || in.readInt() != version) {
+                Tools.exit(file + " is not a partial results file of this version.");
+            }
+            byte[] options = new byte[in.readInt()];
+            in.readFully(options);
+            ArrayList<Integer> maxVarCountList = new ArrayList<Integer>();
+            int numCounts = in.readInt();
+            for (int i = 0; i < numCounts; i++) {
+                maxVarCountList.add(in.readInt());
+            }
+            PartialResults partial = new PartialResults(new String(options, "UTF-8"), maxVarCountList);
+            int numRegions = in.readInt();
+            for (int i = 0; i < numRegions; i++) {
+                partial.pedFiles.add(in.readUTF());
+                partial.matchFiles.add(in.readUTF());
+                TreeMap<String, Results> results = new TreeMap<String, Results>();
+                int numResults = in.readInt();
+                for (int r = 0; r < numResults; r++) {
+                    String key = in.readUTF();
+                    results.put(key, Results.read(in));
+                }
+                partial.regionResults.add(results);
+            }
+            return partial;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return the options the regions were counted with, as given by
+     * getCountingOptions()
+     */
+    public String getCountingOptions() {
+        return countingOptions;
+    }
+
+    public ArrayList<Integer> getMaxVarCountList() {
+        return maxVarCountList;
+    }
+
+    public ArrayList<String> getPedFiles() {
+        return pedFiles;
+    }
+
+    public ArrayList<String> getMatchFiles() {
+        return matchFiles;
+    }
+
+    /**
+     * @return the results of each region, by the keys of
+     * PedMatchProcessor
+     */
+    public ArrayList<TreeMap<String, Results>> getRegionResults() {
+        return regionResults;
+    }
+}
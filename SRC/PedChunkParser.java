@@ -0,0 +1,96 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+
+/**
+ * Parses a chunk of consecutive PED lines on a worker thread. Alleles are
+ * resolved against a table local to the chunk; the reading thread later
+ * reconciles it with the table of the whole file (see PedParser.mergeAlleles)
+ * so that chunks can be parsed in any order.
+ *
+ * @author Pier Palamara
+ */
+class PedChunkParser implements Callable<PedChunkParser> {
+
+    private final ArrayList<byte[]> lines;
+    private final PedParser parser;
+    private final ArrayList<String[]> headers = new ArrayList<String[]>();
+    private final ArrayList<long[][]> haplotypes = new ArrayList<long[][]>();
+    private int missing = 0;
+
+    public PedChunkParser(ArrayList<byte[]> lines, int numSites) {
+        this.lines = lines;
+        this.parser = new PedParser(numSites);
+    }
+
+    public PedChunkParser call() throws Exception {
+        for (byte[] line : lines) {
+            String[] header = new String[PedParser.headerFields];
+            parser.parseHeader(line, line.length, header);
+            headers.add(header);
+            if (isTrioChild(header)) {
+                haplotypes.add(null);
+                continue;
+            }
+            int numWords = parser.getNumWords();
+            // bitSeq0, bitSeq1, mask0, mask1
+            long[][] words = new long[4][numWords];
+            missing += parser.parseGenotypes(line, line.length, words[0], words[1], words[2], words[3]);
+            haplotypes.add(words);
+        }
+        lines.clear();
+        return this;
+    }
+
+    static boolean isTrioChild(String[] header) {
+        return header[2].compareToIgnoreCase("0") != 0 || header[3].compareToIgnoreCase("0") != 0;
+    }
+
+    /**
+     * @return the parser
+     */
+    public PedParser getParser() {
+        return parser;
+    }
+
+    /**
+     * @return the headers
+     */
+    public ArrayList<String[]> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return the haplotypes, null for skipped lines
+     */
+    public ArrayList<long[][]> getHaplotypes() {
+        return haplotypes;
+    }
+
+    /**
+     * @return the missing
+     */
+    public int getMissing() {
+        return missing;
+    }
+}
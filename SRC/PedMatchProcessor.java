@@ -24,7 +24,6 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -32,10 +31,16 @@ import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
 import java.util.ArrayList;
-import java.util.BitSet;
 import java.util.TreeMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.TreeSet;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.GZIPInputStream;
@@ -47,95 +52,155 @@ import java.util.zip.GZIPOutputStream;
  */
 class PedMatchProcessor implements Callable<TreeMap<String, Results>> {
 
+    private final AnalysisConfig config;
     private final String pedFile;
     private final boolean useExcludeMask;
-    private final String maskFile;
     private final String excludeFile;
     private final String matchFile;
-    private final boolean usePosteriors;
     private final double offsetCM;
     private final ArrayList<Integer> maxVarCountList;
     private final double minLen;
-    private String posteriorsFile;
-    private final double posteriorFrom;
-    private final double posteriorTo;
-    private final boolean storePosterior;
     private final boolean printMutMatchOut;
-    private final boolean saveBin;
-    private final String saveBinSuffix;
-    private final boolean loadBin;
     private final boolean writeMutMatchOut;
-    private final String loadBinSuffix;
-    private final ArrayList<String> maskFiles;
+    private final List<String> maskFiles;
 
-    private static TreeSet<String> onlyIncludeSNPs;
-    private static boolean useOnlyIncludeSNPs = false;
+    // null if all SNPs are included
+    private final TreeSet<String> onlyIncludeSNPs;
+    private final boolean useOnlyIncludeSNPs;
+    // trinucleotides of each mutation, by chromosome:position
+    private final TreeMap<String, Pair<String, String>> context;
 
-    private static boolean cumulativeMaAFRegression = true;
+    private final boolean cumulativeMaAFRegression;
 
-    public static void setCumulativeMaAFRegression(boolean value) throws IOException {
-        cumulativeMaAFRegression = value;
-    }
-//    private final Dataset data;
+    // segments analyzed by each task; fixed, so that results do not depend on the number of threads
+    private static final int segmentsPerBatch = 1 << 14;
+    private final int threads;
+    // null if segments are analyzed by the thread of the region
+    private final ForkJoinPool segmentPool;
+    private final boolean useSegmentTables;
+    // MB of estimated dataset memory still available to the regions of the analysis
+    private final Semaphore memoryBudget;
+    private final int memoryBudgetMB;
+    private SegmentTable segmentTable;
+    // keeps datasets and segment tables between analyses, null if not used
+    private RegionCache cache = null;
+    private String datasetKey;
 
-    public static void setOnlyIncludeSNPs(String file) throws IOException {
-        Tools.printVerboseProgressLevel1("Reading SNP inclusion file " + file);
-        BufferedReader br = null;
-        onlyIncludeSNPs = new TreeSet<String>();
-        useOnlyIncludeSNPs = true;
-        try {
-            br = new BufferedReader(new FileReader(file));
-        } catch (FileNotFoundException ex) {
-            Tools.exit("Could not open SNP excusion file " + file);
-        }
-        String line = br.readLine();
-        while (line != null) {
-            String[] strSplit = line.trim().split("\\s+");
-            String ID = strSplit[0];
-            onlyIncludeSNPs.add(ID);
-            line = br.readLine();
-        }
-        Tools.printVerboseProgressLevel1("Read " + onlyIncludeSNPs.size() + " SNPs");
-    }
+    private static final int NO_BIN = -1;
+    private static final int UNKNOWN_BIN = -2;
+    private int[] varCountBins;
+    private int[] varCounts;
+    // class of the mutation at each site, -1 if not in the trinucleotide context file
+    private int[] trinucleotideCodes;
+    private MarkerIndex markers;
+    // physical position offsetCM to the right and to the left of each marker
+    private int[] trimmedFromPhys;
+    private int[] trimmedToPhys;
 
-    public PedMatchProcessor(String pedFile, boolean useMask, boolean useExcludeMask, String maskFile, String excludeFile, String matchFile,
-            double offsetCM, ArrayList<Integer> maxVarCountList, double minLen, boolean usePosteriors, String posteriorsFile, double posteriorFrom,
-            double posteriorTo, boolean storePosterior, boolean printMutMatchOut,
-            boolean saveBin, String saveBinSuffix, boolean loadBin, String loadBinSuffix,
-            boolean writeMutMatchOut, ArrayList<String> maskFiles) {
+    /**
+     * @param memoryBudget limits the total estimated memory, in MB, of the
+     * regions of the analysis loaded at the same time. Regions that do not fit
+     * wait, while loaded ones are analyzed.
+     * @param memoryBudgetMB the size of the whole budget
+     */
+    public PedMatchProcessor(AnalysisConfig config, String pedFile, String matchFile, ArrayList<Integer> maxVarCountList,
+            TreeSet<String> onlyIncludeSNPs, TreeMap<String, Pair<String, String>> context, ForkJoinPool segmentPool,
+            Semaphore memoryBudget, int memoryBudgetMB) {
+        this.config = config;
         this.pedFile = pedFile;
-        this.useExcludeMask = useExcludeMask;
-        this.maskFile = maskFile;
-        this.excludeFile = excludeFile;
         this.matchFile = matchFile;
-        this.offsetCM = offsetCM;
+        this.useExcludeMask = config.useExcludeMask();
+        this.excludeFile = config.getExcludeFile();
+        this.offsetCM = config.getOffsetCM();
         this.maxVarCountList = maxVarCountList;
-        this.minLen = minLen;
-        this.usePosteriors = usePosteriors;
-        this.posteriorsFile = posteriorsFile;
-        this.posteriorFrom = posteriorFrom;
-        this.posteriorTo = posteriorTo;
-        this.storePosterior = storePosterior;
-        this.printMutMatchOut = printMutMatchOut;
-        this.saveBin = saveBin;
-        this.saveBinSuffix = saveBinSuffix;
-        this.loadBin = loadBin;
-        this.loadBinSuffix = loadBinSuffix;
-        this.writeMutMatchOut = writeMutMatchOut;
-        this.maskFiles = maskFiles;
+        this.minLen = config.getMinLen();
+        this.printMutMatchOut = config.isPrintMutMatch();
+        this.writeMutMatchOut = config.isWriteMutMatch();
+        this.maskFiles = config.getMaskFiles();
+        this.onlyIncludeSNPs = onlyIncludeSNPs;
+        this.useOnlyIncludeSNPs = (onlyIncludeSNPs != null);
+        this.context = context;
+        this.cumulativeMaAFRegression = config.isCumulativeMaAFRegression();
+        this.threads = config.getThreads();
+        this.segmentPool = segmentPool;
+        this.useSegmentTables = config.useSegmentTables();
+        this.memoryBudget = memoryBudget;
+        this.memoryBudgetMB = memoryBudgetMB;
     }
 
-    public TreeMap<String, Results> call() throws FileNotFoundException, IOException {
+    /**
+     * Uses the datasets and segment tables of cache, which are loaded into it
+     * if not there.
+     */
+    public void setCache(RegionCache cache) {
+        this.cache = cache;
+    }
 
-        Dataset data = new DataLoader(loadBinSuffix, saveBinSuffix, pedFile, saveBin, loadBin, usePosteriors, posteriorFrom, posteriorTo, storePosterior).call();
+    public TreeMap<String, Results> call() throws Exception {
+        if (cache != null) {
+            datasetKey = RegionCache.getDatasetKey(config, pedFile);
+            Dataset data = cache.getDataset(datasetKey);
+            if (data != null) {
+                Tools.printVerboseProgressLevel1("Using loaded data for " + pedFile);
+                data.resetCounts();
+                return analyze(data);
+            }
+        }
+        DataLoader loader = new DataLoader(config, pedFile);
+        int reservedMB = reserveMemory(loader);
+        try {
+            Dataset data = loader.call();
+            if (cache != null) {
+                cache.putDataset(datasetKey, data);
+            }
+            return analyze(data);
+        } finally {
+            if (reservedMB > 0) {
+                memoryBudget.release(reservedMB);
+            }
+        }
+    }
+
+    /**
+     * Waits until the estimated memory of this region fits in the budget. A
+     * region estimated to need more than the whole budget waits for all of
+     * it, and is then analyzed alone.
+     *
+     * @return the MB reserved, to be released when the region is done
+     */
+    private int reserveMemory(DataLoader loader) throws InterruptedException {
+        long estimate = loader.estimateMemory();
+        int MB = (int) Math.min(memoryBudgetMB, Math.max(1, estimate >> 20));
+        if (!memoryBudget.tryAcquire(MB)) {
+            Tools.printVerboseProgressLevel1("Waiting for memory to load " + pedFile + " (estimated " + (estimate >> 20) + " MB)");
+            memoryBudget.acquire(MB);
+        }
+        return MB;
+    }
+
+    private TreeMap<String, Results> analyze(Dataset data) throws Exception {
+        markers = data.getMarkers();
+        setTrimmedBounds(data);
+        setVarCountBins(data);
+        trinucleotideCodes = TrinucleotideContext.getClassCodes(markers, context);
         TreeMap<String, Results> resultsList = new TreeMap<String, Results>();
+        if (!printMutMatchOut && !writeMutMatchOut) {
+            // read the match file once for up to 64 masks at a time
+            for (int firstMask = 0; firstMask < maskFiles.size(); firstMask += 64) {
+                int lastMask = Math.min(firstMask + 64, maskFiles.size());
+                processMatchFileForMasks(data, new ArrayList<String>(maskFiles.subList(firstMask, lastMask)), resultsList);
+            }
+            return resultsList;
+        }
+        // segments are printed in file order, one mask at a time, visiting sites one by one
         for (String maskFile : maskFiles) {
-            boolean useTrinucleotideContext = (TrinucleotideContext.context != null);
-            boolean didAlreadyWarnMatchFileHasNoSNPs = false;
+            boolean useTrinucleotideContext = (context != null);
+            SegmentEndpointResolver endpoints = new SegmentEndpointResolver(markers);
 
             for (Integer count : maxVarCountList) {
-                resultsList.put(maskFile + "\t" + count, new Results(maskFile, count));
+                resultsList.put(maskFile + "\t" + count, new Results(maskFile, count, config.getRoundTo()));
             }
+            Results[] binResults = newBinResults(maskFile);
 
             FileOutputStream MUToutput = null;
             Writer MUTwriter = null;
@@ -148,7 +213,12 @@ class PedMatchProcessor implements Callable<TreeMap<String, Results>> {
             if (useExcludeMask) {
                 data.setExcludeMask(new Mask(excludeFile, data.getChr()));
             }
-
+            // masks and SNP lists are compiled to one bit per marker; null if all markers are included
+            long[] include = null;
+            if (useMask || useExcludeMask || useOnlyIncludeSNPs) {
+                include = data.getIncludedSites(useMask ? data.getIncludeMask() : null, useExcludeMask ? data.getExcludeMask() : null,
+                        useOnlyIncludeSNPs ? onlyIncludeSNPs : null);
+            }
             Tools.printVerboseProgressLevel1("Reading file " + matchFile);
             if (this.writeMutMatchOut) {
                 File f = new File(maskFile);
@@ -156,21 +226,7 @@ class PedMatchProcessor implements Callable<TreeMap<String, Results>> {
                 MUToutput = new FileOutputStream(matchFile + "." + mask + ".mut.gz");
                 MUTwriter = new OutputStreamWriter(new GZIPOutputStream(MUToutput), "UTF-8");
             }
-            BufferedReader br = null;
-            try {
-                InputStream fileStream = new FileInputStream(matchFile);
-                InputStream gzipStream = new GZIPInputStream(fileStream);
-                Reader decoder = new InputStreamReader(gzipStream, "UTF-8");
-                br = new BufferedReader(decoder);
-            } catch (FileNotFoundException ex) {
-                Tools.exit("Could not open match file " + matchFile);
-
-            } catch (IOException ex) {
-                Logger.getLogger(PedMatchProcessor.class
-                        .getName()).log(Level.SEVERE, null, ex);
-                System.exit(
-                        1);
-            }
+            BufferedReader br = openMatchFile();
 
             // PROCESS MATCH
             try {
@@ -199,124 +255,54 @@ class PedMatchProcessor implements Callable<TreeMap<String, Results>> {
                         continue;
                     }
 
-                    int mapFrom, mapTo;
-                    try {
-                        mapFrom = data.getIDtoPos().get(fromSNP);
-                        mapTo = data.getIDtoPos().get(toSNP);
-                    } catch (Exception ex) {
-                        if (!didAlreadyWarnMatchFileHasNoSNPs) {
-                            Tools.warning("Warning: Could not find SNPs indicated in match file. Will always find them using physical start/end of segments.");
-                            didAlreadyWarnMatchFileHasNoSNPs = true;
-                        }
-                        fromSNP = (data.getPhysToID().ceilingEntry(fromPos) != null) ? data.getPhysToID().ceilingEntry(fromPos).getValue() : data.getPhysToID().floorEntry(fromPos).getValue();
-                        mapFrom = data.getIDtoPos().get(fromSNP);
-                        toSNP = (data.getPhysToID().floorEntry(toPos) != null) ? data.getPhysToID().floorEntry(toPos).getValue() : data.getPhysToID().ceilingEntry(toPos).getValue();
-                        mapTo = data.getIDtoPos().get(toSNP);
-                    }
+                    endpoints.resolve(fromSNP, toSNP, fromPos, toPos);
+                    int mapFrom = endpoints.getFrom();
+                    int mapTo = endpoints.getTo();
                     Individual ID1 = data.getIndividuals().get(FamID1 + "\t" + IndID1);
                     Individual ID2 = data.getIndividuals().get(FamID2 + "\t" + IndID2);
-                    TreeMap<Integer, Integer> diffList = new TreeMap<Integer, Integer>();
-                    for (Integer maxVarCount : maxVarCountList) {
-                        diffList.put(maxVarCount, 0);
-                    }
-                    BitSet bitSeq1 = ID1.getBitSeq();
-                    BitSet mask1 = ID1.getMask();
-                    BitSet bitSeq2 = ID2.getBitSeq();
-                    BitSet mask2 = ID2.getMask();
-                    double fromGen = data.getGenPosArray().get(mapFrom);
-                    double toGen = data.getGenPosArray().get(mapTo);
-                    int firstPos = -1;
+                    int[] binCounts = new int[maxVarCountList.size()];
+                    double fromGen = markers.getGenPos(mapFrom);
+                    double toGen = markers.getGenPos(mapTo);
                     int inMaskSize = 0;
                     for (int ind = mapFrom; ind <= mapTo; ind++) {
-                        double distanceFromLeftEdge = data.getGenPosArray().get(ind) - fromGen;
-                        double distanceFromRightEdge = toGen - data.getGenPosArray().get(ind);
+                        double distanceFromLeftEdge = markers.getGenPos(ind) - fromGen;
+                        double distanceFromRightEdge = toGen - markers.getGenPos(ind);
                         if (distanceFromLeftEdge < offsetCM || distanceFromRightEdge < offsetCM) {
                             continue;
                         }
-                        if (firstPos == -1) {
-                            firstPos = data.getPhysPos().get(ind);
-                        }
-                        int SNPpos = data.getPhysPos().get(ind);
-
-                        if ((useExcludeMask && data.getExcludeMask().contains(SNPpos)) || (useMask && !data.getIncludeMask().contains(SNPpos))) {
-                            data.setNotInMask(data.getNotInMask() + 1);
-                            continue;
-                        }
+                        int SNPpos = markers.getPhysPos(ind);
 
-                        if (useOnlyIncludeSNPs && !onlyIncludeSNPs.contains(data.getPhysToID().get(SNPpos))) {
+                        if (include != null && (include[ind >>> 6] & (1L << ind)) == 0) {
                             data.setNotInMask(data.getNotInMask() + 1);
                             continue;
                         }
 
                         data.setInMask(data.getInMask() + 1);
-                        if (!mask1.get(ind) || !mask2.get(ind)) {
+                        if (!ID1.isObserved(ind) || !ID2.isObserved(ind)) {
                             //HANDLE MISSING
                         } else {
-                            if (bitSeq1.get(ind) != bitSeq2.get(ind)) {
-                                if (data.isHaveFreq() && (printMutMatchOut || writeMutMatchOut)) {
-                                    // if they are the same
-                                }
-                                for (int cntInd = 0; cntInd < maxVarCountList.size(); cntInd++) {
-                                    int maxVarCount = maxVarCountList.get(cntInd);
-                                    Results results = resultsList.get(maskFile + "\t" + maxVarCount);
-                                    boolean condition = (!cumulativeMaAFRegression)
-                                            ? (cntInd != 0)
-                                            && (data.getIDToVarCounts().get(data.getPhysToID().get(SNPpos)) < maxVarCount
-                                            && data.getIDToVarCounts().get(data.getPhysToID().get(SNPpos)) >= maxVarCountList.get(cntInd - 1))
-                                            : (data.getIDToVarCounts().get(data.getPhysToID().get(SNPpos)) <= maxVarCount);
-                                    if (condition) {
-                                        int diff = diffList.get(maxVarCount);
-                                        diff++;
-                                        if (useTrinucleotideContext) {
-                                            Pair<String, String> trinucleotides = TrinucleotideContext.getTrinucleotides(data.getPhysToID().get(SNPpos));
-                                            if (trinucleotides != null) {
-                                                results.increaseTrinucleotideCounts(trinucleotides.getKey(), trinucleotides.getValue());
-                                            }
-                                        }
-                                        diffList.put(maxVarCount, diff);
-                                        double lenRounded = Math.floor(length * 2) / 2.0;
-                                        if (data.getVariants().get(ind).isTransition()) {
-                                            results.setTransitions(results.getTransitions() + 1);
-                                            double val = (results.getTransitionPerCM().containsKey(lenRounded)) ? results.getTransitionPerCM().get(lenRounded) + 1 : 1;
-                                            results.getTransitionPerCM().put(lenRounded, val);
-                                        } else {
-                                            results.setTransversions(results.getTransversions() + 1);
-                                            double val = (results.getTransversionPerCM().containsKey(lenRounded)) ? results.getTransversionPerCM().get(lenRounded) + 1 : 1;
-                                            results.getTransversionPerCM().put(lenRounded, val);
-                                        }
-                                        if (data.isHaveFreq()) {
-                                            double frq = data.getIDToFreq().get(data.getPhysToID().get(SNPpos));
-                                            int frqCounts = 1;
-                                            if (results.getFreqCounts().containsKey(frq)) {
-                                                frqCounts += results.getFreqCounts().get(frq);
-                                            }
-                                            results.getFreqCounts().put(frq, frqCounts);
-                                        }
-                                    }
-                                }
+                            if (ID1.getAllele(ind) != ID2.getAllele(ind)) {
+                                addDiscordantSite(data, ind, length, binResults, binCounts, useTrinucleotideContext);
                             } else {
-                                // if they are different
-                                double frq = data.getIDToFreq().get(data.getPhysToID().get(SNPpos));
-                                IDsOfMismatchingSNPsOnSegment.add(data.getPhysToID().get(SNPpos));
+                                // if they are the same
+                                double frq = data.getIDToFreq().get(markers.getIDAtPhys(SNPpos));
+                                IDsOfMismatchingSNPsOnSegment.add(markers.getIDAtPhys(SNPpos));
                                 freqOfMismatchingSNPsOnSegment.add(frq);
                             }
                         }
                     }
-                    int exactFromPhys = data.genCoordToPhys(data.getIdToGen().get(fromSNP) + offsetCM);
-                    int exactToPhys = data.genCoordToPhys(data.getIdToGen().get(toSNP) - offsetCM);
+                    int exactFromPhys = trimmedFromPhys[mapFrom];
+                    int exactToPhys = trimmedToPhys[mapTo];
                     inMaskSize = (exactToPhys <= exactFromPhys) ? 0 : (exactToPhys - exactFromPhys);
                     if (useMask && inMaskSize > 0) {
                         inMaskSize = data.getIncludeMask().getMaskOverlapWithRegion(exactFromPhys, exactToPhys);
                     }
                     if (inMaskSize > 0) {
-                        for (Integer maxVarCount : maxVarCountList) {
-                            int diff = diffList.get(maxVarCount);
+                        int[] diffs = getDiffs(binCounts);
+                        for (int cntInd = 0; cntInd < maxVarCountList.size(); cntInd++) {
+                            int maxVarCount = maxVarCountList.get(cntInd);
+                            int diff = diffs[cntInd];
                             Results results = resultsList.get(maskFile + "\t" + maxVarCount);
-                            results.addTotInMask(inMaskSize);
-                            results.setTotalSegmentCount(results.getTotalSegmentCount() + 1);
-                            results.setTotalSegmentLength(results.getTotalSegmentLength() + length);
-//                        TODO here is where it's added. May fix'
-                            results.addHetCount(length, diff, inMaskSize);
                             StringBuilder additionalInfoString = null;
                             if (printMutMatchOut || writeMutMatchOut) {
                                 additionalInfoString = new StringBuilder();
@@ -331,20 +317,7 @@ class PedMatchProcessor implements Callable<TreeMap<String, Results>> {
                             if (writeMutMatchOut) {
                                 MUTwriter.write(line + "\t" + diff + "\t" + inMaskSize + "\t" + maxVarCount + "\t" + additionalInfoString.toString() + "\n");
                             }
-                            double histBin = (double) Math.round(length * data.getRoundTo()) / data.getRoundTo();
-                            double counts = diff;
-                            data.setTotDiff(data.getTotDiff() + diff);
-                            if (results.getCountsHistogram().containsKey(histBin)) {
-                                counts += results.getCountsHistogram().get(histBin);
-                            }
-                            results.getCountsHistogram().put(histBin, counts);
-
-                            double inMaskThisSegment = inMaskSize;
-                            data.setTotInMask(data.getTotInMask() + inMaskSize);
-                            if (results.getInMaskHistogram().containsKey(histBin)) {
-                                inMaskThisSegment += results.getInMaskHistogram().get(histBin);
-                            }
-                            results.getInMaskHistogram().put(histBin, inMaskThisSegment);
+                            addSegmentCounts(data, results, length, diff, inMaskSize);
                         }
                     }
                     line = br.readLine();
@@ -352,6 +325,7 @@ class PedMatchProcessor implements Callable<TreeMap<String, Results>> {
             } catch (IOException ex) {
                 Tools.exit("Could not read match file " + matchFile);
             }
+            addBinResults(maskFile, binResults, resultsList);
 
             if (this.writeMutMatchOut) {
                 MUTwriter.flush();
@@ -365,4 +339,556 @@ class PedMatchProcessor implements Callable<TreeMap<String, Results>> {
         return resultsList;
     }
 
+    /**
+     * Reads the match file once and updates the results of all masks, which
+     * must be at most 64. Sites are assigned a membership word with one bit
+     * per mask, so that each segment is compared only once. Segments are
+     * analyzed in batches, in parallel if more than one thread is used, and
+     * batches are added up in file order.
+     */
+    private void processMatchFileForMasks(Dataset data, ArrayList<String> masks, TreeMap<String, Results> resultsList) throws IOException, InterruptedException, ExecutionException {
+        AnalysisEvents.MatchProcessing event = new AnalysisEvents.MatchProcessing();
+        event.begin();
+        long sitesBefore = (long) data.getInMask() + data.getNotInMask();
+        long inMaskBefore = data.getInMask();
+        double discordantBefore = data.getTotDiff();
+        int numMasks = masks.size();
+        Mask[] includeMasks = new Mask[numMasks];
+        ArrayList<Results[]> binResults = new ArrayList<Results[]>(numMasks);
+        for (int m = 0; m < numMasks; m++) {
+            String maskFile = masks.get(m);
+            for (Integer count : maxVarCountList) {
+                resultsList.put(maskFile + "\t" + count, new Results(maskFile, count, config.getRoundTo()));
+            }
+            binResults.add(newBinResults(maskFile));
+            if (maskFile.compareToIgnoreCase("") != 0) {
+                includeMasks[m] = new Mask(maskFile, data.getChr());
+            }
+        }
+        if (useExcludeMask) {
+            data.setExcludeMask(new Mask(excludeFile, data.getChr()));
+        }
+        long[] membership = getMaskMembership(data, includeMasks);
+        // inMaskPrefix[i] is the number of (site, mask) pairs included before site i
+        int[] inMaskPrefix = new int[membership.length + 1];
+        for (int i = 0; i < membership.length; i++) {
+            inMaskPrefix[i + 1] = inMaskPrefix[i] + Long.bitCount(membership[i]);
+        }
+
+        BatchQueue batches = new BatchQueue(data, masks, includeMasks, membership, inMaskPrefix, resultsList, binResults);
+        if (useSegmentTables) {
+            addSegmentsFromTable(data, batches);
+        } else {
+            addSegmentsFromMatchFile(data, batches);
+        }
+        batches.finish();
+        for (int m = 0; m < numMasks; m++) {
+            addBinResults(masks.get(m), binResults.get(m), resultsList);
+        }
+        Tools.printVerboseProgressLevel2("Finished analyzing file " + pedFile + " for " + numMasks + " masks. In mask:\t" + data.getInMask() + "\tnot in mask:\t" + data.getNotInMask() + "\tratio:\t" + ((double) data.getInMask()) / data.getNotInMask());
+        if (event.shouldCommit()) {
+            event.region = pedFile;
+            event.matchFile = matchFile;
+            event.masks = numMasks;
+            event.fromSegmentTable = useSegmentTables;
+            event.bytes = ((useSegmentTables) ? SegmentTable.getTableFile(matchFile) : new File(matchFile)).length();
+            event.segments = batches.getSegments();
+            event.sitesScanned = (long) data.getInMask() + data.getNotInMask() - sitesBefore;
+            event.sitesInMasks = data.getInMask() - inMaskBefore;
+            event.discordant = (long) (data.getTotDiff() - discordantBefore);
+            event.commit();
+        }
+    }
+
+    /**
+     * Adds the segments of the stored segment table that pass the length
+     * filters, building the table first if needed.
+     */
+    private void addSegmentsFromTable(Dataset data, BatchQueue batches) throws IOException, InterruptedException, ExecutionException {
+        if (segmentTable == null) {
+            segmentTable = getSegmentTable();
+        }
+        Individual[] individuals = new Individual[segmentTable.getNames().length];
+        for (int i = 0; i < individuals.length; i++) {
+            individuals[i] = data.getIndividuals().get(segmentTable.getNames()[i]);
+        }
+        for (int s = 0; s < segmentTable.size(); s++) {
+            double length = segmentTable.getLength(s);
+            if (length < minLen || length - 2 * offsetCM <= 0) {
+                continue;
+            }
+            batches.add(individuals[segmentTable.getID1(s)], individuals[segmentTable.getID2(s)],
+                    segmentTable.getFrom(s), segmentTable.getTo(s), length);
+        }
+    }
+
+    /**
+     * Parses the match file and adds the segments that pass the length
+     * filters. With more than one thread this is the middle stage of a
+     * pipeline: the file is inflated on another thread, and batches of
+     * segments are compared on the segment pool. Both hand-offs are bounded,
+     * so that a slow stage holds back the faster ones.
+     */
+    private void addSegmentsFromMatchFile(Dataset data, BatchQueue batches) throws InterruptedException, ExecutionException {
+        SegmentEndpointResolver endpoints = new SegmentEndpointResolver(markers);
+        Tools.printVerboseProgressLevel1("Reading file " + matchFile);
+        ByteLineReader reader = openMatchFileLines();
+        FieldTokenizer fields = new FieldTokenizer();
+
+        // PROCESS MATCH
+        try {
+            // closed on errors too, which also stops the thread reading ahead
+            try {
+                while (reader.readLine()) {
+                    fields.tokenize(reader.getLine(), reader.getLineLength());
+                    int fromPos = fields.getInt(5);
+                    int toPos = fields.getInt(6);
+                    double length = fields.getDouble(10);
+                    if (fields.getString(11).compareToIgnoreCase("Mb") == 0) {
+                        Tools.warning("Warning: parsed match which is not in cM unit.");
+                    }
+
+                    if (length < minLen || length - 2 * offsetCM <= 0) {
+                        continue;
+                    }
+
+                    endpoints.resolve(fields.getString(7), fields.getString(8), fromPos, toPos);
+                    batches.add(data.getIndividuals().get(fields.getString(0) + "\t" + fields.getString(1)),
+                            data.getIndividuals().get(fields.getString(2) + "\t" + fields.getString(3)),
+                            endpoints.getFrom(), endpoints.getTo(), length);
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException ex) {
+            Tools.exit("Could not read match file " + matchFile);
+        }
+    }
+
+    /**
+     * @return the segment table stored for the match file, which is built and
+     * stored first if there is none for the current match file and map. Tables
+     * are kept in the cache, if there is one.
+     */
+    private SegmentTable getSegmentTable() throws IOException {
+        SegmentTable table = (cache != null) ? cache.getSegmentTable(datasetKey, matchFile) : null;
+        if (table != null) {
+            return table;
+        }
+        table = SegmentTable.read(matchFile, markers);
+        if (table != null) {
+            Tools.printVerboseProgressLevel1("Read " + table.size() + " segments from " + SegmentTable.getTableFile(matchFile));
+            if (cache != null) {
+                cache.putSegmentTable(datasetKey, matchFile, table);
+            }
+            return table;
+        }
+        Tools.printVerboseProgressLevel1("Reading file " + matchFile);
+        BufferedReader br = openMatchFile();
+        try {
+            table = SegmentTable.build(br, markers);
+        } catch (IOException ex) {
+            Tools.exit("Could not read match file " + matchFile);
+        } finally {
+            br.close();
+        }
+        try {
+            table.write(matchFile, markers);
+        } catch (IOException ex) {
+            Tools.warning("Could not store segment table for " + matchFile + ": " + ex.getMessage());
+        }
+        if (cache != null) {
+            cache.putSegmentTable(datasetKey, matchFile, table);
+        }
+        return table;
+    }
+
+    /**
+     * Groups segments into batches, submits them and adds finished batches to
+     * the results of the region, in file order.
+     */
+    private class BatchQueue {
+
+        private final Dataset data;
+        private final ArrayList<String> masks;
+        private final Mask[] includeMasks;
+        private final long[] membership;
+        private final int[] inMaskPrefix;
+        private final TreeMap<String, Results> resultsList;
+        private final ArrayList<Results[]> binResults;
+        private final LinkedList<Future<SegmentBatch>> pending = new LinkedList<Future<SegmentBatch>>();
+        private SegmentBatch batch;
+        private long segments = 0;
+
+        public BatchQueue(Dataset data, ArrayList<String> masks, Mask[] includeMasks, long[] membership, int[] inMaskPrefix,
+                TreeMap<String, Results> resultsList, ArrayList<Results[]> binResults) {
+            this.data = data;
+            this.masks = masks;
+            this.includeMasks = includeMasks;
+            this.membership = membership;
+            this.inMaskPrefix = inMaskPrefix;
+            this.resultsList = resultsList;
+            this.binResults = binResults;
+            batch = new SegmentBatch(data, masks, includeMasks, membership, inMaskPrefix);
+        }
+
+        public void add(Individual ID1, Individual ID2, int mapFrom, int mapTo, double length) throws IOException, InterruptedException, ExecutionException {
+            batch.add(ID1, ID2, mapFrom, mapTo, length);
+            segments++;
+            if (batch.isFull()) {
+                pending.add(submitBatch(batch));
+                batch = new SegmentBatch(data, masks, includeMasks, membership, inMaskPrefix);
+                if (pending.size() >= 2 * threads) {
+                    // add the oldest batch, in file order
+                    pending.removeFirst().get().addTo(data, resultsList, binResults);
+                }
+            }
+        }
+
+        /**
+         * @return the number of segments added
+         */
+        public long getSegments() {
+            return segments;
+        }
+
+        /**
+         * Submits the last batch and waits for all batches to be added.
+         */
+        public void finish() throws IOException, InterruptedException, ExecutionException {
+            if (!batch.isEmpty()) {
+                pending.add(submitBatch(batch));
+            }
+            while (!pending.isEmpty()) {
+                pending.removeFirst().get().addTo(data, resultsList, binResults);
+            }
+        }
+    }
+
+    /**
+     * @return the analyzed batch, which is analyzed by this thread if only
+     * one thread is used
+     */
+    private Future<SegmentBatch> submitBatch(SegmentBatch batch) {
+        if (segmentPool == null) {
+            FutureTask<SegmentBatch> task = new FutureTask<SegmentBatch>(batch);
+            task.run();
+            return task;
+        }
+        return segmentPool.submit(batch);
+    }
+
+    /**
+     * Segments of a match file, analyzed for up to 64 masks into results and
+     * counters of their own, which are then added to those of the region.
+     * Batches always hold segmentsPerBatch segments (except for the last one),
+     * so the results do not depend on the number of threads.
+     */
+    private class SegmentBatch implements Callable<SegmentBatch> {
+
+        private final Dataset data;
+        private final Mask[] includeMasks;
+        private final long[] membership;
+        private final int[] inMaskPrefix;
+        private final Individual[] ID1s = new Individual[segmentsPerBatch];
+        private final Individual[] ID2s = new Individual[segmentsPerBatch];
+        private final int[] mapFroms = new int[segmentsPerBatch];
+        private final int[] mapTos = new int[segmentsPerBatch];
+        private final double[] lengths = new double[segmentsPerBatch];
+        private int size = 0;
+        // results of each mask and threshold
+        private final Results[][] results;
+        private final Results[][] binResults;
+        private int inMask = 0;
+        private int notInMask = 0;
+        private double totDiff = 0.0;
+        private double totInMask = 0.0;
+
+        public SegmentBatch(Dataset data, ArrayList<String> masks, Mask[] includeMasks, long[] membership, int[] inMaskPrefix) {
+            this.data = data;
+            this.includeMasks = includeMasks;
+            this.membership = membership;
+            this.inMaskPrefix = inMaskPrefix;
+            results = new Results[masks.size()][];
+            binResults = new Results[masks.size()][];
+            for (int m = 0; m < masks.size(); m++) {
+                results[m] = newBinResults(masks.get(m));
+                binResults[m] = newBinResults(masks.get(m));
+            }
+        }
+
+        public void add(Individual ID1, Individual ID2, int mapFrom, int mapTo, double length) {
+            ID1s[size] = ID1;
+            ID2s[size] = ID2;
+            mapFroms[size] = mapFrom;
+            mapTos[size] = mapTo;
+            lengths[size] = length;
+            size++;
+        }
+
+        public boolean isFull() {
+            return size == segmentsPerBatch;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public SegmentBatch call() {
+            boolean useTrinucleotideContext = (context != null);
+            int numMasks = results.length;
+            for (int s = 0; s < size; s++) {
+                int mapFrom = mapFroms[s];
+                int mapTo = mapTos[s];
+                double length = lengths[s];
+                int[][] binCounts = new int[numMasks][maxVarCountList.size()];
+                double fromGen = markers.getGenPos(mapFrom);
+                double toGen = markers.getGenPos(mapTo);
+                int firstSite = SegmentComparator.firstSiteAwayFromLeftEdge(markers.getGenPositions(), mapFrom, mapTo, fromGen, offsetCM);
+                int lastSite = SegmentComparator.lastSiteAwayFromRightEdge(markers.getGenPositions(), mapFrom, mapTo, toGen, offsetCM);
+                if (firstSite <= lastSite) {
+                    int inMaskThisSegment = inMaskPrefix[lastSite + 1] - inMaskPrefix[firstSite];
+                    inMask += inMaskThisSegment;
+                    notInMask += (lastSite - firstSite + 1) * numMasks - inMaskThisSegment;
+                    long[] hap1 = ID1s[s].getBitWords();
+                    long[] observed1 = ID1s[s].getMaskWords();
+                    long[] hap2 = ID2s[s].getBitWords();
+                    long[] observed2 = ID2s[s].getMaskWords();
+                    int lastWord = lastSite >>> 6;
+                    for (int w = firstSite >>> 6; w <= lastWord; w++) {
+                        long discordant = SegmentComparator.discordantWord(hap1, observed1, hap2, observed2, w)
+                                & SegmentComparator.rangeMask(w, firstSite, lastSite);
+                        while (discordant != 0) {
+                            int ind = (w << 6) + Long.numberOfTrailingZeros(discordant);
+                            discordant &= discordant - 1;
+                            long masksOfSite = membership[ind];
+                            while (masksOfSite != 0) {
+                                int m = Long.numberOfTrailingZeros(masksOfSite);
+                                masksOfSite &= masksOfSite - 1;
+                                addDiscordantSite(data, ind, length, binResults[m], binCounts[m], useTrinucleotideContext);
+                            }
+                        }
+                    }
+                }
+                int exactFromPhys = trimmedFromPhys[mapFrom];
+                int exactToPhys = trimmedToPhys[mapTo];
+                int segmentSize = (exactToPhys <= exactFromPhys) ? 0 : (exactToPhys - exactFromPhys);
+                for (int m = 0; m < numMasks; m++) {
+                    int inMaskSize = segmentSize;
+                    if (includeMasks[m] != null && inMaskSize > 0) {
+                        inMaskSize = includeMasks[m].getMaskOverlapWithRegion(exactFromPhys, exactToPhys);
+                    }
+                    if (inMaskSize > 0) {
+                        int[] diffs = getDiffs(binCounts[m]);
+                        for (int cntInd = 0; cntInd < diffs.length; cntInd++) {
+                            addSegmentCounts(results[m][cntInd], length, diffs[cntInd], inMaskSize);
+                            totDiff += diffs[cntInd];
+                            totInMask += inMaskSize;
+                        }
+                    }
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Adds the results and counters of this batch to those of the region.
+         */
+        public void addTo(Dataset data, TreeMap<String, Results> resultsList, ArrayList<Results[]> regionBinResults) throws IOException {
+            for (int m = 0; m < results.length; m++) {
+                for (int cntInd = 0; cntInd < maxVarCountList.size(); cntInd++) {
+                    resultsList.get(results[m][cntInd].getMaskMinCountString()).addResults(results[m][cntInd]);
+                    regionBinResults.get(m)[cntInd].addSiteCounts(binResults[m][cntInd]);
+                }
+            }
+            data.setInMask(data.getInMask() + inMask);
+            data.setNotInMask(data.getNotInMask() + notInMask);
+            data.setTotDiff(data.getTotDiff() + totDiff);
+            data.setTotInMask(data.getTotInMask() + totInMask);
+        }
+    }
+
+    /**
+     * @return for each site, a word with bit m set if the site is in mask m
+     * (null masks include all sites) and is not removed by --exclude or
+     * --onlyIncludeSNPs
+     */
+    private long[] getMaskMembership(Dataset data, Mask[] includeMasks) {
+        long[] membership = new long[markers.size()];
+        for (int m = 0; m < includeMasks.length; m++) {
+            long[] include = data.getIncludedSites(includeMasks[m], useExcludeMask ? data.getExcludeMask() : null,
+                    useOnlyIncludeSNPs ? onlyIncludeSNPs : null);
+            for (int w = 0; w < include.length; w++) {
+                long word = include[w];
+                while (word != 0) {
+                    membership[(w << 6) + Long.numberOfTrailingZeros(word)] |= 1L << m;
+                    word &= word - 1;
+                }
+            }
+        }
+        return membership;
+    }
+
+    private BufferedReader openMatchFile() {
+        BufferedReader br = null;
+        try {
+            InputStream fileStream = new FileInputStream(matchFile);
+            InputStream gzipStream = new GZIPInputStream(fileStream);
+            Reader decoder = new InputStreamReader(gzipStream, "UTF-8");
+            br = new BufferedReader(decoder);
+        } catch (FileNotFoundException ex) {
+            Tools.exit("Could not open match file " + matchFile);
+
+        } catch (IOException ex) {
+            Logger.getLogger(PedMatchProcessor.class
+                    .getName()).log(Level.SEVERE, null, ex);
+            Tools.exit("Could not read match file " + matchFile);
+        }
+        return br;
+    }
+
+    /**
+     * @return a reader of the lines of the match file, which is inflated on
+     * another thread if more than one thread is used
+     */
+    private ByteLineReader openMatchFileLines() {
+        ByteLineReader reader = null;
+        try {
+            InputStream in = new GZIPInputStream(new FileInputStream(matchFile), 1 << 16);
+            if (threads > 1) {
+                in = new ReadAheadInputStream(in, 1 << 20, 4);
+            }
+            reader = new ByteLineReader(in, 1 << 16);
+        } catch (FileNotFoundException ex) {
+            Tools.exit("Could not open match file " + matchFile);
+        } catch (IOException ex) {
+            Tools.exit("Could not read match file " + matchFile);
+        }
+        return reader;
+    }
+
+    private void addSegmentCounts(Dataset data, Results results, double length, int diff, int inMaskSize) {
+        addSegmentCounts(results, length, diff, inMaskSize);
+        data.setTotDiff(data.getTotDiff() + diff);
+        data.setTotInMask(data.getTotInMask() + inMaskSize);
+    }
+
+    private void addSegmentCounts(Results results, double length, int diff, int inMaskSize) {
+        results.addTotInMask(inMaskSize);
+        results.setTotalSegmentCount(results.getTotalSegmentCount() + 1);
+        results.setTotalSegmentLength(results.getTotalSegmentLength() + length);
+//        TODO here is where it's added. May fix'
+        results.addHetCount(length, diff, inMaskSize);
+        results.addRoundedLengthCounts(length, diff, inMaskSize);
+    }
+
+    /**
+     * Converts the genetic positions offsetCM away from each marker to
+     * physical positions, which bound the part of a segment that is analyzed.
+     */
+    private void setTrimmedBounds(Dataset data) {
+        int numSites = markers.size();
+        double[] shifted = new double[numSites];
+        trimmedFromPhys = new int[numSites];
+        trimmedToPhys = new int[numSites];
+        for (int i = 0; i < numSites; i++) {
+            shifted[i] = markers.getGenPos(i) + offsetCM;
+        }
+        data.getGenToPhys().toPhys(shifted, trimmedFromPhys, numSites);
+        for (int i = 0; i < numSites; i++) {
+            shifted[i] = markers.getGenPos(i) - offsetCM;
+        }
+        data.getGenToPhys().toPhys(shifted, trimmedToPhys, numSites);
+    }
+
+    /**
+     * Sets the allele count of each site and its bin: the index of the first
+     * threshold in maxVarCountList (which is sorted) whose MaAF condition the
+     * allele count satisfies, NO_BIN if none does, or UNKNOWN_BIN if the site
+     * is not in the frequency file. With cumulative thresholds the site also
+     * satisfies all later ones, otherwise only this one.
+     */
+    private void setVarCountBins(Dataset data) {
+        int numSites = markers.size();
+        int[] bins = new int[numSites];
+        varCounts = new int[numSites];
+        for (int i = 0; i < numSites; i++) {
+            Integer varCount = data.getIDToVarCounts().get(markers.getIDAtPhys(markers.getPhysPos(i)));
+            if (varCount == null) {
+                bins[i] = UNKNOWN_BIN;
+                continue;
+            }
+            varCounts[i] = varCount;
+            bins[i] = NO_BIN;
+            for (int cntInd = 0; cntInd < maxVarCountList.size(); cntInd++) {
+                boolean condition = (!cumulativeMaAFRegression)
+                        ? (cntInd != 0)
+                        && (varCount < maxVarCountList.get(cntInd)
+                        && varCount >= maxVarCountList.get(cntInd - 1))
+                        : (varCount <= maxVarCountList.get(cntInd));
+                if (condition) {
+                    bins[i] = cntInd;
+                    break;
+                }
+            }
+        }
+        varCountBins = bins;
+    }
+
+    /**
+     * @return for each threshold in maxVarCountList, the number of discordant
+     * sites that satisfy it, given the number of discordant sites in each bin
+     */
+    private int[] getDiffs(int[] binCounts) {
+        int[] diffs = new int[binCounts.length];
+        int cumulativeCount = 0;
+        for (int cntInd = 0; cntInd < binCounts.length; cntInd++) {
+            cumulativeCount += binCounts[cntInd];
+            diffs[cntInd] = (cumulativeMaAFRegression) ? cumulativeCount : binCounts[cntInd];
+        }
+        return diffs;
+    }
+
+    private Results[] newBinResults(String maskFile) {
+        Results[] binResults = new Results[maxVarCountList.size()];
+        for (int cntInd = 0; cntInd < binResults.length; cntInd++) {
+            binResults[cntInd] = new Results(maskFile, maxVarCountList.get(cntInd), config.getRoundTo());
+        }
+        return binResults;
+    }
+
+    /**
+     * Adds the discordant site counts collected per bin to the results of
+     * each threshold.
+     */
+    private void addBinResults(String maskFile, Results[] binResults, TreeMap<String, Results> resultsList) throws IOException {
+        for (int cntInd = 0; cntInd < maxVarCountList.size(); cntInd++) {
+            Results results = resultsList.get(maskFile + "\t" + maxVarCountList.get(cntInd));
+            int fromBin = (cumulativeMaAFRegression) ? 0 : cntInd;
+            for (int bin = fromBin; bin <= cntInd; bin++) {
+                results.addSiteCounts(binResults[bin]);
+            }
+        }
+    }
+
+    private void addDiscordantSite(Dataset data, int ind, double length, Results[] binResults, int[] binCounts, boolean useTrinucleotideContext) {
+        int bin = varCountBins[ind];
+        int SNPpos = markers.getPhysPos(ind);
+        if (bin == UNKNOWN_BIN) {
+            Tools.exit("Could not find allele count of SNP " + markers.getIDAtPhys(SNPpos) + " in frequency file.");
+        }
+        if (bin == NO_BIN) {
+            return;
+        }
+        binCounts[bin]++;
+        Results results = binResults[bin];
+        if (useTrinucleotideContext && trinucleotideCodes[ind] >= 0) {
+            results.increaseTrinucleotideCount(trinucleotideCodes[ind]);
+        }
+        results.addTransitionOrTransversion(length, data.getVariants().get(ind).isTransition());
+        if (data.isHaveFreq()) {
+            results.addAlleleCount(varCounts[ind]);
+        }
+    }
+
 }
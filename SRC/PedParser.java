@@ -0,0 +1,217 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Parses PED lines directly from bytes into packed haplotype and missingness
+ * words. Alleles are resolved against a per-site table in the order they are
+ * first seen, as done by Variant.alleleToBit.
+ *
+ * @author Pier Palamara
+ */
+public class PedParser {
+
+    public static final int headerFields = 6;
+
+    private final int numSites;
+    private final int numWords;
+    private final byte[] allele0;
+    private final byte[] allele1;
+    private int pos;
+
+    public PedParser(int numSites) {
+        this.numSites = numSites;
+        this.numWords = (numSites + 63) >>> 6;
+        allele0 = new byte[numSites];
+        allele1 = new byte[numSites];
+        Arrays.fill(allele0, (byte) '0');
+        Arrays.fill(allele1, (byte) '0');
+    }
+
+    /**
+     * @return the number of sites in a PED line, i.e. the number of allele
+     * columns divided by two
+     */
+    public static int countSites(byte[] line, int length) {
+        int tokens = 0;
+        boolean inToken = false;
+        for (int i = 0; i < length; i++) {
+            boolean isSpace = isWhitespace(line[i]);
+            if (!isSpace && !inToken) {
+                tokens++;
+            }
+            inToken = !isSpace;
+        }
+        return (tokens - headerFields) / 2;
+    }
+
+    /**
+     * Parses the six header fields of a line into header.
+     */
+    public void parseHeader(byte[] line, int length, String[] header) throws Exception {
+        pos = 0;
+        for (int i = 0; i < headerFields; i++) {
+            int start = nextToken(line, length);
+            if (start < 0) {
+                throw new Exception("PED line has fewer than " + headerFields + " columns.");
+            }
+            header[i] = new String(line, start, pos - start, "UTF-8");
+        }
+    }
+
+    /**
+     * Parses the allele columns that follow the header fields last parsed by
+     * parseHeader. The arrays must have at least getNumWords() entries and are
+     * overwritten. Observed bits are set for all sites and then cleared for
+     * missing alleles, so that they match a BitSet of observed sites flipped
+     * on across its whole size.
+     *
+     * @return the number of missing alleles
+     */
+    public int parseGenotypes(byte[] line, int length, long[] hap0, long[] hap1, long[] observed0, long[] observed1) throws Exception {
+        Arrays.fill(hap0, 0, numWords, 0L);
+        Arrays.fill(hap1, 0, numWords, 0L);
+        Arrays.fill(observed0, 0, numWords, -1L);
+        Arrays.fill(observed1, 0, numWords, -1L);
+        int missing = 0;
+        for (int site = 0; site < numSites; site++) {
+            int word = site >>> 6;
+            long bit = 1L << site;
+            for (int haplotype = 0; haplotype < 2; haplotype++) {
+                int start = nextToken(line, length);
+                if (start < 0) {
+                    throw new Exception("PED line has " + site + " sites, expected " + numSites + ".");
+                }
+                byte allele = line[start];
+                if (allele == '0') {
+                    // mask this position out
+                    if (haplotype == 0) {
+                        observed0[word] &= ~bit;
+                    } else {
+                        observed1[word] &= ~bit;
+                    }
+                    missing++;
+                } else if (alleleToBit(site, allele)) {
+                    // record sequence by setting allele
+                    if (haplotype == 0) {
+                        hap0[word] |= bit;
+                    } else {
+                        hap1[word] |= bit;
+                    }
+                }
+            }
+        }
+        if (nextToken(line, length) >= 0) {
+            throw new Exception("PED line has more than the expected " + numSites + " sites.");
+        }
+        return missing;
+    }
+
+    private boolean alleleToBit(int site, byte allele) throws Exception {
+        if (allele0[site] == allele) {
+            return false;
+        } else if (allele1[site] == allele) {
+            return true;
+        } else if (allele0[site] == '0') {
+            allele0[site] = allele;
+            return false;
+        } else if (allele1[site] == '0') {
+            allele1[site] = allele;
+            return true;
+        }
+        throw new Exception("triallelic site? Adding " + (char) allele + ", have already seen " + (char) allele0[site] + " and " + (char) allele1[site]);
+    }
+
+    /**
+     * Adds the alleles seen by a parser of a later chunk of the same file, in
+     * the order that chunk saw them, so that this table ends up as if the
+     * chunk had been parsed here.
+     *
+     * @return for each site, a bit set if the chunk's allele bits must be
+     * flipped at observed sites to agree with this table
+     */
+    public long[] mergeAlleles(PedParser chunk) throws Exception {
+        long[] flip = new long[numWords];
+        for (int site = 0; site < numSites; site++) {
+            if (chunk.allele0[site] == '0') {
+                continue;
+            }
+            boolean firstIsOne = alleleToBit(site, chunk.allele0[site]);
+            if (chunk.allele1[site] != '0') {
+                alleleToBit(site, chunk.allele1[site]);
+            }
+            if (firstIsOne) {
+                flip[site >>> 6] |= 1L << site;
+            }
+        }
+        return flip;
+    }
+
+    /**
+     * Advances past the next whitespace-delimited token.
+     *
+     * @return the start of the token, or -1 if the line has no more tokens
+     */
+    private int nextToken(byte[] line, int length) {
+        while (pos < length && isWhitespace(line[pos])) {
+            pos++;
+        }
+        if (pos == length) {
+            return -1;
+        }
+        int start = pos;
+        while (pos < length && !isWhitespace(line[pos])) {
+            pos++;
+        }
+        return start;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '\f' || b == 0x0B;
+    }
+
+    /**
+     * @return the variants with the alleles seen so far at each site
+     */
+    public ArrayList<Variant> getVariants() {
+        ArrayList<Variant> variants = new ArrayList<Variant>(numSites);
+        for (int site = 0; site < numSites; site++) {
+            variants.add(new Variant((char) allele0[site], (char) allele1[site]));
+        }
+        return variants;
+    }
+
+    /**
+     * @return the numSites
+     */
+    public int getNumSites() {
+        return numSites;
+    }
+
+    /**
+     * @return the numWords
+     */
+    public int getNumWords() {
+        return numWords;
+    }
+}
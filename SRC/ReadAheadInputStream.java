@@ -0,0 +1,147 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Reads a stream on a background thread, such as a GZIPInputStream, so that
+ * inflating it overlaps with the work done on what was read. The thread fills
+ * large buffers and blocks once maxBuffers of them are waiting to be read.
+ *
+ * @author Pier Palamara
+ */
+public class ReadAheadInputStream extends InputStream {
+
+    // marks the end of the stream, or an exception
+    private static final byte[] endOfStream = new byte[0];
+
+    private final InputStream in;
+    private final ArrayBlockingQueue<byte[]> buffers;
+    private final Thread reader;
+    private volatile IOException exception = null;
+    private byte[] buffer = null;
+    private int bufferPos = 0;
+    private boolean reachedEnd = false;
+
+    public ReadAheadInputStream(final InputStream in, final int bufferSize, int maxBuffers) {
+        this.in = in;
+        this.buffers = new ArrayBlockingQueue<byte[]>(maxBuffers);
+        reader = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    while (true) {
+                        byte[] read = new byte[bufferSize];
+                        int length = 0;
+                        int n = 0;
+                        while (length < bufferSize && (n = in.read(read, length, bufferSize - length)) > 0) {
+                            length += n;
+                        }
+                        if (length > 0) {
+                            buffers.put((length == bufferSize) ? read : Arrays.copyOf(read, length));
+                        }
+                        if (n < 0) {
+                            break;
+                        }
+                    }
+                } catch (IOException ex) {
+                    exception = ex;
+                } catch (InterruptedException ex) {
+                    // closed before the end of the stream
+                    return;
+                }
+                try {
+                    buffers.put(endOfStream);
+                } catch (InterruptedException ex) {
+                }
+            }
+        }, "read-ahead");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * @return false once the end of the stream was reached
+     */
+    private boolean nextBuffer() throws IOException {
+        if (reachedEnd) {
+            return false;
+        }
+        try {
+            buffer = buffers.take();
+        } catch (InterruptedException ex) {
+            throw new InterruptedIOException();
+        }
+        bufferPos = 0;
+        if (buffer == endOfStream) {
+            reachedEnd = true;
+            if (exception != null) {
+                throw exception;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if ((buffer == null || bufferPos == buffer.length) && !nextBuffer()) {
+            return -1;
+        }
+        return buffer[bufferPos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if ((buffer == null || bufferPos == buffer.length) && !nextBuffer()) {
+            return -1;
+        }
+        int n = Math.min(len, buffer.length - bufferPos);
+        System.arraycopy(buffer, bufferPos, b, off, n);
+        bufferPos += n;
+        return n;
+    }
+
+    /**
+     * Stops the background thread, waiting for it to finish its current read
+     * so that the stream is not closed while it is being read, and closes
+     * the stream.
+     */
+    @Override
+    public void close() throws IOException {
+        reader.interrupt();
+        try {
+            reader.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing the stream");
+        } finally {
+            buffers.clear();
+        }
+        in.close();
+    }
+}
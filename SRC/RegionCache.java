@@ -0,0 +1,142 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+import java.io.File;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the datasets, segment tables and results of regions in memory
+ * between analyses. Entries are keyed by the files they were computed from
+ * (including their size and modification time, so that changed files are
+ * read again) and by the options they depend on.
+ *
+ * A dataset is modified while its region is analyzed, so analyses sharing a
+ * cache must not run at the same time.
+ *
+ * @author Pier Palamara
+ */
+class RegionCache {
+
+    private final ConcurrentHashMap<String, Dataset> datasets = new ConcurrentHashMap<String, Dataset>();
+    private final ConcurrentHashMap<String, SegmentTable> segmentTables = new ConcurrentHashMap<String, SegmentTable>();
+    private final ConcurrentHashMap<String, TreeMap<String, Results>> results = new ConcurrentHashMap<String, TreeMap<String, Results>>();
+
+    private static String getFileKey(String file) {
+        File f = new File(file);
+        return file + "\t" + f.length() + "\t" + f.lastModified();
+    }
+
+    /**
+     * @return the key of the dataset of a region, given the options used to
+     * load it
+     */
+    static String getDatasetKey(AnalysisConfig config, String pedFile) {
+        StringBuilder key = new StringBuilder();
+        key.append(getFileKey(pedFile + ".ped.gz")).append("\t").append(getFileKey(pedFile + ".map"))
+                .append("\t").append(getFileKey(pedFile + ".frq"));
+        if (config.isLoadBin()) {
+            key.append("\tloadBin\t").append(getFileKey(DataLoader.getBinFile(pedFile, config.getLoadBinSuffix())));
+        }
+        if (config.usePosteriors()) {
+            key.append("\tposteriors\t").append(getFileKey(pedFile + ".post.gz")).append("\t").append(config.getPosteriorFrom())
+                    .append("\t").append(config.getPosteriorTo()).append("\t").append(config.isStorePosterior());
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return the key of the results of a region, given the options that
+     * affect how its segments are counted. Options only used to estimate
+     * rates from the counts (demography, length range of the regression,
+     * jackknife, weights) are not part of the key.
+     */
+    static String getResultsKey(AnalysisConfig config, String pedFile, String matchFile) {
+        StringBuilder key = new StringBuilder(getDatasetKey(config, pedFile));
+        key.append("\n").append(getFileKey(matchFile));
+        for (String maskFile : config.getMaskFiles()) {
+            key.append("\nmask\t").append("".equals(maskFile) ? "" : getFileKey(maskFile));
+        }
+        if (config.useExcludeMask()) {
+            key.append("\nexclude\t").append(getFileKey(config.getExcludeFile()));
+        }
+        if (config.useOnlyIncludeSNPs()) {
+            key.append("\nonlyIncludeSNPs\t").append(getFileKey(config.getOnlyIncludeSNPsFile()));
+        }
+        if (config.useTrinucleotideContext()) {
+            key.append("\ntrinucleotideContext\t").append(getFileKey(config.getTrinucleotideContextFile()));
+        }
+        key.append("\n").append(config.getOffsetCM()).append("\t").append(config.getMinLen())
+                .append("\t").append(config.getMaxVarCountMin()).append("\t").append(config.getMaxVarCountInterval())
+                .append("\t").append(config.getMaxVarCountMax()).append("\t").append(config.isCumulativeMaAFRegression())
+                .append("\t").append(config.getRoundTo());
+        return key.toString();
+    }
+
+    public Dataset getDataset(String key) {
+        return datasets.get(key);
+    }
+
+    public void putDataset(String key, Dataset data) {
+        datasets.put(key, data);
+    }
+
+    /**
+     * @return the segment table of a match file, for the markers of the
+     * dataset it was built with
+     */
+    public SegmentTable getSegmentTable(String datasetKey, String matchFile) {
+        return segmentTables.get(datasetKey + "\n" + getFileKey(matchFile));
+    }
+
+    public void putSegmentTable(String datasetKey, String matchFile, SegmentTable table) {
+        segmentTables.put(datasetKey + "\n" + getFileKey(matchFile), table);
+    }
+
+    /**
+     * @return the results of a region, which must not be modified
+     */
+    public TreeMap<String, Results> getResults(String key) {
+        return results.get(key);
+    }
+
+    public void putResults(String key, TreeMap<String, Results> regionResults) {
+        results.put(key, regionResults);
+    }
+
+    public int getNumDatasets() {
+        return datasets.size();
+    }
+
+    public int getNumSegmentTables() {
+        return segmentTables.size();
+    }
+
+    public int getNumResults() {
+        return results.size();
+    }
+
+    public void clear() {
+        datasets.clear();
+        segmentTables.clear();
+        results.clear();
+    }
+}
@@ -19,11 +19,13 @@ under the License.
 
 package IBDMUT;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.TreeMap;
-import java.util.concurrent.Future;
 
 /**
  *
@@ -31,58 +33,13 @@ import java.util.concurrent.Future;
  */
 public class Results {
 
-    private static boolean useCumulative = true;
-    private static int significantDigitsInLengthForRegression = 1;
-    private static double binLengthInrease = 1 / Math.pow(10., significantDigitsInLengthForRegression);
-    private static int significantDigitsInLengthForSpectrum = 1;
-    private static int significantDigitsInLengthForTsTv = 1;
-    private static boolean cumulativeMaAFRegression = true;
-
-    private static boolean useWeigthsIntMRCAReg = false;
-    private static int minimumNumberOfPointsToComputeAWeight = 5;
-    private static final boolean printWeights = false;
-
-    private static double[] tMRCARegressionWeights;
-
-    private static TreeMap<Double, Double> tMRCARegressionWeightsMap;
-
-    public static void setMinimumNumberOfPointsToComputeAWeight(int value) {
-        minimumNumberOfPointsToComputeAWeight = value;
-    }
-
-    public static void setTMRCARegressionWeightsMap(TreeMap<Double, Double> map) {
-        tMRCARegressionWeightsMap = map;
-    }
-
-    public static void setUseJackknifeWeigthsIntMRCAReg(boolean value) {
-        useWeigthsIntMRCAReg = value;
-    }
-
-    public static boolean getUseWeigthsIntMRCAReg() {
-        return useWeigthsIntMRCAReg;
-    }
-
-    public static double[] getTMRCARegressionWeights() {
-        return tMRCARegressionWeights;
-    }
-
-    public static void setCumulativeMaAFRegression(boolean value) throws IOException {
-        cumulativeMaAFRegression = value;
-    }
-
-    /**
-     * @return the useCumulative
-     */
-    public static boolean isUseCumulative() {
-        return useCumulative;
-    }
-
-    /**
-     * @param aUseCumulative the useCumulative to set
-     */
-    public static void setUseCumulative(boolean aUseCumulative) {
-        useCumulative = aUseCumulative;
-    }
+    private static final int significantDigitsInLengthForRegression = 1;
+    private static final double binLengthInrease = 1 / Math.pow(10., significantDigitsInLengthForRegression);
+    private static final double lengthBinsPerCM = Math.pow(10., significantDigitsInLengthForRegression);
+    // longer than any chromosome
+    private static final double maxBinLengthCM = 1000.;
+    private static final int significantDigitsInLengthForSpectrum = 1;
+    private static final int significantDigitsInLengthForTsTv = 1;
 
     /**
      * @return the significantDigitsInLengthForRegression
@@ -110,437 +67,55 @@ public class Results {
     }
 
     /**
-     * @param aSignificantDigitsInLengthForRegression the
-     * significantDigitsInLengthForRegression to set
+     * @param roundTo the number of bins per cM of the histograms of lengths
+     * rounded to 1 / roundTo
      */
-    public static void setSignificantDigitsInLengthForRegression(int aSignificantDigitsInLengthForRegression) {
-        significantDigitsInLengthForRegression = aSignificantDigitsInLengthForRegression;
-    }
-
-    /**
-     * @param aSignificantDigitsInLengthForSpectrum the
-     * significantDigitsInLengthForSpectrum to set
-     */
-    public static void setSignificantDigitsInLengthForSpectrum(int aSignificantDigitsInLengthForSpectrum) {
-        significantDigitsInLengthForSpectrum = aSignificantDigitsInLengthForSpectrum;
-    }
-
-    /**
-     * @param aSignificantDigitsInLengthForTsTv the
-     * significantDigitsInLengthForTsTv to set
-     */
-    public static void setSignificantDigitsInLengthForTsTv(int aSignificantDigitsInLengthForTsTv) {
-        significantDigitsInLengthForTsTv = aSignificantDigitsInLengthForTsTv;
-    }
-
-    private static void setWeightsFromMap(TreeMap<Double, BasePairsAndHets> hist) {
-        Tools.printProgress("Using user-specified weights in tMRCA regression.");
-        int indexWeights = 0;
-        for (Double u : hist.keySet()) {
-            tMRCARegressionWeights[indexWeights] = (tMRCARegressionWeightsMap.containsKey(u))
-                    ? tMRCARegressionWeightsMap.get(u)
-                    : 0.;
-            if (printWeights) {
-                System.out.println(u + "\tSet to " + tMRCARegressionWeights[indexWeights]);
-            }
-            indexWeights++;
-        }
-    }
-
-    static void processResults(boolean doJackKnife, int maxVarCountMin, int maxVarCountInterval, int maxVarCountMax, ArrayList<Integer> maxVarCountList, String maskFile, ArrayList<Future<TreeMap<String, Results>>> resultsList, boolean haveDemography, boolean useMaxCountRangeRegression, boolean useTrinucleotide, Demography demography, double minimumLength, double maximumLength, boolean trinucleotideNoDirection) throws Exception {
-        if (doJackKnife) {
-            Tools.printProgress("Computing Jackknife results.");
-            boolean applyingGeneConversionCorrection = false;
-            TreeMap<Integer, Results> allMergedMap = new TreeMap<Integer, Results>();
-            for (int count : maxVarCountList) {
-                Results mergedAllThisCount = new Results(maskFile, count);
-                for (int i = 0; i < resultsList.size(); i++) {
-                    String key = maskFile + "\t" + count;
-                    Results toBeMerged = resultsList.get(i).get().get(key);
-                    mergedAllThisCount.mergeResults(toBeMerged);
-                }
-                allMergedMap.put(count, mergedAllThisCount);
-            }
-
-            if (allMergedMap.size() > 1) {
-                applyingGeneConversionCorrection = true;
-            } else {
-                for (Results r : allMergedMap.values()) {
-                    Tools.printResult("Ts/Tv:\t" + r.getTransitions() / r.getTransversions());
-                }
-            }
-
-            if (applyingGeneConversionCorrection) {
-                Tools.printProgress("Performing regression on maximum allele count frequency.");
-            }
-            ArrayList<TreeMap<Integer, Results>> allButOneList = new ArrayList<TreeMap<Integer, Results>>();
-            for (int exclude = 0; exclude < resultsList.size(); exclude++) {
-                TreeMap<Integer, Results> allButOneMap = new TreeMap<Integer, Results>();
-                for (int count : maxVarCountList) {
-                    Results mergedAllButOneThisCount = new Results(maskFile, count);
-                    for (int i = 0; i < resultsList.size(); i++) {
-                        if (i == exclude) {
-                            continue;
-                        }
-                        String key = maskFile + "\t" + count;
-                        Results toBeMerged = resultsList.get(i).get().get(key);
-                        mergedAllButOneThisCount.mergeResults(toBeMerged);
-                    }
-                    allButOneMap.put(count, mergedAllButOneThisCount);
-                }
-                allButOneList.add(allButOneMap);
-            }
-
-            // compute weights for regression
-            if (useWeigthsIntMRCAReg) {
-                String key = maskFile + "\t" + EstimateMutationRateFromIBD.largeValue;
-                TreeMap<Double, BasePairsAndHets> allHist = (isUseCumulative())
-                        ? allMergedMap.get(EstimateMutationRateFromIBD.largeValue).getCumulativeHistogram()
-                        : allMergedMap.get(EstimateMutationRateFromIBD.largeValue).getHistogram();
-                tMRCARegressionWeights = new double[allHist.keySet().size()];
-
-                if (tMRCARegressionWeightsMap != null) {
-                    setWeightsFromMap(allHist);
-                } else {
-                    Tools.printProgress("Computing jackknife weights for inverse-variance weighting of tMRCA regression.");
-                    int indexWeights = 0;
-                    for (Double u : allHist.keySet()) {
-                        // for each length bin, cumulative or not
-                        int numerOfRegionsWhereThisLengthWasObserved = 0;
-                        // this code is a bit slow, since getCumulativeHistogram() costs something.
-                        for (int i = 0; i < resultsList.size(); i++) {
-                            TreeMap<Double, BasePairsAndHets> thisHist = (isUseCumulative())
-                                    ? allButOneList.get(i).get(EstimateMutationRateFromIBD.largeValue).getCumulativeHistogram()
-                                    : allButOneList.get(i).get(EstimateMutationRateFromIBD.largeValue).getHistogram();
-                            if (thisHist.containsKey(u)) {
-                                numerOfRegionsWhereThisLengthWasObserved++;
-                                if (printWeights) {
-                                    System.out.println(i + "\tcontains\t" + u + "\t" + thisHist.get(u).count);
-                                }
-                            } else {
-                                if (isUseCumulative() && thisHist.ceilingEntry(u) != null) {
-                                    numerOfRegionsWhereThisLengthWasObserved++;
-                                    if (printWeights) {
-                                        System.out.println(i + "\tcontains\t" + u + "\t" + thisHist.ceilingEntry(u).getValue().count);
-                                    }
-                                } else {
-                                    if (printWeights) {
-                                        System.out.println(i + "\tdoes not contain\t" + u);
-                                    }
-
-                                }
-                            }
-                        }
-                        if (printWeights) {
-                            System.out.println(u + "\t" + numerOfRegionsWhereThisLengthWasObserved);
-                        }
-                        if (numerOfRegionsWhereThisLengthWasObserved < minimumNumberOfPointsToComputeAWeight) {
-                            // skip this length bin if not enough observations
-                            tMRCARegressionWeights[indexWeights] = Double.MAX_VALUE;
-                            tMRCARegressionWeights[indexWeights] = 0.;
-                            if (printWeights) {
-                                System.out.println(u + "\tSet to " + tMRCARegressionWeights[indexWeights]);
-                            }
-                            indexWeights++;
-                            continue;
-                        }
-                        // being lazy, looping twice
-                        Double[] hetAllBut = new Double[numerOfRegionsWhereThisLengthWasObserved];
-                        Double[] hetAllButWeights = new Double[numerOfRegionsWhereThisLengthWasObserved];
-                        Double hetAll = allHist.get(u).mutRate / (double) allHist.get(u).count;
-                        int cnt = 0;
-                        for (int i = 0; i < resultsList.size(); i++) {
-                            TreeMap<Double, BasePairsAndHets> thisHist = (isUseCumulative())
-                                    ? allButOneList.get(i).get(EstimateMutationRateFromIBD.largeValue).getCumulativeHistogram()
-                                    : allButOneList.get(i).get(EstimateMutationRateFromIBD.largeValue).getHistogram();
-                            if (thisHist.containsKey(u)) {
-                                hetAllBut[cnt] = thisHist.get(u).mutRate / (double) thisHist.get(u).count;
-                                System.out.println("SEEN\t" + u + "\t" + hetAllBut[cnt]);
-                                hetAllButWeights[cnt] = resultsList.get(i).get().get(key).getTotalBasePairsObserved();
-                                System.out.println(hetAll + "\t" + hetAllBut[cnt] + "\t" + hetAllButWeights[cnt]);
-                                cnt++;
-                            } else {
-                                if (isUseCumulative() && thisHist.ceilingEntry(u) != null) {
-                                    hetAllBut[cnt] = thisHist.ceilingEntry(u).getValue().mutRate / (double) thisHist.ceilingEntry(u).getValue().count;
-                                    hetAllButWeights[cnt] = resultsList.get(i).get().get(key).getTotalBasePairsObserved();
-                                    cnt++;
-                                }
-                            }
-                        }
-                        Pair<Double, Double> jackRes = Tools.weightedBlockJackknife(hetAllBut, hetAllButWeights, hetAll);
-                        tMRCARegressionWeights[indexWeights] = jackRes.getValue();
-                        tMRCARegressionWeights[indexWeights] = 1 / (jackRes.getValue() * jackRes.getValue());
-                        if (printWeights) {
-                            System.out.println(u + "\tSet to " + tMRCARegressionWeights[indexWeights] + "\testimate\t" + jackRes.getKey() + "\ts.e.\t" + jackRes.getValue());
-                        }
-                        indexWeights++;
-                    }
-                }
-            }
-
-            // get results
-            Double[] muMergedAllBut = new Double[resultsList.size()];
-            Double[] secondParamMergedAllBut = new Double[resultsList.size()];
-            Double[] noGCcorrectionMuMergedAllBut = new Double[resultsList.size()];
-            Double[] noGCcorrectionMuDiffMergedAllBut = new Double[resultsList.size()];
-            for (int exclude = 0; exclude < resultsList.size(); exclude++) {
-                TreeMap<Integer, Results> allButOneMap = allButOneList.get(exclude);
-                double[] muResAllButOne = (applyingGeneConversionCorrection) ? Results.regressMuForListOfMaxCounts(exclude, allButOneMap, maskFile, maxVarCountMin, maxVarCountInterval, maxVarCountMax, demography, minimumLength, maximumLength) : Results.regressMuNoMaxCounts(allButOneMap, maskFile, demography, minimumLength, maximumLength);
-                muMergedAllBut[exclude] = muResAllButOne[0];
-                secondParamMergedAllBut[exclude] = muResAllButOne[1];
-                if (applyingGeneConversionCorrection) {
-                    if (LinearRegression.getPrintReg()) {
-                        System.out.println("Regression\tExcluding region " + exclude + "\tMaAF\t" + EstimateMutationRateFromIBD.largeValue);
-                    }
-                    noGCcorrectionMuMergedAllBut[exclude] = allButOneMap.get(EstimateMutationRateFromIBD.largeValue).getMu(demography, minimumLength, maximumLength)[1];
-                    noGCcorrectionMuDiffMergedAllBut[exclude] = noGCcorrectionMuMergedAllBut[exclude] - muMergedAllBut[exclude];
-                }
-            }
-
-            double[] muRes = (applyingGeneConversionCorrection)
-                    ? Results.regressMuForListOfMaxCounts(-1, allMergedMap, maskFile,
-                            maxVarCountMin, maxVarCountInterval, maxVarCountMax,
-                            demography, minimumLength, maximumLength)
-                    : Results.regressMuNoMaxCounts(allMergedMap, maskFile,
-                            demography, minimumLength, maximumLength);
-            Double muMergedAll = muRes[0];
-            Double secondParamMergedAll = muRes[1];
-            Double noGCcorrectionMuAll = null;
-            Double noGCcorrectionMuDiffAll = null;
-            if (applyingGeneConversionCorrection) {
-                if (LinearRegression.getPrintReg()) {
-                    System.out.println("Regression\tExcluding region " + (-1) + "\tMaAF\t" + EstimateMutationRateFromIBD.largeValue);
-                }
-                noGCcorrectionMuAll = allMergedMap.get(EstimateMutationRateFromIBD.largeValue).getMu(demography, minimumLength, maximumLength)[1];
-                noGCcorrectionMuDiffAll = noGCcorrectionMuAll - muMergedAll;
-            }
-            Double[] mergedAllButWeights = new Double[resultsList.size()];
-            for (int exclude = 0; exclude < resultsList.size(); exclude++) {
-                double weight = 0.0;
-                for (int i = 0; i < resultsList.size(); i++) {
-                    if (i == exclude) {
-                        continue;
-                    }
-                    String key = maskFile + "\t" + maxVarCountMin;
-                    Results toBeMerged = resultsList.get(i).get().get(key);
-                    weight += toBeMerged.getTotalBasePairsObserved();
-                }
-                mergedAllButWeights[exclude] = weight;
-            }
-            Pair<Double, Double> finalMuAndStd = Tools.weightedBlockJackknife(muMergedAllBut, mergedAllButWeights, muMergedAll);
-            Pair<Double, Double> finalSecondParamAndStd = Tools.weightedBlockJackknife(secondParamMergedAllBut, mergedAllButWeights, secondParamMergedAll);
-            Pair<Double, Double> finalMuAndStdUncorrected = null;
-            Pair<Double, Double> finalMuDiffAndStdUncorrected = null;
-            if (applyingGeneConversionCorrection) {
-                finalMuAndStdUncorrected = Tools.weightedBlockJackknife(noGCcorrectionMuMergedAllBut, mergedAllButWeights, noGCcorrectionMuAll);
-                finalMuDiffAndStdUncorrected = Tools.weightedBlockJackknife(noGCcorrectionMuDiffMergedAllBut, mergedAllButWeights, noGCcorrectionMuDiffAll);
-            }
-            String resultString = "Estimated mutation rate for mask " + maskFile + "\t" + finalMuAndStd.getKey() + "\ts.e.\t" + finalMuAndStd.getValue() + "\tC.I.\t" + (finalMuAndStd.getKey() - 1.959964 * finalMuAndStd.getValue()) + "\t" + (finalMuAndStd.getKey() + 1.959964 * finalMuAndStd.getValue());
-            Tools.printResult(resultString);
-            if (Tools.loggerIsOn()) {
-                Tools.writeLog(resultString);
-            }
-            resultString = "Estimated second parameter for mask " + maskFile + "\t" + finalSecondParamAndStd.getKey() + "\ts.e.\t" + finalSecondParamAndStd.getValue() + "\tC.I.\t" + (finalSecondParamAndStd.getKey() - 1.959964 * finalSecondParamAndStd.getValue()) + "\t" + (finalSecondParamAndStd.getKey() + 1.959964 * finalSecondParamAndStd.getValue());
-            Tools.printResult(resultString);
-            if (Tools.loggerIsOn()) {
-                Tools.writeLog(resultString);
-            }
-            if (applyingGeneConversionCorrection) {
-                resultString = "Estimated uncorrected mu for mask " + maskFile + "\t" + finalMuAndStdUncorrected.getKey() + "\ts.e.\t" + finalMuAndStdUncorrected.getValue() + "\tC.I.\t" + (finalMuAndStdUncorrected.getKey() - 1.959964 * finalMuAndStdUncorrected.getValue()) + "\t" + (finalMuAndStdUncorrected.getKey() + 1.959964 * finalMuAndStdUncorrected.getValue());
-                Tools.printResult(resultString);
-                if (Tools.loggerIsOn()) {
-                    Tools.writeLog(resultString);
-                }
-                resultString = "Estimated uncorrected mu difference for mask " + maskFile + "\t" + finalMuDiffAndStdUncorrected.getKey() + "\ts.e.\t" + finalMuDiffAndStdUncorrected.getValue() + "\tC.I.\t" + (finalMuDiffAndStdUncorrected.getKey() - 1.959964 * finalMuDiffAndStdUncorrected.getValue()) + "\t" + (finalMuDiffAndStdUncorrected.getKey() + 1.959964 * finalMuDiffAndStdUncorrected.getValue());
-                Tools.printResult(resultString);
-                if (Tools.loggerIsOn()) {
-                    Tools.writeLog(resultString);
-                }
-                if (EstimateMutationRateFromIBD.inverseHeterozygosity != null) {
-                    double meanDiff = finalMuDiffAndStdUncorrected.getKey();
-                    double varDiff = finalMuDiffAndStdUncorrected.getValue() * finalMuDiffAndStdUncorrected.getValue();
-                    double meanInverseHet = EstimateMutationRateFromIBD.inverseHeterozygosity.get(maskFile).getKey();
-                    double varInverseHet = EstimateMutationRateFromIBD.inverseHeterozygosity.get(maskFile).getValue();
-                    double productExpectation = meanDiff * meanInverseHet;
-                    double productVar = meanDiff * meanDiff * varInverseHet + meanInverseHet * meanInverseHet * varDiff + varDiff * varInverseHet;
-                    double productStdev = Math.sqrt(productVar);
-                    resultString = "Estimated gene conversion rate for mask " + maskFile + "\t" + productExpectation + "\ts.e.\t" + productStdev + "\tC.I.\t" + (productExpectation - 1.959964 * productStdev) + "\t" + (productExpectation + 1.959964 * productStdev);
-                    Tools.printResult(resultString);
-                    if (Tools.loggerIsOn()) {
-                        Tools.writeLog(resultString);
-                    }
-                }
-            }
-            // report average segment length spanning non-zero regions
-            double mergedAverageLen = 0.0;
-            double cnt = 0.0;
-            for (int region = 0; region < resultsList.size(); region++) {
-                String key = maskFile + "\t" + maxVarCountMin;
-                mergedAverageLen += resultsList.get(region).get().get(key).getTotalSegmentLength();
-                cnt += resultsList.get(region).get().get(key).getTotalSegmentCount();
-            }
-            mergedAverageLen /= cnt;
-            Double[] avgLenMergedAllButValue = new Double[resultsList.size()];
-            Double[] avgLenMergedAllButWeights = new Double[resultsList.size()];
-            for (int exclude = 0; exclude < resultsList.size(); exclude++) {
-                double AllButAverage = 0.0;
-                double AllButCnt = 0.0;
-                for (int region = 0; region < resultsList.size(); region++) {
-                    if (region == exclude) {
-                        continue;
-                    }
-                    String key = maskFile + "\t" + maxVarCountMin;
-                    AllButAverage += resultsList.get(region).get().get(key).getTotalSegmentLength();
-                    AllButCnt += resultsList.get(region).get().get(key).getTotalSegmentCount();
-                }
-                avgLenMergedAllButValue[exclude] = AllButAverage / AllButCnt;
-                avgLenMergedAllButWeights[exclude] = AllButCnt;
-            }
-            Pair<Double, Double> segmentLenAverageAndStd = Tools.weightedBlockJackknife(avgLenMergedAllButValue, avgLenMergedAllButWeights, mergedAverageLen);
-            String avgLenResultString = "Average IBD segment length spanning mask " + maskFile + "\t" + segmentLenAverageAndStd.getKey() + "\ts.e.\t" + segmentLenAverageAndStd.getValue() + "\tC.I.\t" + (segmentLenAverageAndStd.getKey() - 1.959964 * segmentLenAverageAndStd.getValue()) + "\t" + (segmentLenAverageAndStd.getKey() + 1.959964 * segmentLenAverageAndStd.getValue());
-            Tools.printResult(avgLenResultString);
-            if (Tools.loggerIsOn()) {
-                Tools.writeLog(avgLenResultString);
-            }
-            if (useTrinucleotide) {
-                if (TrinucleotideContext.context != null) {
-                    Tools.warning("Processing trinucleotide results for maxVarCountMin only.");
-                    Tools.printResult("Trinucleotide results");
-                    Results[] muMergedAllButTrinucleotide = new Results[resultsList.size()];
-                    for (int exclude = 0; exclude < resultsList.size(); exclude++) {
-                        TreeMap<Integer, Results> allButOneMap = new TreeMap<Integer, Results>();
-                        Results mergedAllButOne = new Results(maskFile, maxVarCountMin);
-                        for (int i = 0; i < resultsList.size(); i++) {
-                            if (i == exclude) {
-                                continue;
-                            }
-                            String key = maskFile + "\t" + maxVarCountMin;
-                            Results toBeMerged = resultsList.get(i).get().get(key);
-                            mergedAllButOne.mergeResults(toBeMerged);
-                        }
-                        muMergedAllButTrinucleotide[exclude] = mergedAllButOne;
-                    }
-                    String[] referencelist = (trinucleotideNoDirection) ? TrinucleotideContext.trinucleotideListNoDirection : TrinucleotideContext.trinucleotideListDirectional;
-                    for (String trinucleotide : referencelist) {
-                        Results mergedAll = allMergedMap.get(maxVarCountMin);
-                        double mergedAllResultsTrinucleotide = mergedAll.getTrinucleotideContextResults().getTrinucleotideProbability(trinucleotide);
-                        Double[] mergedAllButResultsTrinucleotide = new Double[resultsList.size()];
-                        Double[] mergedAllButWeightsTrinucleotide = new Double[resultsList.size()];
-                        int cntNonZeroWeigts = 0;
-                        for (int region = 0; region < resultsList.size(); region++) {
-                            String key = maskFile + "\t" + maxVarCountMin;
-                            Results allButThisRegion = muMergedAllButTrinucleotide[region];
-                            mergedAllButResultsTrinucleotide[region] = allButThisRegion.getTrinucleotideContextResults().getTrinucleotideProbability(trinucleotide);
-                            mergedAllButWeightsTrinucleotide[region] = allButThisRegion.getTrinucleotideContextResults().getTrinucleotideRawCount(trinucleotide);
-                            if (mergedAllButWeightsTrinucleotide[region] > 0) {
-                                cntNonZeroWeigts++;
-                            }
-                        }
-                        if (cntNonZeroWeigts > 0) {
-                            Pair<Double, Double> results = Tools.weightedBlockJackknife(mergedAllButResultsTrinucleotide, mergedAllButWeightsTrinucleotide, mergedAllResultsTrinucleotide);
-                            Tools.printResult("\t" + trinucleotide + "\t" + mergedAllResultsTrinucleotide + "\t" + results.getKey() + "\t" + results.getValue() + "\t" + cntNonZeroWeigts);
-                        } else {
-                            Tools.printResult("\t" + trinucleotide + "\t" + mergedAllResultsTrinucleotide + "\tNA\tNA\t0");
-                        }
-                    }
-                }
-            }
-        } else {
-            Tools.warning("The code for non-jackknife computation needs testing and expansion.");
-            if (useWeigthsIntMRCAReg) {
-                if (tMRCARegressionWeightsMap == null) {
-                    Tools.exit("Inverse-variance regression weights require jackknife.");
-                } else {
-                    TreeMap<Integer, Results> allMergedMap = new TreeMap<Integer, Results>();
-                    for (int count : maxVarCountList) {
-                        Results mergedAllThisCount = new Results(maskFile, count);
-                        for (int i = 0; i < resultsList.size(); i++) {
-                            String key = maskFile + "\t" + count;
-                            Results toBeMerged = resultsList.get(i).get().get(key);
-                            mergedAllThisCount.mergeResults(toBeMerged);
-                        }
-                        allMergedMap.put(count, mergedAllThisCount);
-                    }
-                    TreeMap<Double, BasePairsAndHets> allHist = (isUseCumulative())
-                            ? allMergedMap.get(EstimateMutationRateFromIBD.largeValue).getCumulativeHistogram()
-                            : allMergedMap.get(EstimateMutationRateFromIBD.largeValue).getHistogram();
-                    tMRCARegressionWeights = new double[allHist.keySet().size()];
-                    setWeightsFromMap(allHist);
-                }
-            }
-            if (resultsList.get(resultsList.size() - 1).get().get(maskFile + "\t" + EstimateMutationRateFromIBD.largeValue).inMaskTot == 0) {
-                Tools.printResult("Mask " + maskFile + " did not span any mutations in the mask.");
-                return;
-            }
-            if (useMaxCountRangeRegression) {
-                Tools.printProgress("Performing regression on maximum allele count frequency.");
-                double avgIBDLen = 0.0;
-                double totIBDseg = 0.0;
-                TreeMap<Integer, Results> maxCountResList = new TreeMap<Integer, Results>();
-                for (int count : maxVarCountList) {
-                    for (int i = 0; i < resultsList.size(); i++) {
-                        String key = maskFile + "\t" + count;
-                        Results result = resultsList.get(i).get().get(key);
-                        maxCountResList.put(count, result);
-                        avgIBDLen = result.getTotalSegmentLength() / result.getTotalSegmentCount();
-                        totIBDseg = result.getTotalSegmentCount();
-                    }
-                }
-                double[] maxCountResultInterceptSlopeRsquare = Results.regressMuForListOfMaxCounts(-1, maxCountResList, maskFile, maxVarCountMin, maxVarCountInterval, maxVarCountMax, demography, minimumLength, maximumLength);
-                Tools.printResult("Estimated mutation rate for mask " + maskFile + ". Intercept (mu)\t" + maxCountResultInterceptSlopeRsquare[0] + "\tslope (~GC)\t" + maxCountResultInterceptSlopeRsquare[1]);
-                Tools.printResult("Average IBD segment length spanning mask " + maskFile + "\t" + avgIBDLen);
-                Tools.printResult("Total number of IBD segments spanning mask " + maskFile + "\t" + totIBDseg);
-            } else {
-                for (Future<TreeMap<String, Results>> futureResult : resultsList) {
-                    Results result = futureResult.get().firstEntry().getValue();
-                    if (haveDemography) {
-                        double[] interceptSlopeRsquare = result.getMu(demography, minimumLength, maximumLength);
-                        Tools.printResult("Estimated mutation rate for mask " + maskFile + ". Intercept\t" + interceptSlopeRsquare[0] + "\tslope\t" + interceptSlopeRsquare[1]);
-                        String avgLenResultString = "Average IBD segment length spanning mask " + maskFile + "\t" + result.getTotalSegmentLength() / result.getTotalSegmentCount();
-                        Tools.printResult(avgLenResultString);
-                    }
-                }
-            }
-        }
-    }
-
-    public Results(String maskName) {
-        this.maskName = maskName;
-    }
-
-    public Results(String maskName, int maxCount) {
+    public Results(String maskName, int maxCount, double roundTo) {
         this.maskName = maskName;
         this.maxCount = maxCount;
+        this.roundTo = roundTo;
     }
 
     // DATA STRUCTURES
     private double totalSegmentLength;
     private double totalSegmentCount;
-    private TreeMap<Double, BasePairsAndHets> mutCountHistogram = new TreeMap<Double, BasePairsAndHets>();
+    // per length bin, the length floored to significantDigitsInLengthForRegression
+    private int[] hetsPerLengthBin = new int[0];
+    private double[] basePairsPerLengthBin = new double[0];
+    private int[] countPerLengthBin = new int[0];
+    private double[] mutRatePerLengthBin = new double[0];
     private TrinucleotideContext trinucleotideContext = new TrinucleotideContext();
     private int maxCount = EstimateMutationRateFromIBD.largeValue;
     private int inMaskTot = 0;
     private String maskName;
+    private final double roundTo;
     private TreeMap<Double, Double> spectrumOnSegments = new TreeMap<Double, Double>();
-    private TreeMap<Double, Double> transitionPerCM = new TreeMap<Double, Double>();
-    private TreeMap<Double, Double> transversionPerCM = new TreeMap<Double, Double>();
+    // per half cM
+    private int[] transitionsPerHalfCM = new int[0];
+    private int[] transversionsPerHalfCM = new int[0];
     private double transitions = 0.0;
     private double transversions = 0.0;
-    private TreeMap<Double, Double> countsHistogram = new TreeMap<Double, Double>();
-    private TreeMap<Double, Double> inMaskHistogram = new TreeMap<Double, Double>();
-    private TreeMap<Double, Integer> freqCounts = new TreeMap<Double, Integer>();
+    // per length bin, the length rounded to 1 / roundTo
+    private long[] countsPerRoundedLength = new long[0];
+    private long[] inMaskPerRoundedLength = new long[0];
+    // per allele count
+    private int[] alleleCountHistogram = new int[0];
     private HashSet<String> variantsInFiles = new HashSet<String>();
 
     public void addTotInMask(int add) {
         inMaskTot += add;
     }
 
-    public int getTotInMask(int add) {
+    public int getTotInMask() {
         return inMaskTot;
     }
 
-    public void increaseTrinucleotideCounts(String from, String to) {
-        trinucleotideContext.increaseTrinucleotideCountsBy(from, to, 1);
+    /**
+     * Counts a site whose mutation has class code, as given by
+     * TrinucleotideContext.getClassCodes().
+     */
+    public void increaseTrinucleotideCount(int code) {
+        trinucleotideContext.increaseCountBy(code, 1);
     }
 
     public TrinucleotideContext getTrinucleotideContextResults() {
@@ -557,59 +132,322 @@ public class Results {
         transitions += otherResults.transitions;
         transversions += otherResults.transversions;
         // merge het historgram
-        for (Double len : otherResults.getMutCountHistogram().keySet()) {
-            BasePairsAndHets bpHets = (getMutCountHistogram().containsKey(len))
-                    ? getMutCountHistogram().get(len)
-                    : new BasePairsAndHets();
-            bpHets.basePairs += otherResults.getMutCountHistogram().get(len).basePairs;
-            bpHets.count += otherResults.getMutCountHistogram().get(len).count;
-            bpHets.hets += otherResults.getMutCountHistogram().get(len).hets;
-            bpHets.mutRate += otherResults.getMutCountHistogram().get(len).mutRate;
-            getMutCountHistogram().put(len, bpHets);
+        addLengthBins(otherResults);
+        trinucleotideContext.addCounts(otherResults.trinucleotideContext);
+    }
+
+    /**
+     * Adds all counts of otherResults, computed for another part of the same
+     * match file.
+     */
+    public void addResults(Results otherResults) throws IOException {
+        totalSegmentLength += otherResults.totalSegmentLength;
+        totalSegmentCount += otherResults.totalSegmentCount;
+        inMaskTot += otherResults.inMaskTot;
+        addLengthBins(otherResults);
+        int numBins = otherResults.countsPerRoundedLength.length;
+        if (numBins > countsPerRoundedLength.length) {
+            countsPerRoundedLength = Arrays.copyOf(countsPerRoundedLength, numBins);
+            inMaskPerRoundedLength = Arrays.copyOf(inMaskPerRoundedLength, numBins);
+        }
+        for (int bin = 0; bin < numBins; bin++) {
+            countsPerRoundedLength[bin] += otherResults.countsPerRoundedLength[bin];
+            inMaskPerRoundedLength[bin] += otherResults.inMaskPerRoundedLength[bin];
+        }
+        addSiteCounts(otherResults);
+    }
+
+    private void addLengthBins(Results otherResults) {
+        int numBins = otherResults.countPerLengthBin.length;
+        if (numBins > countPerLengthBin.length) {
+            growLengthBins(numBins - 1);
+        }
+        for (int bin = 0; bin < numBins; bin++) {
+            basePairsPerLengthBin[bin] += otherResults.basePairsPerLengthBin[bin];
+            countPerLengthBin[bin] += otherResults.countPerLengthBin[bin];
+            hetsPerLengthBin[bin] += otherResults.hetsPerLengthBin[bin];
+            mutRatePerLengthBin[bin] += otherResults.mutRatePerLengthBin[bin];
+        }
+    }
+
+    /**
+     * Adds the counts of discordant sites of otherResults: transitions,
+     * transversions, trinucleotide contexts and frequencies.
+     */
+    public void addSiteCounts(Results otherResults) throws IOException {
+        transitions += otherResults.transitions;
+        transversions += otherResults.transversions;
+        transitionsPerHalfCM = addCounts(transitionsPerHalfCM, otherResults.transitionsPerHalfCM);
+        transversionsPerHalfCM = addCounts(transversionsPerHalfCM, otherResults.transversionsPerHalfCM);
+        alleleCountHistogram = addCounts(alleleCountHistogram, otherResults.alleleCountHistogram);
+        trinucleotideContext.addCounts(otherResults.trinucleotideContext);
+    }
+
+    /**
+     * Writes all counts, so that read() gives back results that estimate as
+     * these do. The spectrum on segments and the variants in files are not
+     * counted by the analysis of a region, and are not written.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeUTF(maskName);
+        out.writeInt(maxCount);
+        out.writeDouble(roundTo);
+        out.writeDouble(totalSegmentLength);
+        out.writeDouble(totalSegmentCount);
+        out.writeInt(inMaskTot);
+        writeInts(out, hetsPerLengthBin);
+        writeDoubles(out, basePairsPerLengthBin);
+        writeInts(out, countPerLengthBin);
+        writeDoubles(out, mutRatePerLengthBin);
+        out.writeDouble(transitions);
+        out.writeDouble(transversions);
+        writeInts(out, transitionsPerHalfCM);
+        writeInts(out, transversionsPerHalfCM);
+        writeLongs(out, countsPerRoundedLength);
+        writeLongs(out, inMaskPerRoundedLength);
+        writeInts(out, alleleCountHistogram);
+        trinucleotideContext.write(out);
+    }
+
+    /**
+     * @return the results written by write()
+     */
+    public static Results read(DataInputStream in) throws IOException {
+        String maskName = in.readUTF();
+        int maxCount = in.readInt();
+        Results results = new Results(maskName, maxCount, in.readDouble());
+        results.totalSegmentLength = in.readDouble();
+        results.totalSegmentCount = in.readDouble();
+        results.inMaskTot = in.readInt();
+        results.hetsPerLengthBin = readInts(in);
+        results.basePairsPerLengthBin = readDoubles(in);
+        results.countPerLengthBin = readInts(in);
+        results.mutRatePerLengthBin = readDoubles(in);
+        results.transitions = in.readDouble();
+        results.transversions = in.readDouble();
+        results.transitionsPerHalfCM = readInts(in);
+        results.transversionsPerHalfCM = readInts(in);
+        results.countsPerRoundedLength = readLongs(in);
+        results.inMaskPerRoundedLength = readLongs(in);
+        results.alleleCountHistogram = readInts(in);
+        results.trinucleotideContext.readCounts(in);
+        return results;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static void writeLongs(DataOutputStream out, long[] values) throws IOException {
+        out.writeInt(values.length);
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+        out.writeInt(values.length);
+        for (double value : values) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static int[] readInts(DataInputStream in) throws IOException {
+        int[] values = new int[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private static long[] readLongs(DataInputStream in) throws IOException {
+        long[] values = new long[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readLong();
+        }
+        return values;
+    }
+
+    private static double[] readDoubles(DataInputStream in) throws IOException {
+        double[] values = new double[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readDouble();
         }
-        this.trinucleotideContext.setTrinucleotideCounts(TrinucleotideContext.mergeTrinucleotideCounts(this.trinucleotideContext, otherResults.trinucleotideContext));
+        return values;
+    }
+
+    /**
+     * @return counts, grown if needed, with otherCounts added element-wise
+     */
+    private static int[] addCounts(int[] counts, int[] otherCounts) {
+        if (otherCounts.length > counts.length) {
+            counts = Arrays.copyOf(counts, otherCounts.length);
+        }
+        for (int i = 0; i < otherCounts.length; i++) {
+            counts[i] += otherCounts[i];
+        }
+        return counts;
+    }
+
+    /**
+     * @return the length of an array that can hold index, at least doubling
+     * the current one
+     */
+    private static int grownLength(int currentLength, int index) {
+        return Math.max(index + 1, 2 * currentLength);
+    }
+
+    private void growLengthBins(int bin) {
+        int numBins = grownLength(countPerLengthBin.length, bin);
+        hetsPerLengthBin = Arrays.copyOf(hetsPerLengthBin, numBins);
+        basePairsPerLengthBin = Arrays.copyOf(basePairsPerLengthBin, numBins);
+        countPerLengthBin = Arrays.copyOf(countPerLengthBin, numBins);
+        mutRatePerLengthBin = Arrays.copyOf(mutRatePerLengthBin, numBins);
     }
 
     public void addHetCount(double length, int hets, int basePairs) {
-        double roundedLength = Tools.floorToSignificantDigits(length, getSignificantDigitsInLengthForRegression());
-        BasePairsAndHets basePairsAndHets = null;
-        if (getMutCountHistogram().containsKey(roundedLength)) {
-            basePairsAndHets = getMutCountHistogram().get(roundedLength);
+        // same bin as Tools.floorToSignificantDigits(length, significantDigitsInLengthForRegression)
+        int bin = (int) Math.floor(length * lengthBinsPerCM);
+        if (bin >= countPerLengthBin.length) {
+            growLengthBins(bin);
+        }
+        basePairsPerLengthBin[bin] += basePairs;
+        hetsPerLengthBin[bin] += hets;
+        countPerLengthBin[bin]++;
+        mutRatePerLengthBin[bin] += hets / (double) basePairs;
+    }
+
+    /**
+     * Adds a segment to the histograms of discordant sites and of sites in the
+     * mask, binned by length rounded to 1 / roundTo.
+     */
+    public void addRoundedLengthCounts(double length, int diff, int inMaskSize) {
+        int bin = (int) Math.round(length * roundTo);
+        if (bin >= countsPerRoundedLength.length) {
+            int numBins = grownLength(countsPerRoundedLength.length, bin);
+            countsPerRoundedLength = Arrays.copyOf(countsPerRoundedLength, numBins);
+            inMaskPerRoundedLength = Arrays.copyOf(inMaskPerRoundedLength, numBins);
+        }
+        countsPerRoundedLength[bin] += diff;
+        inMaskPerRoundedLength[bin] += inMaskSize;
+    }
+
+    /**
+     * Counts a discordant site on a segment of the given length.
+     */
+    public void addTransitionOrTransversion(double length, boolean isTransition) {
+        int bin = (int) Math.floor(length * 2);
+        if (isTransition) {
+            transitions++;
+            if (bin >= transitionsPerHalfCM.length) {
+                transitionsPerHalfCM = Arrays.copyOf(transitionsPerHalfCM, grownLength(transitionsPerHalfCM.length, bin));
+            }
+            transitionsPerHalfCM[bin]++;
         } else {
-            basePairsAndHets = new BasePairsAndHets();
+            transversions++;
+            if (bin >= transversionsPerHalfCM.length) {
+                transversionsPerHalfCM = Arrays.copyOf(transversionsPerHalfCM, grownLength(transversionsPerHalfCM.length, bin));
+            }
+            transversionsPerHalfCM[bin]++;
         }
-        basePairsAndHets.basePairs += basePairs;
-        basePairsAndHets.hets += hets;
-        basePairsAndHets.count++;
-        basePairsAndHets.mutRate += hets / (double) basePairs;
-        getMutCountHistogram().put(roundedLength, basePairsAndHets);
     }
 
-    public TreeMap<Double, BasePairsAndHets> getHistogram() {
-        return getMutCountHistogram();
+    public void addAlleleCount(int alleleCount) {
+        if (alleleCount >= alleleCountHistogram.length) {
+            alleleCountHistogram = Arrays.copyOf(alleleCountHistogram, grownLength(alleleCountHistogram.length, alleleCount));
+        }
+        alleleCountHistogram[alleleCount]++;
     }
 
-    public TreeMap<Double, BasePairsAndHets> getCumulativeHistogram() {
-        TreeMap<Double, BasePairsAndHets> cumHist = new TreeMap<Double, BasePairsAndHets>();
+    /**
+     * @return the counts of each length bin, null for bins without segments
+     */
+    private BasePairsAndHets[] getLengthBins() {
+        BasePairsAndHets[] bins = new BasePairsAndHets[countPerLengthBin.length];
+        for (int bin = 0; bin < bins.length; bin++) {
+            if (countPerLengthBin[bin] > 0) {
+                bins[bin] = new BasePairsAndHets(hetsPerLengthBin[bin], basePairsPerLengthBin[bin], countPerLengthBin[bin], mutRatePerLengthBin[bin]);
+            }
+        }
+        return bins;
+    }
+
+    /**
+     * @return the counts of each length bin and all longer ones, null for bins
+     * without segments
+     */
+    private BasePairsAndHets[] getCumulativeLengthBins() {
+        BasePairsAndHets[] bins = new BasePairsAndHets[countPerLengthBin.length];
         int previousHets = 0;
         double previousBasePairs = 0;
         int previousCounts = 0;
         double previousMutRate = 0;
-        for (Double len : getMutCountHistogram().descendingKeySet()) {
-            previousHets += getMutCountHistogram().get(len).hets;
-            previousBasePairs += getMutCountHistogram().get(len).basePairs;
-            previousCounts += getMutCountHistogram().get(len).count;
-            previousMutRate += getMutCountHistogram().get(len).mutRate;
-            BasePairsAndHets thisBin = new BasePairsAndHets(previousHets, previousBasePairs, previousCounts, previousMutRate);
-            cumHist.put(len, thisBin);
+        for (int bin = bins.length - 1; bin >= 0; bin--) {
+            if (countPerLengthBin[bin] == 0) {
+                continue;
+            }
+            previousHets += hetsPerLengthBin[bin];
+            previousBasePairs += basePairsPerLengthBin[bin];
+            previousCounts += countPerLengthBin[bin];
+            previousMutRate += mutRatePerLengthBin[bin];
+            bins[bin] = new BasePairsAndHets(previousHets, previousBasePairs, previousCounts, previousMutRate);
+        }
+        return bins;
+    }
+
+    /**
+     * @return the length at the start of a bin
+     */
+    private static double getBinLength(int bin) {
+        return bin / lengthBinsPerCM;
+    }
+
+    /**
+     * @return the lengths of the bins used by getMu() between minimumLength
+     * and maximumLength, up to maxBinLengthCM
+     */
+    public static double[] getBinLengths(double minimumLength, double maximumLength) {
+        ArrayList<Double> lengths = new ArrayList<Double>();
+        double upTo = Math.min(maximumLength, maxBinLengthCM);
+        for (int bin = Math.max(0, (int) Math.floor(minimumLength * lengthBinsPerCM) - 1); getBinLength(bin) <= upTo; bin++) {
+            if (getBinLength(bin) >= minimumLength) {
+                lengths.add(getBinLength(bin));
+            }
+        }
+        double[] array = new double[lengths.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = lengths.get(i);
+        }
+        return array;
+    }
+
+    private static TreeMap<Double, BasePairsAndHets> toHistogram(BasePairsAndHets[] bins) {
+        TreeMap<Double, BasePairsAndHets> histogram = new TreeMap<Double, BasePairsAndHets>();
+        for (int bin = 0; bin < bins.length; bin++) {
+            if (bins[bin] != null) {
+                histogram.put(getBinLength(bin), bins[bin]);
+            }
         }
-        return cumHist;
+        return histogram;
+    }
+
+    public TreeMap<Double, BasePairsAndHets> getHistogram() {
+        return getMutCountHistogram();
+    }
+
+    public TreeMap<Double, BasePairsAndHets> getCumulativeHistogram() {
+        return toHistogram(getCumulativeLengthBins());
     }
 
     public double getTotalBasePairsObserved() {
         double res = 0.0;
-        for (BasePairsAndHets bpHet : getMutCountHistogram().values()) {
-            res += bpHet.basePairs;
+        for (int bin = 0; bin < countPerLengthBin.length; bin++) {
+            if (countPerLengthBin[bin] > 0) {
+                res += basePairsPerLengthBin[bin];
+            }
         }
         return res;
     }
@@ -618,10 +456,18 @@ public class Results {
         return this.getMaskName() + "\t" + this.getMaxCount();
     }
 
-    public double[] getMu(Demography demography, double minimumLength, double maximumLength) {
-        TreeMap<Double, BasePairsAndHets> histogram = (isUseCumulative())
-                ? getCumulativeHistogram()
-                : getHistogram();
+    /**
+     * Regresses the observed mutation rate of each length bin on the age of
+     * segments of that length.
+     *
+     * @param weights the weights of the length bins, null for equal weights
+     * @return the intercept, slope and correlation coefficient
+     */
+    public double[] getMu(Demography demography, double minimumLength, double maximumLength, boolean useCumulative,
+            double[] weights, boolean printRegression) {
+        BasePairsAndHets[] bins = (useCumulative)
+                ? getCumulativeLengthBins()
+                : getLengthBins();
 
         if (demography == null) {
             Tools.exit("Did not initialize demography");
@@ -629,13 +475,17 @@ public class Results {
         ArrayList<Double> obsMutVector = new ArrayList<Double>();
         ArrayList<Double> ageVector = new ArrayList<Double>();
         int cnt = 0;
-        for (double len : histogram.keySet()) {
-            BasePairsAndHets thisRes = histogram.get(len);
+        for (int bin = 0; bin < bins.length; bin++) {
+            BasePairsAndHets thisRes = bins[bin];
+            if (thisRes == null) {
+                continue;
+            }
+            double len = getBinLength(bin);
             if (thisRes.basePairs > 0 && len >= minimumLength && len <= maximumLength) { //  should not be 0, but anyway...
                 double thisObsMutRate = thisRes.mutRate / (double) thisRes.count;
                 if (thisRes.count > 0) {
                     obsMutVector.add(thisObsMutRate);
-                    ageVector.add(2 * demography.getAgeOfSegment(len, len + Results.getLengthIncrement(), isUseCumulative()));
+                    ageVector.add(2 * demography.getAgeOfSegment(len, len + Results.getLengthIncrement(), useCumulative));
                     cnt++;
                 } else {
                     Tools.warning("Found zero segments for " + len);
@@ -652,83 +502,21 @@ public class Results {
         }
 
         double[] w = new double[ageVectorArray.length];
-        if (Results.getUseWeigthsIntMRCAReg()) {
-            w = Results.getTMRCARegressionWeights();
+        if (weights != null) {
+            w = weights;
         } else {
             for (int k = 0; k < w.length; k++) {
                 w[k] = 1.;
             }
         }
-        return Tools.simpleRegression(ageVectorArray, obsMutVectorArray, w);
-    }
-
-    public static double[] regressMuNoMaxCounts(TreeMap<Integer, Results> resultsMap, String maskFile,
-            Demography demography, double minimumLength, double maximumLength) {
-        // will not do regression on maxCount, only one value available
-        double intercept = resultsMap.firstEntry().getValue().getMu(demography, minimumLength, maximumLength)[0];
-        double mu = resultsMap.firstEntry().getValue().getMu(demography, minimumLength, maximumLength)[1];
-        double rSquare = resultsMap.firstEntry().getValue().getMu(demography, minimumLength, maximumLength)[2];
-        if (Tools.loggerIsOn()) {
-            Tools.writeLog("\nNo GC correction for mask " + maskFile + "\t" + mu + "\t" + intercept);
-        }
-        return new double[]{mu, intercept, rSquare};
-    }
-
-    public static double[] regressMuForListOfMaxCounts(int region, TreeMap<Integer, Results> resultsMap, String maskFile, int countFrom, int countInterval, int countTo,
-            Demography demography, double minimumLength, double maximumLength) {
-        double mean = 0.;
-        // will do regression on maxCount
-        // size-1 because of extra bin for uncorrected value
-        double[] muOfCount = new double[resultsMap.size() - 1];
-        double[][] counts = new double[resultsMap.size() - 1][1];
-        int i = 0;
-        for (int count = countFrom; count <= countTo; count += countInterval) {
-            if (LinearRegression.getPrintReg()) {
-                System.out.println("Regression\tExcluding region " + region + "\tMaAF\t" + count);
-            }
-            Results thisCountResults = resultsMap.get(count);
-            if (Tools.loggerIsOn()) {
-                Tools.writeLog("\nCalling getMu for mask " + maskFile + " maxCount " + count);
-            }
-            muOfCount[i] = thisCountResults.getMu(demography, minimumLength, maximumLength)[1];
-            mean += muOfCount[i];
-            if (Tools.loggerIsOn()) {
-                Tools.writeLog("\nResult: " + muOfCount[i]);
-            }
-            counts[i][0] = count;
-            i++;
-        }
-        // do rgression on maxCounts
-        if (Tools.loggerIsOn()) {
-            Tools.writeLog("\nRegression on max counts for " + maskFile);
-        }
-
-        if (!cumulativeMaAFRegression) {
-            return new double[]{mean / i / countInterval, 0, 0};
-        } else {
-            double[] w = new double[counts.length];
-            for (int k = 0; k < w.length; k++) {
-                w[k] = 1.;
-            }
-            if (LinearRegression.getPrintReg()) {
-                System.out.println("Regression\tMaAF-Regression for all but " + region);
-            }
-            return Tools.simpleRegression(counts, muOfCount, w);
-        }
+        return Tools.simpleRegression(ageVectorArray, obsMutVectorArray, w, printRegression);
     }
 
     /**
      * @return the mutCountHistogram
      */
     public TreeMap<Double, BasePairsAndHets> getMutCountHistogram() {
-        return mutCountHistogram;
-    }
-
-    /**
-     * @param mutCountHistogram the mutCountHistogram to set
-     */
-    public void setMutCountHistogram(TreeMap<Double, BasePairsAndHets> mutCountHistogram) {
-        this.mutCountHistogram = mutCountHistogram;
+        return toHistogram(getLengthBins());
     }
 
     /**
@@ -777,28 +565,24 @@ public class Results {
      * @return the transitionPerCM
      */
     public TreeMap<Double, Double> getTransitionPerCM() {
-        return transitionPerCM;
-    }
-
-    /**
-     * @param transitionPerCM the transitionPerCM to set
-     */
-    public void setTransitionPerCM(TreeMap<Double, Double> transitionPerCM) {
-        this.transitionPerCM = transitionPerCM;
+        return toHistogram(transitionsPerHalfCM, 2.);
     }
 
     /**
      * @return the transversionPerCM
      */
     public TreeMap<Double, Double> getTransversionPerCM() {
-        return transversionPerCM;
+        return toHistogram(transversionsPerHalfCM, 2.);
     }
 
-    /**
-     * @param transversionPerCM the transversionPerCM to set
-     */
-    public void setTransversionPerCM(TreeMap<Double, Double> transversionPerCM) {
-        this.transversionPerCM = transversionPerCM;
+    private static TreeMap<Double, Double> toHistogram(int[] counts, double binsPerCM) {
+        TreeMap<Double, Double> histogram = new TreeMap<Double, Double>();
+        for (int bin = 0; bin < counts.length; bin++) {
+            if (counts[bin] > 0) {
+                histogram.put(bin / binsPerCM, (double) counts[bin]);
+            }
+        }
+        return histogram;
     }
 
     /**
@@ -833,42 +617,35 @@ public class Results {
      * @return the countsHistogram
      */
     public TreeMap<Double, Double> getCountsHistogram() {
-        return countsHistogram;
-    }
-
-    /**
-     * @param countsHistogram the countsHistogram to set
-     */
-    public void setCountsHistogram(TreeMap<Double, Double> countsHistogram) {
-        this.countsHistogram = countsHistogram;
+        return toRoundedLengthHistogram(countsPerRoundedLength);
     }
 
     /**
      * @return the inMaskHistogram
      */
     public TreeMap<Double, Double> getInMaskHistogram() {
-        return inMaskHistogram;
-    }
-
-    /**
-     * @param inMaskHistogram the inMaskHistogram to set
-     */
-    public void setInMaskHistogram(TreeMap<Double, Double> inMaskHistogram) {
-        this.inMaskHistogram = inMaskHistogram;
+        return toRoundedLengthHistogram(inMaskPerRoundedLength);
     }
 
     /**
-     * @return the freqCounts
+     * @return the histogram of values for the rounded lengths of segments
+     * that were added, all of which have sites in the mask
      */
-    public TreeMap<Double, Integer> getFreqCounts() {
-        return freqCounts;
+    private TreeMap<Double, Double> toRoundedLengthHistogram(long[] values) {
+        TreeMap<Double, Double> histogram = new TreeMap<Double, Double>();
+        for (int bin = 0; bin < values.length; bin++) {
+            if (inMaskPerRoundedLength[bin] > 0) {
+                histogram.put(bin / roundTo, (double) values[bin]);
+            }
+        }
+        return histogram;
     }
 
     /**
-     * @param freqCounts the freqCounts to set
+     * @return the alleleCountHistogram
      */
-    public void setFreqCounts(TreeMap<Double, Integer> freqCounts) {
-        this.freqCounts = freqCounts;
+    public int[] getAlleleCountHistogram() {
+        return alleleCountHistogram;
     }
 
     /**
@@ -914,27 +691,3 @@ public class Results {
     }
 
 }
-
-class BasePairsAndHets {
-
-    double basePairs = 0;
-    int hets = 0;
-
-    int count = 0;
-    double mutRate = 0.0;
-
-    public BasePairsAndHets() {
-        this.hets = 0;
-        this.basePairs = 0;
-        this.mutRate = 0;
-        this.count = 0;
-    }
-
-    public BasePairsAndHets(int hets, double basePairs, int count, double mutRate) {
-        this.hets = hets;
-        this.basePairs = basePairs;
-        this.mutRate = mutRate;
-        this.count = count;
-    }
-
-}
@@ -0,0 +1,89 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+/**
+ * Compares two haplotypes over a range of markers 64 sites at a time. A site
+ * is discordant if both haplotypes are observed and the alleles differ:
+ * (hap1 XOR hap2) AND observed1 AND observed2.
+ *
+ * @author Pier Palamara
+ */
+public class SegmentComparator {
+
+    /**
+     * @return the mask selecting the bits of word wordIndex that fall in the
+     * marker range [from, to]
+     */
+    public static long rangeMask(int wordIndex, int from, int to) {
+        long mask = -1L;
+        int firstSiteInWord = wordIndex << 6;
+        if (from > firstSiteInWord) {
+            mask &= -1L << (from - firstSiteInWord);
+        }
+        if (to < firstSiteInWord + 63) {
+            mask &= -1L >>> (63 - (to - firstSiteInWord));
+        }
+        return mask;
+    }
+
+    /**
+     * @return the discordant sites in word wordIndex
+     */
+    public static long discordantWord(long[] hap1, long[] observed1, long[] hap2, long[] observed2, int wordIndex) {
+        return (hap1[wordIndex] ^ hap2[wordIndex]) & observed1[wordIndex] & observed2[wordIndex];
+    }
+
+    /**
+     * @return the index of the first marker in [from, to] at genetic distance
+     * of at least offsetCM from the left edge at fromGen, or to + 1 if none.
+     * Genetic positions are non-decreasing, so the sites excluded by the edge
+     * offset form a prefix of the range.
+     */
+    public static int firstSiteAwayFromLeftEdge(double[] genPos, int from, int to, double fromGen, double offsetCM) {
+        int low = from, high = to + 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (genPos[mid] - fromGen < offsetCM) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the index of the last marker in [from, to] at genetic distance
+     * of at least offsetCM from the right edge at toGen, or from - 1 if none.
+     */
+    public static int lastSiteAwayFromRightEdge(double[] genPos, int from, int to, double toGen, double offsetCM) {
+        int low = from - 1, high = to;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (toGen - genPos[mid] < offsetCM) {
+                high = mid - 1;
+            } else {
+                low = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+/**
+ * Resolves the first and last marker of the segments of one match file. The
+ * mode is chosen on the first segment: if its SNP IDs are in the map,
+ * endpoints are looked up by ID, otherwise by physical position for the rest
+ * of the file. In ID mode, a segment whose IDs are not found is resolved by
+ * position.
+ *
+ * @author Pier Palamara
+ */
+class SegmentEndpointResolver {
+
+    static final int UNDECIDED = 0;
+    static final int BY_ID = 1;
+    static final int BY_POSITION = 2;
+
+    private final MarkerIndex markers;
+    private int mode = UNDECIDED;
+    private boolean didAlreadyWarnMatchFileHasNoSNPs = false;
+    private int from;
+    private int to;
+
+    public SegmentEndpointResolver(MarkerIndex markers) {
+        this.markers = markers;
+    }
+
+    /**
+     * Resolves a segment, whose endpoints are then available from getFrom()
+     * and getTo().
+     */
+    public void resolve(String fromSNP, String toSNP, int fromPos, int toPos) {
+        if (mode != BY_POSITION) {
+            from = markers.indexOfID(fromSNP);
+            to = markers.indexOfID(toSNP);
+            if (from >= 0 && to >= 0) {
+                if (mode == UNDECIDED) {
+                    mode = BY_ID;
+                }
+                return;
+            }
+            if (mode == UNDECIDED) {
+                mode = BY_POSITION;
+            }
+            if (!didAlreadyWarnMatchFileHasNoSNPs) {
+                Tools.warning("Warning: Could not find SNPs indicated in match file. Will always find them using physical start/end of segments.");
+                didAlreadyWarnMatchFileHasNoSNPs = true;
+            }
+        }
+        from = markers.physCeilingIndex(fromPos);
+        if (from < 0) {
+            from = markers.physFloorIndex(fromPos);
+        }
+        to = markers.physFloorIndex(toPos);
+        if (to < 0) {
+            to = markers.physCeilingIndex(toPos);
+        }
+        // the last marker with the same ID, as when looking up by ID
+        from = markers.indexOfID(markers.getID(from));
+        to = markers.indexOfID(markers.getID(to));
+    }
+
+    /**
+     * @return the mode
+     */
+    public int getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the from
+     */
+    public int getFrom() {
+        return from;
+    }
+
+    /**
+     * @return the to
+     */
+    public int getTo() {
+        return to;
+    }
+}
@@ -0,0 +1,247 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+
+package IBDMUT;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Segments of a match file in columns: the haplotypes, as indices into a table
+ * of "FamID\tIndID" names, the first and last marker, and the length in cM.
+ * Endpoints are resolved against the map when the table is built, so the
+ * table is only valid for that map. It is stored next to the match file and
+ * read back with a single bulk read, as long as neither the match file nor
+ * the map changed.
+ *
+ * @author Pier Palamara
+ */
+class SegmentTable {
+
+    private static final int magic = 0x49424453;
+    private static final int version = 1;
+    private static final int headerBytes = 40;
+
+    private String[] names;
+    private int[] ID1;
+    private int[] ID2;
+    private int[] from;
+    private int[] to;
+    // kept in double precision, so that lengths are binned as when read from the match file
+    private double[] length;
+    private int size = 0;
+
+    private SegmentTable() {
+    }
+
+    /**
+     * @return the file the table of matchFile is stored in
+     */
+    public static File getTableFile(String matchFile) {
+        return new File(matchFile + ".segments");
+    }
+
+    /**
+     * Parses a match file, resolving the endpoints of segments with
+     * SegmentEndpointResolver.
+     */
+    public static SegmentTable build(BufferedReader br, MarkerIndex markers) throws IOException {
+        SegmentTable table = new SegmentTable();
+        table.ID1 = new int[1024];
+        table.ID2 = new int[1024];
+        table.from = new int[1024];
+        table.to = new int[1024];
+        table.length = new double[1024];
+        SegmentEndpointResolver endpoints = new SegmentEndpointResolver(markers);
+        HashMap<String, Integer> nameIndex = new HashMap<String, Integer>();
+        String line = br.readLine();
+        while (line != null) {
+            String[] strSplit = line.split("\\s+");
+            int fromPos = Integer.parseInt(strSplit[5]);
+            int toPos = Integer.parseInt(strSplit[6]);
+            if (strSplit[11].compareToIgnoreCase("Mb") == 0) {
+                Tools.warning("Warning: parsed match which is not in cM unit.");
+            }
+            endpoints.resolve(strSplit[7], strSplit[8], fromPos, toPos);
+            if (table.size == table.ID1.length) {
+                table.grow();
+            }
+            table.ID1[table.size] = getNameIndex(nameIndex, strSplit[0] + "\t" + strSplit[1]);
+            table.ID2[table.size] = getNameIndex(nameIndex, strSplit[2] + "\t" + strSplit[3]);
+            table.from[table.size] = endpoints.getFrom();
+            table.to[table.size] = endpoints.getTo();
+            table.length[table.size] = Double.parseDouble(strSplit[10]);
+            table.size++;
+            line = br.readLine();
+        }
+        table.names = new String[nameIndex.size()];
+        for (java.util.Map.Entry<String, Integer> entry : nameIndex.entrySet()) {
+            table.names[entry.getValue()] = entry.getKey();
+        }
+        return table;
+    }
+
+    private static int getNameIndex(HashMap<String, Integer> nameIndex, String name) {
+        Integer index = nameIndex.get(name);
+        if (index == null) {
+            index = nameIndex.size();
+            nameIndex.put(name, index);
+        }
+        return index;
+    }
+
+    private void grow() {
+        int capacity = 2 * ID1.length;
+        ID1 = Arrays.copyOf(ID1, capacity);
+        ID2 = Arrays.copyOf(ID2, capacity);
+        from = Arrays.copyOf(from, capacity);
+        to = Arrays.copyOf(to, capacity);
+        length = Arrays.copyOf(length, capacity);
+    }
+
+    /**
+     * @return the table stored for matchFile, or null if there is none or it
+     * was built from another version of the match file or of the map
+     */
+    public static SegmentTable read(String matchFile, MarkerIndex markers) throws IOException {
+        File tableFile = getTableFile(matchFile);
+        if (!tableFile.isFile() || tableFile.length() < headerBytes || tableFile.length() > Integer.MAX_VALUE) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) tableFile.length()];
+        DataInputStream in = new DataInputStream(new FileInputStream(tableFile));
+        try {
+            in.readFully(bytes);
+        } finally {
+            in.close();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        File match = new File(matchFile);
+        if (buffer.getInt() != magic || buffer.getInt() != version
+                || buffer.getLong() != match.length() || buffer.getLong() != match.lastModified()
+                || buffer.getLong() != markers.getFingerprint()) {
+            return null;
+        }
+        SegmentTable table = new SegmentTable();
+        int numNames = buffer.getInt();
+        table.size = buffer.getInt();
+        table.ID1 = new int[table.size];
+        table.ID2 = new int[table.size];
+        table.from = new int[table.size];
+        table.to = new int[table.size];
+        table.length = new double[table.size];
+        buffer.asIntBuffer().get(table.ID1);
+        buffer.position(buffer.position() + 4 * table.size);
+        buffer.asIntBuffer().get(table.ID2);
+        buffer.position(buffer.position() + 4 * table.size);
+        buffer.asIntBuffer().get(table.from);
+        buffer.position(buffer.position() + 4 * table.size);
+        buffer.asIntBuffer().get(table.to);
+        buffer.position(buffer.position() + 4 * table.size);
+        buffer.asDoubleBuffer().get(table.length);
+        buffer.position(buffer.position() + 8 * table.size);
+        DataInputStream namesIn = new DataInputStream(new ByteArrayInputStream(bytes, buffer.position(), buffer.remaining()));
+        table.names = new String[numNames];
+        for (int i = 0; i < numNames; i++) {
+            table.names[i] = namesIn.readUTF();
+        }
+        return table;
+    }
+
+    /**
+     * Stores the table next to matchFile. It is written to a temporary file
+     * first, so that an interrupted write never leaves a partial table.
+     */
+    public void write(String matchFile, MarkerIndex markers) throws IOException {
+        File tableFile = getTableFile(matchFile);
+        File tmpFile = new File(tableFile.getPath() + ".tmp");
+        File match = new File(matchFile);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 1 << 16));
+        try {
+            out.writeInt(magic);
+            out.writeInt(version);
+            out.writeLong(match.length());
+            out.writeLong(match.lastModified());
+            out.writeLong(markers.getFingerprint());
+            out.writeInt(names.length);
+            out.writeInt(size);
+            for (int[] column : new int[][]{ID1, ID2, from, to}) {
+                for (int i = 0; i < size; i++) {
+                    out.writeInt(column[i]);
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeDouble(length[i]);
+            }
+            for (String name : names) {
+                out.writeUTF(name);
+            }
+        } finally {
+            out.close();
+        }
+        if (!tmpFile.renameTo(tableFile)) {
+            tableFile.delete();
+            if (!tmpFile.renameTo(tableFile)) {
+                tmpFile.delete();
+                throw new IOException("Could not rename " + tmpFile + " to " + tableFile);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the "FamID\tIndID" name of each haplotype index
+     */
+    public String[] getNames() {
+        return names;
+    }
+
+    public int getID1(int segment) {
+        return ID1[segment];
+    }
+
+    public int getID2(int segment) {
+        return ID2[segment];
+    }
+
+    public int getFrom(int segment) {
+        return from[segment];
+    }
+
+    public int getTo(int segment) {
+        return to[segment];
+    }
+
+    public double getLength(int segment) {
+        return length[segment];
+    }
+}
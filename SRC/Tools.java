@@ -18,9 +18,7 @@
  */
 package IBDMUT;
 
-import java.io.FileNotFoundException;
 import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
 import org.apache.commons.math3.stat.regression.RegressionResults;
 import org.apache.commons.math3.stat.regression.SimpleRegression;
 
@@ -31,17 +29,10 @@ import org.apache.commons.math3.stat.regression.SimpleRegression;
 public class Tools {
 
     private static boolean quiet = false;
-    private static boolean loggerIsOn = false;
-    private static PrintWriter logFileStream;
     private static boolean useApacheRegression = false;
-    private static boolean printJackknife = false;
 
     private static int jackknifeWarningCount = 10;
 
-    public static void setPrintJackknife(boolean value) {
-        printJackknife = value;
-    }
-
     public static void setUseApacheReg() {
         useApacheRegression = true;
     }
@@ -50,21 +41,14 @@ public class Tools {
         quiet = true;
     }
 
-    public static void initLog(String logFile) throws FileNotFoundException, UnsupportedEncodingException {
-        setLogFileStream(new PrintWriter(logFile, "UTF-8"));
-    }
-
-    public static void finalizeLogIfOpen() throws FileNotFoundException, UnsupportedEncodingException {
-        if (getLogFileStream() != null) {
-            getLogFileStream().close();
-        }
-    }
-
-    public static void writeLog(String s) {
-        getLogFileStream().println(s);
+    public static double[] simpleRegression(double[][] x, double[] y, double[] w) {
+        return simpleRegression(x, y, w, false);
     }
 
-    public static double[] simpleRegression(double[][] x, double[] y, double[] w) {
+    /**
+     * @param printRegression whether to print the regression to stdout
+     */
+    public static double[] simpleRegression(double[][] x, double[] y, double[] w, boolean printRegression) {
         if (useApacheRegression) {
             Tools.exit("Apache Regression should be removed.");
             return Tools.ApacheRegression(x, y);
@@ -80,6 +64,7 @@ public class Tools {
                 }
             }
             LinearRegression linReg = new LinearRegression();
+            linReg.setPrintReg(printRegression);
             if (linReg.regress(y, transp, w)) {
                 double res[] = new double[3];
                 res[0] = linReg.getCoefficients()[0];
@@ -104,13 +89,6 @@ public class Tools {
 //            Tools.warning("******************************************************");
             exit("Trying to run regression with " + x.length + " points.");
         }
-        if (Tools.loggerIsOn()) {
-            Tools.writeLog("Regression");
-            Tools.writeLog("\tx\ty");
-            for (int i = 0; i < x.length; i++) {
-                Tools.writeLog("\t" + x[i][0] + "\t" + y[i]);
-            }
-        }
         SimpleRegression reg = new SimpleRegression(true);
         reg.addObservations(x, y);
         RegressionResults regRes = reg.regress();
@@ -121,6 +99,15 @@ public class Tools {
     }
 
     public static Pair<Double, Double> weightedBlockJackknife(Double[] originalEstimates, Double[] originalWeights, Double estTot) {
+        return weightedBlockJackknife(originalEstimates, originalWeights, estTot, null, false);
+    }
+
+    /**
+     * @param log where to log the jackknife, null for no log
+     * @param printJackknife whether to print the jackknife to stdout
+     */
+    public static Pair<Double, Double> weightedBlockJackknife(Double[] originalEstimates, Double[] originalWeights, Double estTot,
+            PrintWriter log, boolean printJackknife) {
 
         if (originalEstimates.length != originalWeights.length) {
             exit("Jacknife weights are not same length as estimates vector.");
@@ -184,15 +171,15 @@ public class Tools {
         }
         jackKnifeVariance /= (double) numEstimates;
         double se = Math.sqrt(jackKnifeVariance);
-        if (Tools.loggerIsOn()) {
-            Tools.writeLog("JackKnife");
-            Tools.writeLog("\tglobal estimate:\t" + estTot);
-            Tools.writeLog("\tweight\testimate");
+        if (log != null) {
+            log.println("JackKnife");
+            log.println("\tglobal estimate:\t" + estTot);
+            log.println("\tweight\testimate");
             for (int i = 0; i < weights.length; i++) {
-                Tools.writeLog("\t" + weights[i] + "\t" + estimates[i]);
+                log.println("\t" + weights[i] + "\t" + estimates[i]);
             }
-            Tools.writeLog("\tJackKnife estimate:\t" + jackKnifeEstimate + "\ts.e.\t" + se);
-            Tools.writeLog(Red);
+            log.println("\tJackKnife estimate:\t" + jackKnifeEstimate + "\ts.e.\t" + se);
+            log.println(Red);
         }
         if (printJackknife) {
             System.out.println("Jackknife result:\t" + jackKnifeEstimate + "\t" + se);
@@ -245,9 +232,13 @@ public class Tools {
         }
     }
 
+    /**
+     * Prints error and ends the analysis with an AnalysisException, which
+     * the command line turns into exit code 1.
+     */
     public static void exit(String error) {
         System.err.println(getLightRed() + "ERROR:\t" + error + getResetColor());
-        System.exit(1);
+        throw new AnalysisException(error);
     }
 
     public static void testColors() {
@@ -348,20 +339,6 @@ public class Tools {
         waveCounter = (waveCounter + 1) % animation.length;
     }
 
-    /**
-     * @return the logFileStream
-     */
-    public static PrintWriter getLogFileStream() {
-        return logFileStream;
-    }
-
-    /**
-     * @param aLogFileStream the logFileStream to set
-     */
-    public static void setLogFileStream(PrintWriter aLogFileStream) {
-        logFileStream = aLogFileStream;
-    }
-
     /**
      * @return the Black
      */
@@ -572,20 +549,6 @@ public class Tools {
         ResetColor = aResetColor;
     }
 
-    /**
-     * @return the loggerIsOn
-     */
-    public static boolean loggerIsOn() {
-        return loggerIsOn;
-    }
-
-    /**
-     * @param aLoggerIsOn the loggerIsOn to set
-     */
-    public static void setLoggerIsOn(boolean aLoggerIsOn) {
-        loggerIsOn = aLoggerIsOn;
-    }
-
     /**
      * @param aBlack the Black to set
      */
@@ -626,12 +589,22 @@ public class Tools {
                 "\t--maskList [file] (substitutes --mask for many files) \n" +
                 "\t--lenRange [fromLen] [toLen] (default: 2.0 5.0) \n" +
                 "\t--jackknife (only if --plinkList is used with several independent regions) \n" +
-                "\t--saveBin [suffix] (saves a binary file, which will load much faster than the ped.gz file) \n" +
-                "\t--loadBin [suffix] (load a binary file) \n" +
+                "\t--saveBin [suffix] (saves a binary file [root][suffix].bin, which will load much faster than the ped.gz file) \n" +
+                "\t--loadBin [suffix] (load a binary file; .bin.gz files saved by older versions must be re-created with --saveBin) \n" +
+                "\t--segmentTables (stores a table of segments next to each match.gz file, read instead of it in later runs) \n" +
                 "\t--offsetCM [value] (distance to be excluded from edges; default: 0.0) \n" +
                 "\t--mask [file] (bed file with regions to be included in analysis) \n" +
-                "\t--threads [value] (default: 1) \n" +
-                "\t--MaAFRegression [intValueFromCount] [intValueStep] [intValueToCount] (from MAF counts, interval MAF counts, to MAF counts) \n";
+                "\t--threads [value] (regions and segments within a region analyzed in parallel; default: 1) \n" +
+                "\t--loadThreads [value] (threads parsing each ped.gz file; default: 1) \n" +
+                "\t--memoryBudget [MB] (estimated memory of datasets loaded at the same time; default: 80% of max heap) \n" +
+                "\t--cacheDir [dir] (caches the binary file of each dataset in dir, reused while its input files and loading options are unchanged) \n" +
+                "\t--cacheSize [MB] (size of --cacheDir, evicting the least recently used datasets; default: 20000) \n" +
+                "\t--MaAFRegression [intValueFromCount] [intValueStep] [intValueToCount] (from MAF counts, interval MAF counts, to MAF counts) \n" +
+                "\t--emitPartial [file] (counts the regions and writes their results to file instead of estimating; no --demography needed) \n" +
+                "\t--mergePartials [file] (estimates from the --emitPartial files listed in file, instead of --plink or --plinkList) \n" +
+                "\t--server [port] (serves analyses as JSON over HTTP on localhost, keeping loaded regions in memory; only --quiet can be added) \n" +
+                "\t--generate [root] (writes a synthetic cohort instead of analyzing; --samples --markers --regions --regionCM --segmentsPerPair \n" +
+                "\t\t--missingness --discordance --spectrum [neutral|uniform] --masks --demographySize --seed --threads) \n";
 //                "\t--posteriorRange [doubleValue] [doubleValue] \n" +
 //                "\t--computeHeterozygosity [file]";
         Tools.printResult(s);
@@ -20,11 +20,16 @@ under the License.
 package IBDMUT;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.TreeMap;
 import java.util.zip.GZIPInputStream;
 
@@ -110,58 +115,156 @@ public class TrinucleotideContext {
         "TCT	--	TTT", "TGA	--	TTA", "TGC	--	TTC", "TGG	--	TTG",
         "TGT	--	TTT"};
 
-    public static TreeMap<String, Pair<String, String>> context = new TreeMap<String, Pair<String, String>>();
+    // small integer code of each "from\t--\tto" class, assigned to the reference classes first.
+    // The codes are shared by all analyses, which only ever add to them.
+    private static final HashMap<String, Integer> classCodes = new HashMap<String, Integer>();
+    private static final ArrayList<String> classNames = new ArrayList<String>();
 
-    private TreeMap<String, Integer> trinucleotideContextCounts = new TreeMap<String, Integer>();
+    static {
+        for (String trinucleotide : trinucleotideListDirectional) {
+            getClassCode(trinucleotide);
+        }
+        for (String trinucleotide : trinucleotideListNoDirection) {
+            getClassCode(trinucleotide);
+        }
+    }
+
+    // counts of each class code, and their sum
+    private int[] counts = new int[0];
+    private long totalCount = 0;
+
+    /**
+     * @return the code of a class, which is assigned if it is new
+     */
+    private static synchronized int getClassCode(String trinucleotide) {
+        Integer code = classCodes.get(trinucleotide);
+        if (code == null) {
+            code = classNames.size();
+            classCodes.put(trinucleotide, code);
+            classNames.add(trinucleotide);
+        }
+        return code;
+    }
+
+    /**
+     * @return the code of a class, or -1 if no site was ever assigned to it
+     */
+    private static synchronized int findClassCode(String trinucleotide) {
+        Integer code = classCodes.get(trinucleotide);
+        return (code == null) ? -1 : code;
+    }
+
+    private static synchronized int getNumClasses() {
+        return classNames.size();
+    }
+
+    private static synchronized String getClassName(int code) {
+        return classNames.get(code);
+    }
+
+    /**
+     * @return for each marker, the code of the class of its mutation, or -1
+     * if it is not in the context, as read by readContext()
+     */
+    public static int[] getClassCodes(MarkerIndex markers, TreeMap<String, Pair<String, String>> context) {
+        int[] codes = new int[markers.size()];
+        for (int i = 0; i < codes.length; i++) {
+            Pair<String, String> trinucleotides = context.get(markers.getIDAtPhys(markers.getPhysPos(i)));
+            codes[i] = (trinucleotides == null) ? -1 : getClassCode(trinucleotides.getKey() + "\t--\t" + trinucleotides.getValue());
+        }
+        return codes;
+    }
 
+    /**
+     * @return the counts of each class that was observed
+     */
     public TreeMap<String, Integer> getTrinucleotideCounts() {
+        TreeMap<String, Integer> trinucleotideContextCounts = new TreeMap<String, Integer>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] != 0) {
+                trinucleotideContextCounts.put(getClassName(code), counts[code]);
+            }
+        }
         return trinucleotideContextCounts;
     }
 
+    private int getCount(String trinucleotide) {
+        int code = findClassCode(trinucleotide);
+        return (code >= 0 && code < counts.length) ? counts[code] : 0;
+    }
+
     public double getTrinucleotideRawCount(String trinucleotide) {
-        return (!trinucleotideContextCounts.containsKey(trinucleotide)) ? 0. : trinucleotideContextCounts.get(trinucleotide);
+        return getCount(trinucleotide);
     }
 
     public double getTrinucleotideProbability(String trinucleotide) {
-        double norm = 0.;
-        for (String t : trinucleotideContextCounts.keySet()) {
-            norm += trinucleotideContextCounts.get(t);
-        }
-        return (!trinucleotideContextCounts.containsKey(trinucleotide)) ? 0. : trinucleotideContextCounts.get(trinucleotide) / norm;
+        int count = getCount(trinucleotide);
+        return (count == 0) ? 0. : count / (double) totalCount;
     }
 
-    public void setTrinucleotideCounts(TreeMap<String, Integer> trinucleotideContextCounts) {
-        this.trinucleotideContextCounts = trinucleotideContextCounts;
+    public void increaseCountBy(int code, int increase) {
+        if (code >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(code + 1, getNumClasses()));
+        }
+        counts[code] += increase;
+        totalCount += increase;
     }
 
     public void increaseTrinucleotideCountsBy(String from, String to, int increase) {
-        String key = from + "\t--\t" + to;
-        int counts = (!trinucleotideContextCounts.containsKey(key)) ? 0 : trinucleotideContextCounts.get(key);
-        trinucleotideContextCounts.put(key, counts + increase);
+        increaseCountBy(getClassCode(from + "\t--\t" + to), increase);
     }
 
-    public static TreeMap<String, Integer> mergeTrinucleotideCounts(TrinucleotideContext tn1, TrinucleotideContext tn2) throws IOException {
-        TreeMap<String, Integer> tnc1 = tn1.trinucleotideContextCounts;
-        TreeMap<String, Integer> tnc2 = tn2.trinucleotideContextCounts;
-        TreeMap<String, Integer> merged = new TreeMap<String, Integer>();
-        for (String trinucleotide : tnc1.keySet()) {
-            merged.put(trinucleotide, tnc1.get(trinucleotide));
+    /**
+     * Adds the counts of other.
+     */
+    public void addCounts(TrinucleotideContext other) {
+        if (other.counts.length > counts.length) {
+            counts = Arrays.copyOf(counts, other.counts.length);
         }
-        for (String trinucleotide : tnc2.keySet()) {
-            int counts = (!merged.containsKey(trinucleotide)) ? 0 : merged.get(trinucleotide);
-            merged.put(trinucleotide, counts + tnc2.get(trinucleotide));
+        for (int code = 0; code < other.counts.length; code++) {
+            counts[code] += other.counts[code];
+        }
+        totalCount += other.totalCount;
+    }
+
+    /**
+     * Writes the counts by class name, since class codes are only valid in
+     * the process that assigned them.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        TreeMap<String, Integer> trinucleotideContextCounts = getTrinucleotideCounts();
+        out.writeInt(trinucleotideContextCounts.size());
+        for (String trinucleotide : trinucleotideContextCounts.keySet()) {
+            out.writeUTF(trinucleotide);
+            out.writeInt(trinucleotideContextCounts.get(trinucleotide));
+        }
+    }
+
+    /**
+     * Adds the counts written by write().
+     */
+    public void readCounts(DataInputStream in) throws IOException {
+        int numClasses = in.readInt();
+        for (int i = 0; i < numClasses; i++) {
+            String trinucleotide = in.readUTF();
+            increaseCountBy(getClassCode(trinucleotide), in.readInt());
         }
-        return merged;
     }
 
     public void printTrinucleotideResults() {
         Tools.printResult("Trinucleotide results");
+        TreeMap<String, Integer> trinucleotideContextCounts = getTrinucleotideCounts();
         for (String trinucleotide : trinucleotideContextCounts.keySet()) {
             Tools.printResult("\t" + trinucleotide + "\t" + trinucleotideContextCounts.get(trinucleotide));
         }
     }
 
-    public static void setTrinucleotideContext(String filename) throws IOException {
+    /**
+     * @return the trinucleotides of each mutation in a context file, by
+     * chromosome:position
+     */
+    public static TreeMap<String, Pair<String, String>> readContext(String filename) throws IOException {
+        TreeMap<String, Pair<String, String>> context = new TreeMap<String, Pair<String, String>>();
         BufferedReader br = null;
         try {
             InputStream fileStream = new FileInputStream(filename);
@@ -173,6 +276,7 @@ public class TrinucleotideContext {
             while (line != null) {
                 String[] split = line.split("\\s+");
                 context.put(split[0] + ":" + split[1], new Pair(split[2], split[3]));
+                getClassCode(split[2] + "\t--\t" + split[3]);
                 line = br.readLine();
                 cnt++;
             }
@@ -180,10 +284,7 @@ public class TrinucleotideContext {
         } catch (Exception ex) {
             Tools.exit("Could not read trinucleotide context file " + filename);
         }
-    }
-
-    public static Pair<String, String> getTrinucleotides(String mut) {
-        return context.get(mut);
+        return context;
     }
 
 }
@@ -24,7 +24,7 @@ package IBDMUT;
  * @author Pier Palamara
  */
 
-class Variant {
+public class Variant {
 
     private char[] vars = new char[2];
 